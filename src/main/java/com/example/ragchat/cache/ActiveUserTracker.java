@@ -0,0 +1,73 @@
+package com.example.ragchat.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recently active users, as a Redis sorted set scored by last activity (epoch millis), shared by all
+ * nodes; read by the cache warm-up. Each node writes a user at most once per {@code resolution}, so
+ * tracking costs one Redis call per active user per minute rather than one per request. The set is
+ * trimmed to the {@code capacity} most recent users on every write. Writes are skipped while the
+ * {@link RedisCircuitBreaker} is open.
+ */
+@Component
+@ConditionalOnBean(StringRedisTemplate.class)
+public class ActiveUserTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveUserTracker.class);
+
+    private static final String KEY = "activeUsers";
+
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])
+            return redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -tonumber(ARGV[3]) - 1)
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker redisBreaker;
+    private final String capacity;
+    private final Cache<String, Boolean> recentlyRecorded;
+
+    public ActiveUserTracker(StringRedisTemplate redisTemplate, RedisCircuitBreaker redisBreaker,
+                             @Value("${app.cache.warmup.tracked-users:10000}") int capacity,
+                             @Value("${app.cache.warmup.tracking-resolution:1m}") Duration resolution) {
+        this.redisTemplate = redisTemplate;
+        this.redisBreaker = redisBreaker;
+        this.capacity = String.valueOf(capacity);
+        this.recentlyRecorded = Caffeine.newBuilder()
+                .maximumSize(capacity)
+                .expireAfterWrite(resolution)
+                .build();
+    }
+
+    /** Marks the user as active now; failures are logged, never thrown to the request. */
+    public void recordActivity(String userId) {
+        if (recentlyRecorded.asMap().putIfAbsent(userId, Boolean.TRUE) != null) {
+            return;
+        }
+        if (!redisBreaker.run(() -> redisTemplate.execute(RECORD_SCRIPT, List.of(KEY),
+                String.valueOf(System.currentTimeMillis()), userId, capacity))) {
+            log.debug("Activity of user {} not recorded: Redis unavailable", userId);
+        }
+    }
+
+    /** Up to {@code limit} users active within {@code window}, most recent first. */
+    public List<String> recentUsers(Duration window, int limit) {
+        long now = System.currentTimeMillis();
+        Set<String> users = redisTemplate.opsForZSet()
+                .reverseRangeByScore(KEY, now - window.toMillis(), Double.POSITIVE_INFINITY, 0, limit);
+        return users != null ? List.copyOf(users) : List.of();
+    }
+}
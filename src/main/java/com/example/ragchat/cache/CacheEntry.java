@@ -0,0 +1,8 @@
+package com.example.ragchat.cache;
+
+/**
+ * Cached value as stored by {@link TwoLevelCache#get(Object, java.util.concurrent.Callable)}, with
+ * what probabilistic early refresh needs: when the L2 entry expires and how long the load took.
+ */
+public record CacheEntry(Object value, long expiresAtMillis, long loadMillis) {
+}
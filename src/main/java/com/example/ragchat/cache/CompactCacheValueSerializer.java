@@ -0,0 +1,321 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.dto.CachedSessionList;
+import com.example.ragchat.model.dto.SessionResponse;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary cache values: {@link CachedSessionList} is written field by field (no type metadata,
+ * no field names), anything else as JSON through the fallback serializer. Values larger than the
+ * threshold are deflated when that makes them smaller. A {@link CacheEntry} is written as its expiry
+ * and load time followed by the encoded value.
+ * <p>
+ * Layout: {@code [format version][encoding][payload]}. A value with an unknown version reads as null,
+ * i.e. a cache miss, so nodes of different versions never fail on each other's entries.
+ */
+public class CompactCacheValueSerializer implements RedisSerializer<Object> {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int TYPE_SESSION_LIST = 0;
+    private static final int TYPE_FALLBACK = 1;
+    private static final int TYPE_ENTRY = 2;
+    private static final int TYPE_MASK = 0x0F;
+    private static final int DEFLATED = 0x80;
+
+    // CachedSessionList flags
+    private static final int HAS_TOTALS = 1;
+    private static final int HAS_NEXT = 1 << 1;
+
+    // SessionResponse flags
+    private static final int FAVORITE = 1;
+    private static final int OWN_SESSION_ID = 1 << 1;
+    private static final int HAS_CREATED = 1 << 2;
+    private static final int HAS_UPDATED = 1 << 3;
+
+    private final RedisSerializer<Object> fallback;
+    private final int compressThreshold;
+
+    /**
+     * @param fallback          serializer for values other than {@link CachedSessionList}
+     * @param compressThreshold payload size in bytes above which values are deflated
+     */
+    public CompactCacheValueSerializer(RedisSerializer<Object> fallback, int compressThreshold) {
+        this.fallback = fallback;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        int type;
+        byte[] payload;
+        if (value instanceof CacheEntry entry) {
+            type = TYPE_ENTRY;
+            payload = encodeEntry(entry);
+        } else {
+            type = typeOf(value);
+            payload = encodeValue(type, value);
+        }
+        if (payload.length > compressThreshold) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                return frame(type | DEFLATED, deflated);
+            }
+        }
+        return frame(type, payload);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length < 2 || bytes[0] != FORMAT_VERSION) {
+            return null;
+        }
+        int encoding = bytes[1] & 0xFF;
+        byte[] payload = new byte[bytes.length - 2];
+        System.arraycopy(bytes, 2, payload, 0, payload.length);
+        if ((encoding & DEFLATED) != 0) {
+            payload = inflate(payload);
+        }
+        return (encoding & TYPE_MASK) == TYPE_ENTRY ? decodeEntry(payload) : decodeValue(encoding & TYPE_MASK, payload);
+    }
+
+    private static int typeOf(Object value) {
+        return value instanceof CachedSessionList ? TYPE_SESSION_LIST : TYPE_FALLBACK;
+    }
+
+    private byte[] encodeValue(int type, Object value) {
+        return type == TYPE_SESSION_LIST ? encode((CachedSessionList) value) : fallback.serialize(value);
+    }
+
+    private Object decodeValue(int type, byte[] payload) {
+        return switch (type) {
+            case TYPE_SESSION_LIST -> decode(payload);
+            case TYPE_FALLBACK -> fallback.deserialize(payload);
+            default -> null;
+        };
+    }
+
+    private byte[] encodeEntry(CacheEntry entry) {
+        int type = typeOf(entry.value());
+        byte[] value = encodeValue(type, entry.value());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length + 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeVarLong(out, entry.expiresAtMillis());
+            writeVarLong(out, entry.loadMillis());
+            out.writeByte(type);
+            out.write(value);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot encode cache entry", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private CacheEntry decodeEntry(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long expiresAtMillis = readVarLong(in);
+            long loadMillis = readVarLong(in);
+            Object value = decodeValue(in.readUnsignedByte(), in.readAllBytes());
+            return value != null ? new CacheEntry(value, expiresAtMillis, loadMillis) : null;
+        } catch (IOException e) {
+            throw new SerializationException("Cannot decode cache entry", e);
+        }
+    }
+
+    private static byte[] frame(int encoding, byte[] payload) {
+        byte[] framed = new byte[payload.length + 2];
+        framed[0] = FORMAT_VERSION;
+        framed[1] = (byte) encoding;
+        System.arraycopy(payload, 0, framed, 2, payload.length);
+        return framed;
+    }
+
+    private static byte[] encode(CachedSessionList list) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + list.content().size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            boolean hasTotals = list.totalElements() != null && list.totalPages() != null;
+            out.writeByte((hasTotals ? HAS_TOTALS : 0) | (list.hasNext() ? HAS_NEXT : 0));
+            writeVarLong(out, list.size());
+            writeVarLong(out, list.number());
+            if (hasTotals) {
+                writeVarLong(out, list.totalElements());
+                writeVarLong(out, list.totalPages());
+            }
+            writeVarLong(out, list.content().size());
+            for (SessionResponse s : list.content()) {
+                boolean ownSessionId = !s.id().equals(s.sessionId());
+                out.writeByte((s.favorite() ? FAVORITE : 0) | (ownSessionId ? OWN_SESSION_ID : 0)
+                        | (s.createdAt() != null ? HAS_CREATED : 0) | (s.updatedAt() != null ? HAS_UPDATED : 0));
+                writeUuid(out, s.id());
+                if (ownSessionId) {
+                    writeUuid(out, s.sessionId());
+                }
+                writeString(out, s.title());
+                if (s.createdAt() != null) {
+                    writeInstant(out, s.createdAt());
+                }
+                if (s.updatedAt() != null) {
+                    writeInstant(out, s.updatedAt());
+                }
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Cannot encode session list", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CachedSessionList decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int flags = in.readUnsignedByte();
+            int size = (int) readVarLong(in);
+            int number = (int) readVarLong(in);
+            Long totalElements = null;
+            Integer totalPages = null;
+            if ((flags & HAS_TOTALS) != 0) {
+                totalElements = readVarLong(in);
+                totalPages = (int) readVarLong(in);
+            }
+            int count = (int) readVarLong(in);
+            List<SessionResponse> content = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int f = in.readUnsignedByte();
+                UUID id = readUuid(in);
+                UUID sessionId = (f & OWN_SESSION_ID) != 0 ? readUuid(in) : id;
+                String title = readString(in);
+                Instant createdAt = (f & HAS_CREATED) != 0 ? readInstant(in) : null;
+                Instant updatedAt = (f & HAS_UPDATED) != 0 ? readInstant(in) : null;
+                content.add(new SessionResponse(id, sessionId, title, (f & FAVORITE) != 0, createdAt, updatedAt));
+            }
+            return new CachedSessionList(content, totalElements, totalPages, size, number, (flags & HAS_NEXT) != 0);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot decode session list", e);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    /** Length + 1 as a varint (0 for null), then UTF-8 bytes. */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length + 1L);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        writeVarLong(out, zigZag(instant.getEpochSecond()));
+        writeVarLong(out, instant.getNano());
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        long seconds = unZigZag(readVarLong(in));
+        return Instant.ofEpochSecond(seconds, readVarLong(in));
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Unsigned LEB128: 7 bits per byte, high bit set on all but the last byte. */
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("Truncated compressed cache value");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SerializationException("Corrupt compressed cache value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.dto.MessageResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Write-through cache of the most recent messages of each active session, so "latest N messages"
+ * reads skip the database. Each tail is a Redis sorted set scored by createdAt (microseconds) holding
+ * the newest {@code size + 1} messages as JSON; the extra one tells whether older messages exist.
+ * <p>
+ * Tails are only created by a read miss and only extended by appends after commit. A per-session
+ * version counter, bumped by every append and invalidation, makes a populate from a database read
+ * that raced with a write a no-op. Idle tails expire after {@code ttl} (refreshed on every read and
+ * append). Keys include the owner, so a foreign user id never hits another user's tail.
+ * <p>
+ * Redis calls go through the {@link RedisCircuitBreaker}: while Redis is unavailable reads are misses
+ * that do not populate, and a tail that missed an append is invalidated once Redis is back.
+ */
+@Component
+@ConditionalOnBean(StringRedisTemplate.class)
+public class MessageTailCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageTailCache.class);
+
+    private static final String KEY_PREFIX = "messageTail:";
+
+    /** Members start with {@code {"id":"<uuid>"} (see {@link #addMembers}): 7 + 36 + 1 characters. */
+    private static final int ID_PREFIX_LENGTH = 44;
+
+    /** Returns the version, then the cached members oldest first (none on a miss). */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_SCRIPT = new DefaultRedisScript<>("""
+            local members = redis.call('ZRANGE', KEYS[1], 0, -1)
+            if #members > 0 then
+                redis.call('EXPIRE', KEYS[1], ARGV[1])
+            end
+            table.insert(members, 1, redis.call('GET', KEYS[2]) or '0')
+            return members
+            """, List.class);
+    private static final RedisScript<Long> POPULATE_SCRIPT = new DefaultRedisScript<>("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+                return 0
+            end
+            redis.call('DEL', KEYS[1])
+            for i = 3, #ARGV, 2 do
+                redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+    /**
+     * Idempotent per message: a member with the same score and id (e.g. stored by a populate that read
+     * the committed row before this append ran, with JSONB-reordered context) is replaced, not kept.
+     */
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            for i = 3, #ARGV, 2 do
+                local idPrefix = string.sub(ARGV[i + 1], 1, %d)
+                for _, member in ipairs(redis.call('ZRANGEBYSCORE', KEYS[1], ARGV[i], ARGV[i])) do
+                    if string.sub(member, 1, %d) == idPrefix then
+                        redis.call('ZREM', KEYS[1], member)
+                    end
+                end
+                redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -tonumber(ARGV[1]) - 1)
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """.formatted(ID_PREFIX_LENGTH, ID_PREFIX_LENGTH), Long.class);
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    /**
+     * Result of {@link #read}: {@code messages} oldest first, or null on a miss; {@code version} is
+     * to be passed back to {@link #populate} after loading from the database.
+     */
+    public record Lookup(List<MessageResponse> messages, String version) {
+
+        public boolean hit() {
+            return messages != null;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker redisBreaker;
+    private final ObjectMapper objectMapper;
+    private final int size;
+    private final String ttlSeconds;
+    private final Counter hits;
+    private final Counter misses;
+
+    public MessageTailCache(StringRedisTemplate redisTemplate, RedisCircuitBreaker redisBreaker,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${app.cache.message-tail.size:50}") int size,
+                            @Value("${app.cache.message-tail.ttl:30m}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.redisBreaker = redisBreaker;
+        this.objectMapper = objectMapper;
+        this.size = size;
+        this.ttlSeconds = String.valueOf(ttl.toSeconds());
+        this.hits = readCounter(meterRegistry, "hit");
+        this.misses = readCounter(meterRegistry, "miss");
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("messages.tail.reads")
+                .description("Latest-messages reads served from the tail cache (hit) or the database (miss)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /** Largest page served from the cache; bigger pages go to the database. */
+    public int size() {
+        return size;
+    }
+
+    /** Number of newest messages to load on a miss and hand to {@link #populate}. */
+    public int loadSize() {
+        return size + 1;
+    }
+
+    /** Redis errors, and tails whose invalidation is queued, are treated as a miss that will not populate. */
+    public Lookup read(String userId, UUID sessionId) {
+        List<String> keys = keys(userId, sessionId);
+        List<?> result = redisBreaker.isPending(keys.get(0)) ? null
+                : redisBreaker.call(() -> redisTemplate.execute(READ_SCRIPT, keys, ttlSeconds), () -> null);
+        if (result == null) {
+            misses.increment();
+            return new Lookup(null, null);
+        }
+        if (result.size() <= 1) {
+            misses.increment();
+            return new Lookup(null, !result.isEmpty() ? (String) result.get(0) : null);
+        }
+        List<MessageResponse> messages = new ArrayList<>(result.size() - 1);
+        try {
+            for (Object member : result.subList(1, result.size())) {
+                messages.add(objectMapper.readValue((String) member, MessageResponse.class));
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable message tail for session {}, dropping it", sessionId, e);
+            invalidate(userId, sessionId);
+            misses.increment();
+            return new Lookup(null, null);
+        }
+        hits.increment();
+        return new Lookup(messages, (String) result.get(0));
+    }
+
+    /**
+     * Stores the newest messages (at most {@link #loadSize()}) read from the database after a miss,
+     * unless a write happened since {@link #read} returned {@code version}.
+     */
+    public void populate(String userId, UUID sessionId, String version, List<MessageResponse> messages) {
+        if (version == null || messages.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(2 + 2 * messages.size());
+        args.add(version);
+        args.add(ttlSeconds);
+        addMembers(args, messages);
+        if (!redisBreaker.run(() -> redisTemplate.execute(POPULATE_SCRIPT, keys(userId, sessionId), args.toArray()))) {
+            log.debug("Message tail populate skipped for session {}: Redis unavailable", sessionId);
+        }
+    }
+
+    /** Adds committed messages to the session's tail (if it is cached) once the current transaction commits. */
+    public void appendAfterCommit(String userId, UUID sessionId, List<MessageResponse> messages) {
+        afterCommit(() -> append(userId, sessionId, messages));
+    }
+
+    /** Drops the session's tail once the current transaction commits (session deleted, messages imported). */
+    public void invalidateAfterCommit(String userId, UUID sessionId) {
+        afterCommit(() -> invalidate(userId, sessionId));
+    }
+
+    private void append(String userId, UUID sessionId, List<MessageResponse> messages) {
+        List<String> args = new ArrayList<>(2 + 2 * messages.size());
+        args.add(String.valueOf(loadSize()));
+        args.add(ttlSeconds);
+        addMembers(args, messages);
+        if (!redisBreaker.run(() -> redisTemplate.execute(APPEND_SCRIPT, keys(userId, sessionId), args.toArray()))) {
+            // The tail would now miss these messages: drop it, once Redis is back if need be
+            log.warn("Message tail append failed for session {}, invalidating it", sessionId);
+            invalidate(userId, sessionId);
+        }
+    }
+
+    private void invalidate(String userId, UUID sessionId) {
+        List<String> keys = keys(userId, sessionId);
+        redisBreaker.runOrReplay(keys.get(0), () -> redisTemplate.execute(INVALIDATE_SCRIPT, keys, ttlSeconds));
+    }
+
+    /**
+     * Score is createdAt in microseconds (exact as a double until the year 2255). Messages sharing a
+     * timestamp are ordered by member, and since every member starts with {@code {"id":"<uuid>"} that
+     * is id order, the same (createdAt, id) order as the database.
+     */
+    private void addMembers(List<String> args, List<MessageResponse> messages) {
+        for (MessageResponse m : messages) {
+            args.add(String.valueOf(ChronoUnit.MICROS.between(Instant.EPOCH, m.createdAt())));
+            try {
+                args.add(objectMapper.writeValueAsString(m));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Message is not serializable", e);
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /** The hash tag keeps both keys of a session in one cluster slot, as the scripts require. */
+    private static List<String> keys(String userId, UUID sessionId) {
+        String tail = KEY_PREFIX + "{" + sessionId + "}:" + userId;
+        return List.of(tail, tail + ":ver");
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.ragchat.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for Redis calls on the request path. Calls that fail with a
+ * {@link DataAccessException} (including command timeouts) or take longer than {@code slow-call-threshold}
+ * count as failures; once at least {@code min-calls} of the last {@code window-size} calls were made
+ * and the failure share reaches {@code failure-rate-threshold}, the breaker opens and callers get
+ * their fallback without touching Redis. After {@code open-duration} one probe call is let through
+ * (half-open): its success closes the breaker, its failure opens it again.
+ * <p>
+ * Writes that must not be lost (cache invalidations) are queued with {@link #runOrReplay} while
+ * Redis is unavailable and replayed, once per key, by the next successful call.
+ */
+@Component
+@ConditionalOnBean(StringRedisTemplate.class)
+public class RedisCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Snapshot for the actuator endpoint. */
+    public record Status(State state, double failureRate, int calls, int pendingReplays) {
+    }
+
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int maxPendingReplays;
+    private final LongSupplier nanoClock;
+
+    // Outcomes of the last windowSize calls while closed (true = failure); guarded by this
+    private final boolean[] outcomes;
+    private int calls;
+    private int failures;
+    private int next;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAtNanos;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    // Guarded by itself
+    private final Map<String, Runnable> pendingReplays = new LinkedHashMap<>();
+    private volatile boolean hasPending;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final Counter rejected;
+    private final Counter failed;
+    private final Counter droppedReplays;
+
+    @Autowired
+    public RedisCircuitBreaker(MeterRegistry meterRegistry,
+                               @Value("${app.redis.breaker.window-size:20}") int windowSize,
+                               @Value("${app.redis.breaker.min-calls:10}") int minCalls,
+                               @Value("${app.redis.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                               @Value("${app.redis.breaker.slow-call-threshold:100ms}") Duration slowCallThreshold,
+                               @Value("${app.redis.breaker.open-duration:5s}") Duration openDuration,
+                               @Value("${app.redis.breaker.max-pending-replays:10000}") int maxPendingReplays) {
+        this(meterRegistry, windowSize, minCalls, failureRateThreshold, slowCallThreshold, openDuration,
+                maxPendingReplays, System::nanoTime);
+    }
+
+    RedisCircuitBreaker(MeterRegistry meterRegistry, int windowSize, int minCalls, double failureRateThreshold,
+                        Duration slowCallThreshold, Duration openDuration, int maxPendingReplays, LongSupplier nanoClock) {
+        this.windowSize = windowSize;
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.maxPendingReplays = maxPendingReplays;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[windowSize];
+        Gauge.builder("redis.breaker.state", this, b -> b.state.ordinal())
+                .description("Redis circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("redis.breaker.pending.replays", pendingReplays, map -> {
+                    synchronized (map) {
+                        return map.size();
+                    }
+                })
+                .description("Redis writes queued until the breaker closes")
+                .register(meterRegistry);
+        this.rejected = callCounter(meterRegistry, "rejected");
+        this.failed = callCounter(meterRegistry, "failed");
+        this.droppedReplays = Counter.builder("redis.breaker.replays.dropped")
+                .description("Queued Redis writes dropped because the replay queue was full")
+                .register(meterRegistry);
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("redis.breaker.calls")
+                .description("Redis calls answered by the fallback: breaker open (rejected) or call failed")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the Redis call if the breaker lets it through. Returns the fallback's value if it does not,
+     * or if the call fails with a {@link DataAccessException}. A slow call still returns its result.
+     */
+    public <T> T call(Supplier<T> redisCall, Supplier<T> fallback) {
+        if (!permitCall()) {
+            rejected.increment();
+            return fallback.get();
+        }
+        long start = nanoClock.getAsLong();
+        T result;
+        try {
+            result = redisCall.get();
+        } catch (DataAccessException e) {
+            record(true);
+            failed.increment();
+            log.debug("Redis call failed, using fallback: {}", e.getMessage());
+            return fallback.get();
+        } catch (RuntimeException e) {
+            // Not a Redis failure (e.g. serialization); release a half-open probe
+            record(false);
+            throw e;
+        }
+        record(nanoClock.getAsLong() - start > slowCallNanos);
+        return result;
+    }
+
+    /** Runs the Redis call if the breaker lets it through; true if it ran without a Redis failure. */
+    public boolean run(Runnable redisCall) {
+        return call(() -> {
+            redisCall.run();
+            return true;
+        }, () -> false);
+    }
+
+    /**
+     * Runs the Redis call, or queues it under the key to run once Redis answers again (replacing a
+     * call already queued under that key). The queue is bounded; when full, the oldest call is dropped.
+     *
+     * @return whether the call ran now
+     */
+    public boolean runOrReplay(String key, Runnable redisCall) {
+        if (run(redisCall)) {
+            return true;
+        }
+        synchronized (pendingReplays) {
+            pendingReplays.remove(key);
+            pendingReplays.put(key, redisCall);
+            hasPending = true;
+            if (pendingReplays.size() > maxPendingReplays) {
+                String oldest = pendingReplays.keySet().iterator().next();
+                pendingReplays.remove(oldest);
+                droppedReplays.increment();
+                log.warn("Redis replay queue full, dropped queued write {}", oldest);
+            }
+        }
+        return false;
+    }
+
+    /** Whether a write queued under the key is waiting for Redis. */
+    public boolean isPending(String key) {
+        if (!hasPending) {
+            return false;
+        }
+        synchronized (pendingReplays) {
+            return pendingReplays.containsKey(key);
+        }
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public Status status() {
+        int pending;
+        synchronized (pendingReplays) {
+            pending = pendingReplays.size();
+        }
+        synchronized (this) {
+            return new Status(state, calls == 0 ? 0 : (double) failures / calls, calls, pending);
+        }
+    }
+
+    private boolean permitCall() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            synchronized (this) {
+                if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+                    transition(State.HALF_OPEN);
+                }
+            }
+        }
+        return state == State.HALF_OPEN && probing.compareAndSet(false, true);
+    }
+
+    private void record(boolean failure) {
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                transition(failure ? State.OPEN : State.CLOSED);
+                probing.set(false);
+            } else if (state == State.CLOSED) {
+                if (calls == windowSize) {
+                    failures -= outcomes[next] ? 1 : 0;
+                } else {
+                    calls++;
+                }
+                outcomes[next] = failure;
+                failures += failure ? 1 : 0;
+                next = (next + 1) % windowSize;
+                if (calls >= minCalls && (double) failures / calls >= failureRateThreshold) {
+                    transition(State.OPEN);
+                }
+            }
+            // Calls that started before the breaker opened are ignored
+        }
+        // Writes queued after an isolated failure are replayed by the next successful call
+        if (!failure && hasPending && state == State.CLOSED) {
+            replay();
+        }
+    }
+
+    /** Called with this locked. */
+    private void transition(State to) {
+        if (to == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+            log.warn("Redis circuit breaker open ({} of the last {} calls failed or were slow); retrying in {} ms",
+                    failures, calls, TimeUnit.NANOSECONDS.toMillis(openNanos));
+        } else if (to == State.CLOSED) {
+            log.info("Redis circuit breaker closed");
+        }
+        calls = 0;
+        failures = 0;
+        next = 0;
+        state = to;
+    }
+
+    /** Runs the queued writes in order on a virtual thread; each stays queued until it succeeded. */
+    private void replay() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+        List<Map.Entry<String, Runnable>> replays;
+        synchronized (pendingReplays) {
+            replays = pendingReplays.entrySet().stream().map(e -> Map.entry(e.getKey(), e.getValue())).toList();
+        }
+        log.info("Replaying {} queued Redis writes", replays.size());
+        Thread.ofVirtual().name("redis-breaker-replay").start(() -> {
+            try {
+                for (Map.Entry<String, Runnable> replay : replays) {
+                    if (!run(replay.getValue())) {
+                        return;
+                    }
+                    synchronized (pendingReplays) {
+                        pendingReplays.remove(replay.getKey(), replay.getValue());
+                        hasPending = !pendingReplays.isEmpty();
+                    }
+                }
+            } finally {
+                replaying.set(false);
+            }
+        });
+    }
+}
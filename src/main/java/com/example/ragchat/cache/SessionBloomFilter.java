@@ -0,0 +1,292 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.entity.UuidV7Generator;
+import com.example.ragchat.repository.SessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Bloom filter of existing session ids, so lookups of ids that never existed (stale or random ids
+ * from scrapers) are rejected without SQL. Built from the database at startup and rebuilt every
+ * {@code rebuild-interval}; sessions are added as they are created or imported. Deleted sessions stay
+ * in the filter until the next rebuild and are caught by the ownership cache's negative entries.
+ * <p>
+ * A filter may lack sessions created on another node since it was built. Created ids are time-ordered
+ * (UUIDv7), so ids newer than the build are never rejected; imported ids, which may be of any
+ * version, are sent to the other nodes on {@link #ADD_CHANNEL}. Until the first build completes every
+ * id is let through.
+ * <p>
+ * A broadcast that fails records its time under {@link #MISSED_KEY} (replayed by the
+ * {@link RedisCircuitBreaker} if Redis is down). Before rejecting an id a node checks that key, at most
+ * every {@code FLAG_CHECK_INTERVAL}: if a broadcast was missed since its build started, the id is let
+ * through and a rebuild is started; if the key cannot be read, the id is let through. An id that exists
+ * is thus rejected for at most the check interval after a failed broadcast is flagged.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.session-bloom.enabled", havingValue = "true")
+public class SessionBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionBloomFilter.class);
+
+    /** Message body is a comma-separated list of session ids to add. */
+    public static final String ADD_CHANNEL = "sessionBloom:add";
+
+    /** Epoch millis of the latest failed {@link #ADD_CHANNEL} broadcast. */
+    static final String MISSED_KEY = "sessionBloom:missedAt";
+
+    private static final Duration FLAG_CHECK_INTERVAL = Duration.ofSeconds(5);
+
+    private static final int SCAN_BATCH = 10_000;
+
+    // Commit latency allowance: a session created this long before a build started may be missing from it
+    private static final long BUILD_MARGIN_MILLIS = Duration.ofMinutes(5).toMillis();
+
+    private static final class Bits {
+
+        final AtomicLongArray words;
+        final long size;
+        final int hashes;
+
+        Bits(long expected, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((Math.max(bits, 64) + 63) / 64));
+            this.size = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) size / expected * Math.log(2)));
+        }
+
+        void add(UUID id) {
+            long h1 = mix(id.getMostSignificantBits() ^ Long.rotateLeft(id.getLeastSignificantBits(), 32));
+            long h2 = mix(id.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                words.getAndUpdate(word, w -> w | mask);
+            }
+        }
+
+        boolean mightContain(UUID id) {
+            long h1 = mix(id.getMostSignificantBits() ^ Long.rotateLeft(id.getLeastSignificantBits(), 32));
+            long h2 = mix(id.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** SplitMix64 finalizer. */
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    private final SessionRepository sessionRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker redisBreaker;
+    private final long expectedSessions;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+
+    private volatile Bits current;
+    private volatile Bits building;
+    /** Ids created at or after this time (epoch millis) may be missing from {@link #current}. */
+    private volatile long builtFrom;
+    /** When the build of {@link #current} started (epoch millis). */
+    private volatile long buildStartedAt;
+    /** Whether {@link #MISSED_KEY} showed no missed broadcast since the build, and when that was read. */
+    private volatile boolean trusted;
+    private volatile long trustCheckedAt;
+    private final BlockingQueue<Boolean> rebuildRequests = new ArrayBlockingQueue<>(1);
+    private volatile Thread rebuilder;
+
+    public SessionBloomFilter(SessionRepository sessionRepository,
+                              @Autowired(required = false) StringRedisTemplate redisTemplate,
+                              @Autowired(required = false) RedisCircuitBreaker redisBreaker,
+                              @Value("${app.cache.session-bloom.expected-sessions:1000000}") long expectedSessions,
+                              @Value("${app.cache.session-bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                              @Value("${app.cache.session-bloom.rebuild-interval:6h}") Duration rebuildInterval) {
+        this.sessionRepository = sessionRepository;
+        this.redisTemplate = redisTemplate;
+        this.redisBreaker = redisBreaker;
+        this.expectedSessions = expectedSessions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    /** False only if the session certainly does not exist. */
+    public boolean mightContain(UUID sessionId) {
+        Bits bits = current;
+        if (bits == null || bits.mightContain(sessionId)) {
+            return true;
+        }
+        if (sessionId.version() == 7 && UuidV7Generator.timestampMillis(sessionId) >= builtFrom) {
+            return true;
+        }
+        return !trusted();
+    }
+
+    /**
+     * Whether no broadcast was missed since the current build started; re-read from Redis at most every
+     * {@link #FLAG_CHECK_INTERVAL}. A missed broadcast requests a rebuild; a flag that cannot be read only
+     * lets ids through, since a rebuild per check would rescan the table throughout a Redis outage.
+     */
+    private boolean trusted() {
+        if (redisTemplate == null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - trustCheckedAt < FLAG_CHECK_INTERVAL.toMillis()) {
+            return trusted;
+        }
+        Optional<String> missedAt = redisCall(() -> Optional.ofNullable(redisTemplate.opsForValue().get(MISSED_KEY)), null);
+        // Unreadable: this node may have missed the broadcasts as well
+        boolean missed = missedAt != null && missedAt.map(Long::parseLong).orElse(0L) >= buildStartedAt;
+        trusted = missedAt != null && !missed;
+        trustCheckedAt = now;
+        if (missed) {
+            rebuildRequests.offer(Boolean.TRUE);
+        }
+        return trusted;
+    }
+
+    /** Adds new sessions on this node, and on the others unless their ids are recent enough to be let through. */
+    public void add(Collection<UUID> sessionIds) {
+        addLocal(sessionIds);
+        if (redisTemplate == null) {
+            return;
+        }
+        long recent = System.currentTimeMillis() - BUILD_MARGIN_MILLIS;
+        String notRecent = sessionIds.stream()
+                .filter(id -> id.version() != 7 || UuidV7Generator.timestampMillis(id) < recent)
+                .map(UUID::toString)
+                .collect(Collectors.joining(","));
+        if (notRecent.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(ADD_CHANNEL, notRecent);
+        } catch (DataAccessException e) {
+            // Other nodes would reject these ids until their next rebuild: have them bypass and rebuild
+            log.warn("Session Bloom filter additions not broadcast, flagging the other nodes: {}", e.getMessage());
+            String missedAt = String.valueOf(System.currentTimeMillis());
+            Runnable flag = () -> redisTemplate.opsForValue().set(MISSED_KEY, missedAt, rebuildInterval.multipliedBy(2));
+            if (redisBreaker != null) {
+                redisBreaker.runOrReplay(MISSED_KEY, flag);
+            } else {
+                redisCall(() -> {
+                    flag.run();
+                    return null;
+                }, null);
+            }
+        }
+    }
+
+    private <T> T redisCall(Supplier<T> call, T fallback) {
+        if (redisBreaker != null) {
+            return redisBreaker.call(call, () -> fallback);
+        }
+        try {
+            return call.get();
+        } catch (DataAccessException e) {
+            return fallback;
+        }
+    }
+
+    /** Adds sessions to this node's filter only (also called for additions from other nodes). */
+    public void addLocal(Collection<UUID> sessionIds) {
+        Bits bits = current;
+        Bits next = building;
+        for (UUID id : sessionIds) {
+            if (bits != null) bits.add(id);
+            if (next != null) next.add(id);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuilder = Thread.ofVirtual().name("session-bloom-rebuild").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    rebuild();
+                    rebuildRequests.poll(rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    log.warn("Session Bloom filter rebuild failed, retrying in a minute: {}", e.getMessage());
+                    try {
+                        Thread.sleep(Duration.ofMinutes(1));
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilder != null) {
+            rebuilder.interrupt();
+        }
+    }
+
+    /** Scans all session ids into a new filter and swaps it in. */
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        long from = startedAt - BUILD_MARGIN_MILLIS;
+        Bits next = new Bits(expectedSessions, falsePositiveRate);
+        building = next;
+        long count = 0;
+        try {
+            UUID after = new UUID(0, 0);
+            List<UUID> batch;
+            do {
+                batch = sessionRepository.findIdsAfter(after, PageRequest.of(0, SCAN_BATCH));
+                batch.forEach(next::add);
+                count += batch.size();
+                if (!batch.isEmpty()) {
+                    after = batch.get(batch.size() - 1);
+                }
+            } while (batch.size() == SCAN_BATCH);
+            // Until builtFrom moves up, readers of the new bits use the older (more permissive) bound
+            current = next;
+            builtFrom = from;
+            buildStartedAt = startedAt;
+            trustCheckedAt = 0;
+        } finally {
+            building = null;
+        }
+        if (count > expectedSessions) {
+            log.warn("Session Bloom filter holds {} sessions, more than the expected {}: false positives rise",
+                    count, expectedSessions);
+        }
+        log.info("Session Bloom filter built with {} sessions", count);
+    }
+}
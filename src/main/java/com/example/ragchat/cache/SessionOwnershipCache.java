@@ -0,0 +1,228 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.repository.SessionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Session id to owner, so ownership checks can skip SQL. Sessions never change owner, so an owner
+ * entry stays valid until the session is deleted; {@link #invalidateAfterCommit} drops it on every
+ * node through a pub/sub message on {@link #INVALIDATION_CHANNEL}. Negative answers are cached too,
+ * with a shorter TTL: a session that does not exist, or one a statement has just found not owned by a
+ * user, so probing unknown ids costs one query per TTL.
+ * <p>
+ * In-process (Caffeine), optionally backed by Redis for owners only: a node's miss is then answered
+ * by another node's earlier load (skipped while the {@link RedisCircuitBreaker} is open). With the
+ * optional {@link SessionBloomFilter}, ids that never existed are rejected without a negative entry
+ * or a query.
+ */
+@Component
+public class SessionOwnershipCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionOwnershipCache.class);
+
+    /** Message body is the id of the deleted session. */
+    public static final String INVALIDATION_CHANNEL = "sessionOwner:invalidate";
+
+    public static final String CACHE_NAME = "sessionOwnership";
+
+    private static final String KEY_PREFIX = "sessionOwner:";
+
+    /**
+     * {@code owner}: userId owns the session. Otherwise a negative entry: the session does not exist
+     * (userId null), or it is not owned by userId (owner unknown).
+     */
+    private record Entry(String userId, boolean owner) {
+
+        static final Entry ABSENT = new Entry(null, false);
+
+        boolean grants(String user) {
+            return owner && userId.equals(user);
+        }
+
+        boolean denies(String user) {
+            return owner ? !userId.equals(user) : userId == null || userId.equals(user);
+        }
+    }
+
+    private final SessionRepository sessionRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker redisBreaker;
+    private final Duration positiveTtl;
+    private final Cache<UUID, Entry> owners;
+    private final SessionBloomFilter bloomFilter;
+    private final Counter negativeHits;
+    private final Counter bloomRejections;
+
+    public SessionOwnershipCache(SessionRepository sessionRepository,
+                                 @Autowired(required = false) StringRedisTemplate redisTemplate,
+                                 @Autowired(required = false) RedisCircuitBreaker redisBreaker,
+                                 @Autowired(required = false) SessionBloomFilter bloomFilter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.cache.ownership.max-size:100000}") long maxSize,
+                                 @Value("${app.cache.ownership.ttl:10m}") Duration positiveTtl,
+                                 @Value("${app.cache.ownership.negative-ttl:30s}") Duration negativeTtl,
+                                 @Value("${app.cache.ownership.redis:true}") boolean redisBacked) {
+        this.sessionRepository = sessionRepository;
+        this.redisTemplate = redisBacked ? redisTemplate : null;
+        this.redisBreaker = redisBreaker;
+        this.positiveTtl = positiveTtl;
+        this.owners = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.writing((UUID id, Entry entry) -> entry.owner() ? positiveTtl : negativeTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, owners, CACHE_NAME);
+        this.bloomFilter = bloomFilter;
+        this.negativeHits = rejectionCounter(meterRegistry, "negative-cache");
+        this.bloomRejections = rejectionCounter(meterRegistry, "bloom-filter");
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("sessions.lookups.rejected")
+                .description("Session lookups answered as not found without SQL")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /** Whether the user owns the session; one lookup (Redis, then SQL) on a miss. */
+    public boolean isOwner(UUID sessionId, String userId) {
+        if (rejectedByBloomFilter(sessionId)) {
+            return false;
+        }
+        Entry entry = owners.get(sessionId, this::load);
+        if (!entry.grants(userId) && !entry.denies(userId)) {
+            // Only known not to be someone else's
+            entry = load(sessionId);
+            owners.put(sessionId, entry);
+        }
+        return entry.grants(userId);
+    }
+
+    /** True only if the cache already knows the session is missing or someone else's; never loads. */
+    public boolean isKnownNotOwner(UUID sessionId, String userId) {
+        Entry entry = owners.getIfPresent(sessionId);
+        if (entry != null && entry.denies(userId)) {
+            negativeHits.increment();
+            return true;
+        }
+        return entry == null && rejectedByBloomFilter(sessionId);
+    }
+
+    private boolean rejectedByBloomFilter(UUID sessionId) {
+        if (bloomFilter == null || bloomFilter.mightContain(sessionId)) {
+            return false;
+        }
+        bloomRejections.increment();
+        return true;
+    }
+
+    /** Records an ownership that a statement has just proven (e.g. rows returned for this user). */
+    public void recordOwner(UUID sessionId, String userId) {
+        owners.put(sessionId, new Entry(userId, true));
+    }
+
+    /**
+     * Records that an ownership-checked statement found the session missing or foreign for the user;
+     * replaces a stale owner entry for that user.
+     */
+    public void recordNotOwner(UUID sessionId, String userId) {
+        owners.asMap().compute(sessionId, (id, entry) ->
+                entry != null && entry.denies(userId) ? entry : new Entry(userId, false));
+    }
+
+    /**
+     * Registers newly created or imported sessions: drops negative entries this node may hold for
+     * their ids and adds them to the Bloom filter.
+     */
+    public void recordCreated(Collection<UUID> sessionIds) {
+        owners.invalidateAll(sessionIds);
+        if (bloomFilter != null) {
+            bloomFilter.add(sessionIds);
+        }
+    }
+
+    /** Drops the session from every node's cache and from Redis once the current transaction commits. */
+    public void invalidateAfterCommit(UUID sessionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(sessionId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(sessionId);
+            }
+        });
+    }
+
+    /** Drops this node's entry (also called for invalidations from other nodes). */
+    public void evictLocal(UUID sessionId) {
+        owners.invalidate(sessionId);
+    }
+
+    private void invalidate(UUID sessionId) {
+        evictLocal(sessionId);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(KEY_PREFIX + sessionId);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, sessionId.toString());
+        } catch (DataAccessException e) {
+            // Other nodes keep the entry until its TTL; statements still check ownership themselves
+            log.warn("Ownership invalidation for session {} not broadcast: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private Entry load(UUID sessionId) {
+        if (redisTemplate != null) {
+            String owner = redis(() -> redisTemplate.opsForValue().get(KEY_PREFIX + sessionId));
+            if (owner != null) {
+                return new Entry(owner, true);
+            }
+        }
+        String owner = sessionRepository.findUserIdById(sessionId).orElse(null);
+        if (owner == null) {
+            return Entry.ABSENT;
+        }
+        if (redisTemplate != null) {
+            redis(() -> {
+                redisTemplate.opsForValue().set(KEY_PREFIX + sessionId, owner, positiveTtl);
+                return null;
+            });
+        }
+        return new Entry(owner, true);
+    }
+
+    /** Redis is only a shortcut here: failures (or an open breaker) read as null. */
+    private <T> T redis(Supplier<T> call) {
+        if (redisBreaker != null) {
+            return redisBreaker.call(call, () -> null);
+        }
+        try {
+            return call.get();
+        } catch (DataAccessException e) {
+            log.debug("Ownership cache call to Redis failed: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.ragchat.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Records the size of every cache value written to and read from Redis ({@code cache.value.size}),
+ * to size the L2 and tune the codec's compression threshold.
+ */
+public class SizeRecordingSerializer implements RedisSerializer<Object> {
+
+    private final RedisSerializer<Object> delegate;
+    private final DistributionSummary writes;
+    private final DistributionSummary reads;
+
+    public SizeRecordingSerializer(RedisSerializer<Object> delegate, String cacheName, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.writes = sizeSummary(meterRegistry, cacheName, "write");
+        this.reads = sizeSummary(meterRegistry, cacheName, "read");
+    }
+
+    private static DistributionSummary sizeSummary(MeterRegistry meterRegistry, String cacheName, String operation) {
+        return DistributionSummary.builder("cache.value.size")
+                .description("Serialized size of cache values in Redis")
+                .baseUnit("bytes")
+                .tags("cache", cacheName, "operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes != null) {
+            writes.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes != null) {
+            reads.record(bytes.length);
+        }
+        return delegate.deserialize(bytes);
+    }
+}
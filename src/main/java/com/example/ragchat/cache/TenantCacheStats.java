@@ -0,0 +1,83 @@
+package com.example.ragchat.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Session-list cache hits and misses of the busiest users (tenants), as the gauge
+ * {@code cache.tenant.gets} tagged with the user id. Counts are kept for up to {@code tracked-users}
+ * users in memory; only the {@code top-tenants} with the most lookups are published, refreshed at
+ * most every {@code publish-interval} from the request path, which keeps the tag cardinality bounded.
+ */
+@Component
+public class TenantCacheStats {
+
+    private static final class Counts {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+
+        long total() {
+            return hits.sum() + misses.sum();
+        }
+    }
+
+    private final int topTenants;
+    private final long publishIntervalMillis;
+    private final Cache<String, Counts> counts;
+    private final MultiGauge gauge;
+    private final AtomicLong lastPublished = new AtomicLong();
+
+    public TenantCacheStats(MeterRegistry meterRegistry,
+                            @Value("${app.cache.metrics.top-tenants:10}") int topTenants,
+                            @Value("${app.cache.metrics.tracked-users:10000}") long trackedUsers,
+                            @Value("${app.cache.metrics.publish-interval:30s}") Duration publishInterval) {
+        this.topTenants = topTenants;
+        this.publishIntervalMillis = publishInterval.toMillis();
+        this.counts = Caffeine.newBuilder().maximumSize(trackedUsers).build();
+        this.gauge = MultiGauge.builder("cache.tenant.gets")
+                .description("Session-list cache lookups of the busiest users since startup")
+                .tag("cache", "sessionList")
+                .register(meterRegistry);
+    }
+
+    public void record(String userId, boolean hit) {
+        if (topTenants <= 0) {
+            return;
+        }
+        Counts c = counts.get(userId, id -> new Counts());
+        (hit ? c.hits : c.misses).increment();
+        long now = System.currentTimeMillis();
+        long last = lastPublished.get();
+        if (now - last >= publishIntervalMillis && lastPublished.compareAndSet(last, now)) {
+            publish();
+        }
+    }
+
+    /** Replaces the published rows with the current top tenants. */
+    void publish() {
+        List<Map.Entry<String, Counts>> top = counts.asMap().entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Counts> e) -> e.getValue().total()).reversed())
+                .limit(topTenants)
+                .toList();
+        List<MultiGauge.Row<?>> rows = new ArrayList<>(top.size() * 2);
+        for (Map.Entry<String, Counts> e : top) {
+            Counts c = e.getValue();
+            rows.add(MultiGauge.Row.of(Tags.of("tenant", e.getKey(), "result", "hit"), c, x -> x.hits.sum()));
+            rows.add(MultiGauge.Row.of(Tags.of("tenant", e.getKey(), "result", "miss"), c, x -> x.misses.sum()));
+        }
+        gauge.register(rows, true);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.ragchat.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-process L1 (Caffeine) in front of a shared L2 (Redis). Reads try L1, then L2 and fill
+ * L1 on an L2 hit; writes and evictions go to both. Other nodes' L1 entries are not evicted: callers
+ * put a version in their keys (see {@code SessionListCacheEvictor}), so superseded entries are never
+ * read again and leave L1 by TTL or size.
+ * <p>
+ * {@link #get(Object, Callable)} runs at most one loader per key on this node; concurrent callers wait
+ * for its result. Values it stores are wrapped in a {@link CacheEntry} with their expiry and load time,
+ * and a read may refresh one early with a probability that rises towards expiry (XFetch), so a hot key
+ * is reloaded by one caller before it expires instead of by every caller once it has.
+ * <p>
+ * With a {@link RedisCircuitBreaker}, L2 calls go through it: while Redis is unavailable L2 reads
+ * are misses and L2 writes are skipped, so requests are served from L1 or the loader.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, Object> l1;
+    private final org.springframework.cache.Cache l2;
+    private final long ttlMillis;
+    private final double earlyRefreshBeta;
+    private final RedisCircuitBreaker l2Breaker;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter loads;
+    private final Counter coalesced;
+    private final Counter earlyRefreshes;
+    private final Timer loadTimer;
+
+    /**
+     * @param ttl              L2 entry TTL, the expiry early refresh works towards
+     * @param earlyRefreshBeta XFetch beta: above 1 refreshes earlier, 0 disables early refresh
+     * @param l2Breaker        guards L2 calls; null for none
+     */
+    public TwoLevelCache(String name, Cache<Object, Object> l1, org.springframework.cache.Cache l2,
+                         Duration ttl, double earlyRefreshBeta, RedisCircuitBreaker l2Breaker, MeterRegistry meterRegistry) {
+        super(false);
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.ttlMillis = ttl.toMillis();
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.l2Breaker = l2Breaker;
+        this.l1Hits = tierCounter(meterRegistry, "l1", "hit");
+        this.l1Misses = tierCounter(meterRegistry, "l1", "miss");
+        this.l2Hits = tierCounter(meterRegistry, "l2", "hit");
+        this.l2Misses = tierCounter(meterRegistry, "l2", "miss");
+        this.loads = loadCounter(meterRegistry, "load");
+        this.coalesced = loadCounter(meterRegistry, "coalesced");
+        this.earlyRefreshes = loadCounter(meterRegistry, "early-refresh");
+        this.loadTimer = Timer.builder("cache.load.duration")
+                .description("Time to compute a value on a miss or early refresh")
+                .tag("cache", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter tierCounter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("cache.tier.gets")
+                .description("Two-level cache lookups per tier; L2 is only consulted on an L1 miss")
+                .tags("cache", name, "tier", tier, "result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter loadCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("cache.loads")
+                .description("Loader runs, callers that waited for another caller's load, and early refreshes")
+                .tags("cache", name, "outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return unwrap(lookupStored(key));
+    }
+
+    private Object lookupStored(Object key) {
+        Object value = l1.getIfPresent(key);
+        if (value != null) {
+            l1Hits.increment();
+            return value;
+        }
+        l1Misses.increment();
+        ValueWrapper wrapper = l2Breaker != null ? l2Breaker.call(() -> l2.get(key), () -> null) : l2.get(key);
+        if (wrapper == null || wrapper.get() == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        l1.put(key, wrapper.get());
+        return wrapper.get();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object stored = lookupStored(key);
+        if (stored != null) {
+            // While another caller refreshes, keep serving the current value
+            if (!(stored instanceof CacheEntry entry) || !refreshEarly(entry) || inFlight.containsKey(key)) {
+                return (T) unwrap(stored);
+            }
+            earlyRefreshes.increment();
+        }
+        return load(key, valueLoader, stored == null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(Object key, Callable<T> valueLoader, boolean miss) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+        try {
+            // Another caller's load may have finished between our lookup and taking the key
+            Object stored = miss ? lookupStored(key) : null;
+            if (stored != null) {
+                Object value = unwrap(stored);
+                mine.complete(value);
+                return (T) value;
+            }
+            loads.increment();
+            long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            T loaded = valueLoader.call();
+            loadTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            long now = System.currentTimeMillis();
+            if (loaded != null) {
+                CacheEntry entry = new CacheEntry(loaded, now + ttlMillis, now - start);
+                l2(() -> l2.put(key, entry));
+                l1.put(key, entry);
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** XFetch: refresh once {@code now - loadTime * beta * ln(random)} reaches the expiry. */
+    private boolean refreshEarly(CacheEntry entry) {
+        if (earlyRefreshBeta <= 0 || entry.loadMillis() <= 0) {
+            return false;
+        }
+        double gap = -entry.loadMillis() * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= entry.expiresAtMillis();
+    }
+
+    private static Object unwrap(Object stored) {
+        return stored instanceof CacheEntry entry ? entry.value() : stored;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        l2(() -> l2.put(key, value));
+        l1.put(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        l2(() -> l2.evict(key));
+        l1.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        l2(l2::clear);
+        l1.invalidateAll();
+    }
+
+    private void l2(Runnable call) {
+        if (l2Breaker != null) {
+            l2Breaker.run(call);
+        } else {
+            call.run();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ragchat.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decorates every cache of the L2 manager (Redis) with a size-bounded Caffeine L1.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final CacheManager l2Manager;
+    private final long l1MaxSize;
+    private final Duration l1Ttl;
+    private final Duration l2Ttl;
+    private final double earlyRefreshBeta;
+    private final RedisCircuitBreaker l2Breaker;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param l2Ttl            entry TTL of the L2 caches, which early refresh works towards
+     * @param earlyRefreshBeta see {@link TwoLevelCache}; 0 disables early refresh
+     * @param l2Breaker        guards L2 calls; null for none
+     */
+    public TwoLevelCacheManager(CacheManager l2Manager, long l1MaxSize, Duration l1Ttl, Duration l2Ttl,
+                                double earlyRefreshBeta, RedisCircuitBreaker l2Breaker, MeterRegistry meterRegistry) {
+        this.l2Manager = l2Manager;
+        this.l1MaxSize = l1MaxSize;
+        this.l1Ttl = l1Ttl;
+        this.l2Ttl = l2Ttl;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.l2Breaker = l2Breaker;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache l2 = l2Manager.getCache(name);
+        if (l2 == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> {
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> l1 = Caffeine.newBuilder()
+                    .maximumSize(l1MaxSize)
+                    .expireAfterWrite(l1Ttl)
+                    .recordStats()
+                    .build();
+            // Size and evictions of the L1, to size it; hit ratios per tier come from TwoLevelCache
+            CaffeineCacheMetrics.monitor(meterRegistry, l1, n + ".l1");
+            return new TwoLevelCache(n, l1, l2, l2Ttl, earlyRefreshBeta, l2Breaker, meterRegistry);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return l2Manager.getCacheNames();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.ragchat.config;
+
+import com.example.ragchat.service.CacheWarmUpService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/cachewarmup}: warms the caches of recently active users, e.g. after a Redis
+ * flush or a burst of invalidations. Responds when the warm-up is done.
+ */
+@Component
+@Endpoint(id = "cachewarmup")
+@ConditionalOnBean(StringRedisTemplate.class)
+public class CacheWarmUpEndpoint {
+
+    private final CacheWarmUpService warmUpService;
+
+    public CacheWarmUpEndpoint(CacheWarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
+    @WriteOperation
+    public Map<String, Object> warmUp() {
+        return warmUpService.warmUp()
+                .<Map<String, Object>>map(r -> Map.of("status", "done", "users", r.users(), "failed", r.failed(),
+                        "elapsedMillis", r.elapsedMillis()))
+                .orElseGet(() -> Map.of("status", "skipped"));
+    }
+}
@@ -1,54 +1,68 @@
 package com.example.ragchat.config;
 
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import com.example.ragchat.ratelimit.LocalRateLimiter;
+import com.example.ragchat.ratelimit.RateLimiter;
+import com.example.ragchat.ratelimit.RouteCosts;
+import com.example.ragchat.security.ApiKeyAuthenticationToken;
+import com.example.ragchat.security.ApiKeyPrincipal;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.core.annotation.Order;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
- * Redis-based rate limiting. Key by X-User-Id if present, otherwise client IP.
- * Fixed window: max N requests per window (e.g. 100 per 60 seconds).
+ * Redis-based rate limiting. Key by X-User-Id if present, otherwise client IP; requests made with a
+ * tenant API key are keyed within the tenant and limited by the key's own rate limit, if it has one.
+ * The admission decision is made by the configured {@link RateLimiter} ({@code app.rate-limit.mode}),
+ * for the request's cost ({@link RouteCosts}); exports are additionally charged by response size once
+ * streamed. Responses carry {@code RateLimit-Limit} and {@code RateLimit-Remaining}, and 429s carry
+ * {@code Retry-After} (seconds). While the {@link RedisCircuitBreaker} is open, or when the limiter's
+ * Redis call fails, the limit is enforced per node by a {@link LocalRateLimiter}.
  */
 @Component
 @Order(2) // After RequestIdFilter (1)
 @ConditionalOnBean(StringRedisTemplate.class)
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    private static final String RATE_LIMIT_KEY_PREFIX = "ratelimit:";
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+
     private static final String RATE_LIMIT_RESPONSE_BODY = "{\"timestamp\":\"\",\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded\",\"path\":\"\"}";
 
-    private final StringRedisTemplate redisTemplate;
-    private final int maxRequests;
-    private final int windowSeconds;
-
-    // Lua: INCR key, set TTL only on first request in window, return current count
-    private static final String LUA_SCRIPT = """
-            local current = redis.call('INCR', KEYS[1])
-            if current == 1 then
-                redis.call('EXPIRE', KEYS[1], ARGV[1])
-            end
-            return current
-            """;
-
-    public RateLimitFilter(
-            StringRedisTemplate redisTemplate,
-            @Value("${app.rate-limit.max-requests:100}") int maxRequests,
-            @Value("${app.rate-limit.window-seconds:60}") int windowSeconds) {
-        this.redisTemplate = redisTemplate;
-        this.maxRequests = maxRequests;
-        this.windowSeconds = windowSeconds;
+    private final RateLimiter rateLimiter;
+    private final RouteCosts routeCosts;
+    private final RedisCircuitBreaker redisBreaker;
+    private final RateLimiter localFallback;
+
+    public RateLimitFilter(RateLimiter rateLimiter, RouteCosts routeCosts, RedisCircuitBreaker redisBreaker,
+                           @Value("${app.rate-limit.max-requests:100}") int maxRequests,
+                           @Value("${app.rate-limit.window-seconds:60}") int windowSeconds,
+                           @Value("${app.rate-limit.local-fallback.max-clients:100000}") long maxClients) {
+        this.rateLimiter = rateLimiter;
+        this.routeCosts = routeCosts;
+        this.redisBreaker = redisBreaker;
+        this.localFallback = new LocalRateLimiter(maxRequests, windowSeconds, maxClients);
     }
 
     @Override
@@ -60,24 +74,76 @@ public class RateLimitFilter extends OncePerRequestFilter {
             return;
         }
 
-        String clientKey = resolveClientKey(request);
-        String key = RATE_LIMIT_KEY_PREFIX + clientKey;
-
-        Long count = redisTemplate.execute(
-                new DefaultRedisScript<>(LUA_SCRIPT, Long.class),
-                List.of(key),
-                String.valueOf(windowSeconds)
-        );
+        ApiKeyPrincipal tenant = tenantKey();
+        String clientKey = tenant != null ? "tenant:" + tenant.tenantId() + ":" + resolveClientKey(request)
+                : resolveClientKey(request);
+        int limit = tenant != null && tenant.rateLimit() != null ? tenant.rateLimit() : rateLimiter.limit();
+        int cost = routeCosts.cost(request);
+        RateLimiter.Decision decision = redisBreaker.call(() -> rateLimiter.tryAcquire(clientKey, cost, limit),
+                () -> localFallback.tryAcquire(clientKey, cost, limit));
+        if (decision.remaining() >= 0) {
+            response.setHeader(LIMIT_HEADER, String.valueOf(decision.limit()));
+            response.setHeader(REMAINING_HEADER, String.valueOf(decision.remaining()));
+        }
 
-        if (count != null && count > maxRequests) {
+        if (!decision.allowed()) {
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (decision.retryAfterMillis() + 999) / 1000)));
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
             response.getWriter().write(RATE_LIMIT_RESPONSE_BODY.replace("\"path\":\"\"", "\"path\":\"" + request.getRequestURI() + "\""));
             return;
         }
 
-        filterChain.doFilter(request, response);
+        if (!routeCosts.metered(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ByteCountingResponse counting = new ByteCountingResponse(response);
+        filterChain.doFilter(request, counting);
+        if (!request.isAsyncStarted()) {
+            chargeBody(clientKey, limit, counting.bytes);
+            return;
+        }
+        // Streamed bodies are written after this filter returns
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                chargeBody(clientKey, limit, counting.bytes);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    private void chargeBody(String clientKey, int limit, long bytes) {
+        int cost = routeCosts.bodyCost(bytes);
+        if (cost == 0) {
+            return;
+        }
+        try {
+            if (!redisBreaker.run(() -> rateLimiter.charge(clientKey, cost, limit))) {
+                localFallback.charge(clientKey, cost, limit);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Rate limit charge of {} for {} failed: {}", cost, clientKey, e.getMessage());
+        }
+    }
+
+    /** The tenant key the request authenticated with (the security filter chain runs first), or null. */
+    private static ApiKeyPrincipal tenantKey() {
+        return SecurityContextHolder.getContext().getAuthentication() instanceof ApiKeyAuthenticationToken token
+                && token.getPrincipal().tenantId() != null ? token.getPrincipal() : null;
     }
 
     private static String resolveClientKey(HttpServletRequest request) {
@@ -92,4 +158,56 @@ public class RateLimitFilter extends OncePerRequestFilter {
         String remote = request.getRemoteAddr();
         return "ip:" + (remote != null ? remote : "unknown");
     }
+
+    /** Counts the bytes written to the response body. */
+    private static final class ByteCountingResponse extends HttpServletResponseWrapper {
+
+        private volatile long bytes;
+        private ServletOutputStream outputStream;
+
+        ByteCountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public synchronized ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
 }
@@ -1,5 +1,15 @@
 package com.example.ragchat.config;
 
+import com.example.ragchat.cache.CompactCacheValueSerializer;
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import com.example.ragchat.cache.SessionBloomFilter;
+import com.example.ragchat.cache.SessionOwnershipCache;
+import com.example.ragchat.cache.SizeRecordingSerializer;
+import com.example.ragchat.cache.TwoLevelCacheManager;
+import com.example.ragchat.security.ApiKeyRegistry;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
@@ -7,15 +17,21 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.UUID;
 
 @Configuration
 @EnableCaching
@@ -26,19 +42,69 @@ public class RedisCacheConfig {
 
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
-                                    @Value("${app.cache.session-list-ttl-minutes:10}") int sessionListTtlMinutes) {
+                                    @Value("${app.cache.session-list-ttl-minutes:10}") int sessionListTtlMinutes,
+                                    @Value("${app.cache.l1.max-size:10000}") long l1MaxSize,
+                                    @Value("${app.cache.l1.ttl:30s}") Duration l1Ttl,
+                                    @Value("${app.cache.codec:compact}") String codec,
+                                    @Value("${app.cache.compress-threshold:512}") int compressThreshold,
+                                    @Value("${app.cache.early-refresh-beta:1.0}") double earlyRefreshBeta,
+                                    RedisCircuitBreaker redisBreaker,
+                                    MeterRegistry meterRegistry) {
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(StringRedisSerializer.UTF_8))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer()))
                 .entryTtl(Duration.ofMinutes(sessionListTtlMinutes))
                 .disableCachingNullValues();
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        json.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        if ("json".equals(codec)) {
+            defaultConfig = defaultConfig.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                    new SizeRecordingSerializer(json, SESSION_LIST_CACHE, meterRegistry)));
+        } else {
+            // Own key namespace: nodes on the other codec (e.g. during a rolling deploy) never read these entries
+            defaultConfig = defaultConfig
+                    .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                            new SizeRecordingSerializer(new CompactCacheValueSerializer(json, compressThreshold),
+                                    SESSION_LIST_CACHE, meterRegistry)))
+                    .computePrefixWith(cacheName -> cacheName + ":compact::");
+        }
 
         Map<String, RedisCacheConfiguration> cacheConfigs = new HashMap<>();
         cacheConfigs.put(SESSION_LIST_CACHE, defaultConfig);
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigs)
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        return new TwoLevelCacheManager(redisCacheManager, l1MaxSize, l1Ttl, Duration.ofMinutes(sessionListTtlMinutes),
+                earlyRefreshBeta, redisBreaker, meterRegistry);
+    }
+
+    /**
+     * Applies other nodes' session-list evictions, session deletions, imported sessions and API key
+     * revocations to this node's in-process state.
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                           SessionListCacheEvictor cacheEvictor,
+                                                                           SessionOwnershipCache ownershipCache,
+                                                                           ObjectProvider<SessionBloomFilter> bloomFilter,
+                                                                           ApiKeyRegistry apiKeyRegistry) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheEvictor.evictLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(SessionListCacheEvictor.INVALIDATION_CHANNEL));
+        container.addMessageListener(
+                (message, pattern) -> ownershipCache.evictLocal(UUID.fromString(new String(message.getBody(), StandardCharsets.UTF_8))),
+                new ChannelTopic(SessionOwnershipCache.INVALIDATION_CHANNEL));
+        bloomFilter.ifAvailable(filter -> container.addMessageListener(
+                (message, pattern) -> filter.addLocal(Arrays.stream(new String(message.getBody(), StandardCharsets.UTF_8).split(","))
+                        .map(UUID::fromString).toList()),
+                new ChannelTopic(SessionBloomFilter.ADD_CHANNEL)));
+        container.addMessageListener(
+                (message, pattern) -> apiKeyRegistry.removeLocal(HexFormat.of().parseHex(new String(message.getBody(), StandardCharsets.UTF_8))),
+                new ChannelTopic(ApiKeyRegistry.REVOCATION_CHANNEL));
+        return container;
     }
 }
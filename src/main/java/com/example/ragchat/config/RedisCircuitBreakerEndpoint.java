@@ -0,0 +1,29 @@
+package com.example.ragchat.config;
+
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/redisbreaker}: state of the Redis circuit breaker (CLOSED, OPEN or HALF_OPEN),
+ * failure share of the recent calls and the number of writes queued until Redis is back.
+ */
+@Component
+@Endpoint(id = "redisbreaker")
+@ConditionalOnBean(StringRedisTemplate.class)
+public class RedisCircuitBreakerEndpoint {
+
+    private final RedisCircuitBreaker redisBreaker;
+
+    public RedisCircuitBreakerEndpoint(RedisCircuitBreaker redisBreaker) {
+        this.redisBreaker = redisBreaker;
+    }
+
+    @ReadOperation
+    public RedisCircuitBreaker.Status status() {
+        return redisBreaker.status();
+    }
+}
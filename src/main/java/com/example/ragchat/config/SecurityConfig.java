@@ -12,11 +12,13 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
 
 /**
- * Security config: API key auth on /api/v1/**, CORS, actuator health public.
+ * Security config: API key auth on /api/v1/**, CORS, actuator health public. Key management
+ * (/api/v1/admin/**) and the other actuator endpoints need the static API key, not a tenant key.
  */
 @Configuration
 @EnableWebSecurity
@@ -39,10 +41,19 @@ public class SecurityConfig {
                     res.setContentType("application/json");
                     res.setCharacterEncoding("UTF-8");
                     res.getWriter().write("{\"status\":401,\"error\":\"Unauthorized\",\"message\":\"Missing or invalid API key\"}");
+                }).accessDeniedHandler((req, res, ex) -> {
+                    res.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                    res.setContentType("application/json");
+                    res.setCharacterEncoding("UTF-8");
+                    res.getWriter().write("{\"status\":403,\"error\":\"Forbidden\",\"message\":\"API key not allowed for this endpoint\"}");
                 }))
                 .cors(cors -> cors.configurationSource(corsConfigurationSource))
                 .authorizeHttpRequests(auth -> auth
+                        // Completion dispatch of streamed responses (NDJSON export); the original request was authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/v1/**").authenticated()
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                         .anyRequest().denyAll()
@@ -1,33 +1,157 @@
 package com.example.ragchat.config;
 
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Set;
+import java.time.Duration;
+import java.util.List;
 
 /**
- * Evicts session list cache entries for a user (on create/update/delete session).
+ * Invalidates a user's session list cache entries (on create/update/delete session) by bumping a
+ * per-user generation counter that is part of every cache key: one {@code INCR} instead of a
+ * keyspace scan. Entries of older generations, in Redis and in every node's L1, are never read again
+ * and expire by TTL. Generations are cached per node and dropped through a pub/sub message on
+ * {@link #INVALIDATION_CHANNEL}.
+ * <p>
+ * Redis calls go through the {@link RedisCircuitBreaker}. Without Redis a user has no generation, so
+ * callers bypass the cache; a bump that could not be made is queued and replayed when Redis is
+ * back, and until then the user has no generation on this node either.
  */
 @Component
 @ConditionalOnBean(StringRedisTemplate.class)
 public class SessionListCacheEvictor {
 
-    private static final String KEY_PREFIX = RedisCacheConfig.SESSION_LIST_CACHE + "::";
+    /** Message body is the user id whose session lists changed. */
+    public static final String INVALIDATION_CHANNEL = RedisCacheConfig.SESSION_LIST_CACHE + ":invalidate";
+
+    private static final String GENERATION_KEY_PREFIX = RedisCacheConfig.SESSION_LIST_CACHE + ":gen:";
+
+    // Refreshed on every bump; a lost counter is re-seeded, so this only bounds memory for idle users
+    private static final Duration GENERATION_TTL = Duration.ofDays(1);
+
+    // A missing counter is seeded with the current time in millis, so a counter that expired (or was
+    // evicted) never restarts at a generation whose entries may still be cached
+    private static final RedisScript<Long> READ_SCRIPT = new DefaultRedisScript<>("""
+            local gen = redis.call('GET', KEYS[1])
+            if gen then
+                return tonumber(gen)
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+            return tonumber(ARGV[1])
+            """, Long.class);
+    private static final RedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                redis.call('SET', KEYS[1], ARGV[1])
+            end
+            local gen = redis.call('INCR', KEYS[1])
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return gen
+            """, Long.class);
 
     private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker redisBreaker;
+    private final Cache<String, Long> localGenerations;
+    private final Counter invalidations;
 
-    public SessionListCacheEvictor(StringRedisTemplate redisTemplate) {
+    public SessionListCacheEvictor(StringRedisTemplate redisTemplate,
+                                   RedisCircuitBreaker redisBreaker,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.cache.l1.max-size:10000}") long l1MaxSize,
+                                   @Value("${app.cache.l1.ttl:30s}") Duration l1Ttl) {
         this.redisTemplate = redisTemplate;
+        this.redisBreaker = redisBreaker;
+        // Same bound as the L1: a missed pub/sub message is stale for at most the L1 TTL either way
+        this.localGenerations = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1Ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localGenerations, RedisCacheConfig.SESSION_LIST_CACHE + ".generations");
+        this.invalidations = Counter.builder("cache.invalidations")
+                .description("Per-user invalidations (generation bumps) of the cache")
+                .tag("cache", RedisCacheConfig.SESSION_LIST_CACHE)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cache keys of a user's session lists (without the Redis cache-name prefix) start with this.
+     */
+    public static String userKeyPrefix(String userId) {
+        return userId + "::";
     }
 
     /**
-     * Evict all session list cache entries for the given user.
+     * Current generation of the user's session lists, to be included in their cache keys; null if
+     * Redis is unavailable or an invalidation of the user is still queued.
+     */
+    public Long generation(String userId) {
+        if (redisBreaker.isPending(generationKey(userId))) {
+            return null;
+        }
+        return localGenerations.get(userId, id -> redisBreaker.call(() -> redisTemplate.execute(READ_SCRIPT,
+                List.of(generationKey(id)), String.valueOf(System.currentTimeMillis()),
+                String.valueOf(GENERATION_TTL.toSeconds())), () -> null));
+    }
+
+    /**
+     * Invalidate all session list cache entries for the given user.
      */
     public void evictForUser(String userId) {
-        Set<String> keys = redisTemplate.keys(KEY_PREFIX + userId + "::*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
+        invalidations.increment();
+        if (!redisBreaker.runOrReplay(generationKey(userId), () -> bump(userId))) {
+            evictLocal(userId);
+        }
+    }
+
+    /**
+     * {@link #evictForUser} once the current transaction commits (at once outside a transaction). A
+     * bump before commit would let a concurrent read cache the old rows under the new generation,
+     * where they would stay, with a matching ETag, until the user's next change.
+     */
+    public void evictForUserAfterCommit(String userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictForUser(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictForUser(userId);
+            }
+        });
+    }
+
+    private void bump(String userId) {
+        Long generation = redisTemplate.execute(BUMP_SCRIPT, List.of(generationKey(userId)),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(GENERATION_TTL.toSeconds()));
+        evictLocal(userId);
+        if (generation != null) {
+            localGenerations.put(userId, generation);
         }
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, userId);
+    }
+
+    /**
+     * Drops this node's cached generation for the user (also called for invalidations from other
+     * nodes); the next read fetches the new one, so the user's older L1 entries are no longer reached.
+     */
+    public void evictLocal(String userId) {
+        localGenerations.invalidate(userId);
+    }
+
+    private static String generationKey(String userId) {
+        return GENERATION_KEY_PREFIX + userId;
     }
 }
@@ -0,0 +1,49 @@
+package com.example.ragchat.controller;
+
+import com.example.ragchat.model.dto.ApiKeyResponse;
+import com.example.ragchat.model.dto.CreateApiKeyRequest;
+import com.example.ragchat.service.ApiKeyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/admin/api-keys")
+@Tag(name = "API keys", description = "Tenant API keys (static API key only)")
+public class ApiKeyAdminController {
+
+    private final ApiKeyService apiKeyService;
+
+    public ApiKeyAdminController(ApiKeyService apiKeyService) {
+        this.apiKeyService = apiKeyService;
+    }
+
+    @Operation(summary = "Create a tenant API key", description = "The key is returned once; only its hash is stored.")
+    @ApiResponses({ @ApiResponse(responseCode = "201"), @ApiResponse(responseCode = "400"), @ApiResponse(responseCode = "403") })
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public ApiKeyResponse create(@Valid @RequestBody CreateApiKeyRequest request) {
+        return apiKeyService.create(request);
+    }
+
+    @Operation(summary = "List a tenant's API keys")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "403") })
+    @GetMapping
+    public List<ApiKeyResponse> list(@RequestParam String tenantId) {
+        return apiKeyService.listByTenant(tenantId);
+    }
+
+    @Operation(summary = "Revoke an API key", description = "Applies on every node within moments.")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "404"), @ApiResponse(responseCode = "403") })
+    @DeleteMapping("/{id}")
+    public ApiKeyResponse revoke(@PathVariable UUID id) {
+        return apiKeyService.revoke(id);
+    }
+}
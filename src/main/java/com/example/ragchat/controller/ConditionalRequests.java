@@ -0,0 +1,49 @@
+package com.example.ragchat.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Conditional GET for polled reads: strong ETags built from cheap version data (a generation counter,
+ * ids and timestamps) rather than the serialized body, answered with 304 before the body is written.
+ * Responses may be stored by shared caches but must be revalidated, separately per user and API key.
+ */
+final class ConditionalRequests {
+
+    private static final String CACHE_CONTROL = "no-cache";
+    private static final String VARY = "X-User-Id, X-API-Key, Authorization";
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Sets the caching headers and the ETag; true if the client's {@code If-None-Match} matches, in
+     * which case the status is already 304 and the handler should return null.
+     */
+    static boolean notModified(ServletWebRequest request, String etag) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            request.getResponse().addHeader(HttpHeaders.VARY, VARY);
+        }
+        return request.checkNotModified(etag);
+    }
+
+    /** Quoted strong ETag: the kind followed by a digest of the version parts. */
+    static String etag(String kind, Object... parts) {
+        StringBuilder version = new StringBuilder();
+        for (Object part : parts) {
+            version.append(part).append('|');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(version.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + kind + "-" + HexFormat.of().formatHex(digest, 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
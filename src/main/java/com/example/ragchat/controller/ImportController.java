@@ -0,0 +1,57 @@
+package com.example.ragchat.controller;
+
+import com.example.ragchat.model.dto.ImportJobResponse;
+import com.example.ragchat.model.entity.ImportJobStatus;
+import com.example.ragchat.service.ImportService;
+import com.example.ragchat.service.MessageExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/imports")
+@Tag(name = "Imports", description = "Bulk import of historical sessions and messages")
+public class ImportController {
+
+    private static final String USER_ID_HEADER = "X-User-Id";
+
+    private final ImportService importService;
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @Operation(summary = "Bulk import (NDJSON)",
+            description = "One session or message per line, committed in chunks. Pass jobId with the same body to resume after a failure.")
+    @ApiResponses({ @ApiResponse(responseCode = "201", description = "Imported"), @ApiResponse(responseCode = "200", description = "Resumed job finished"),
+            @ApiResponse(responseCode = "422", description = "Malformed line: job FAILED, checkpoint kept"), @ApiResponse(responseCode = "404", description = "Job not found") })
+    @PostMapping(consumes = MessageExportService.NDJSON_VALUE)
+    public ResponseEntity<ImportJobResponse> importNdjson(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @Parameter(description = "Job to resume (optional)") @RequestParam(required = false) UUID jobId,
+            InputStream body) throws IOException {
+        ImportJobResponse job = importService.importNdjson(userId, jobId, body);
+        if (job.status() == ImportJobStatus.FAILED) {
+            return ResponseEntity.unprocessableEntity().body(job);
+        }
+        return ResponseEntity.status(jobId == null ? HttpStatus.CREATED : HttpStatus.OK).body(job);
+    }
+
+    @Operation(summary = "Get import job progress")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "404") })
+    @GetMapping("/{jobId}")
+    public ImportJobResponse get(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID jobId) {
+        return importService.getJob(userId, jobId);
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.ragchat.controller;
 
 import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.BatchAddMessagesRequest;
+import com.example.ragchat.model.dto.CursorPageResponse;
+import com.example.ragchat.model.dto.MessageField;
 import com.example.ragchat.model.dto.MessageResponse;
 import com.example.ragchat.model.dto.PageResponse;
+import com.example.ragchat.service.MessageExportService;
 import com.example.ragchat.service.MessageService;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,9 +17,15 @@ import jakarta.validation.Valid;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -24,31 +34,180 @@ import java.util.UUID;
 public class MessageController {
 
     private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String FIELDS = "Any of id, sender, content, context, createdAt (comma-separated)";
 
     private final MessageService messageService;
+    private final MessageExportService messageExportService;
 
-    public MessageController(MessageService messageService) {
+    public MessageController(MessageService messageService, MessageExportService messageExportService) {
         this.messageService = messageService;
+        this.messageExportService = messageExportService;
     }
 
-    @Operation(summary = "Add message to session")
-    @ApiResponses({ @ApiResponse(responseCode = "201", description = "Created"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @Operation(summary = "Add message to session",
+            description = "With 'Prefer: respond-async' and write-behind enabled, the message is queued and 202 is returned with its final id.")
+    @ApiResponses({ @ApiResponse(responseCode = "201", description = "Created"), @ApiResponse(responseCode = "202", description = "Accepted (write-behind)"),
+            @ApiResponse(responseCode = "404", description = "Session not found"), @ApiResponse(responseCode = "503", description = "Ingestion queue full") })
     @PostMapping
     public ResponseEntity<MessageResponse> add(
             @RequestHeader(USER_ID_HEADER) String userId,
             @PathVariable UUID sessionId,
+            @RequestHeader(name = "Prefer", required = false) String prefer,
             @Valid @RequestBody AddMessageRequest request) {
+        if (RESPOND_ASYNC.equalsIgnoreCase(prefer) && messageService.supportsAsyncAdd()) {
+            MessageResponse accepted = messageService.addAsync(userId, sessionId, request);
+            return ResponseEntity.accepted().header("Preference-Applied", RESPOND_ASYNC).body(accepted);
+        }
         MessageResponse created = messageService.add(userId, sessionId, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
-    @Operation(summary = "List messages (paginated)", description = "Page/size optional (default: page=0, size=20).")
-    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @Operation(summary = "Add messages to session (batch)", description = "Appends up to 100 messages in order, in a single transaction.")
+    @ApiResponses({ @ApiResponse(responseCode = "201", description = "Created"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @PostMapping("/batch")
+    public ResponseEntity<List<MessageResponse>> addBatch(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID sessionId,
+            @Valid @RequestBody BatchAddMessagesRequest request) {
+        List<MessageResponse> created = messageService.addAll(userId, sessionId, request.messages());
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    }
+
+    @Operation(summary = "List messages (paginated)", description = "Page/size optional (default: page=0, size=20). withTotal=false skips the total count. Supports If-None-Match (304).")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "404", description = "Session not found") })
     @GetMapping
     public PageResponse<MessageResponse> list(
             @RequestHeader(USER_ID_HEADER) String userId,
             @PathVariable UUID sessionId,
-            @Parameter(description = "Pagination (optional)", required = false) @PageableDefault(size = 20) Pageable pageable) {
-        return PageResponse.from(messageService.getBySession(userId, sessionId, pageable));
+            @Parameter(description = "Include totalElements/totalPages (optional, default true)") @RequestParam(defaultValue = "true") boolean withTotal,
+            @Parameter(description = "Pagination (optional)", required = false) @PageableDefault(size = 20) Pageable pageable,
+            ServletWebRequest webRequest) {
+        PageResponse<MessageResponse> page = withTotal
+                ? PageResponse.from(messageService.getBySession(userId, sessionId, pageable))
+                : PageResponse.from(messageService.getBySessionSlice(userId, sessionId, pageable));
+        if (ConditionalRequests.notModified(webRequest, ConditionalRequests.etag("m", sessionId, ids(page.content()),
+                page.totalElements(), page.number(), page.last()))) {
+            return null;
+        }
+        return page;
+    }
+
+    @Operation(summary = "List messages (paginated, sparse fields)",
+            description = "As List messages, but each message has only the comma-separated fields (e.g. fields=id,sender,content); only their columns are read, so leaving out context skips the JSON entirely. Supports If-None-Match (304).")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "400", description = "Unknown field"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @GetMapping(params = { "fields", "!after", "!before" })
+    public PageResponse<Map<String, Object>> listFields(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID sessionId,
+            @Parameter(description = FIELDS) @RequestParam String fields,
+            @Parameter(description = "Include totalElements/totalPages (optional, default true)") @RequestParam(defaultValue = "true") boolean withTotal,
+            @Parameter(description = "Pagination (optional)", required = false) @PageableDefault(size = 20) Pageable pageable,
+            ServletWebRequest webRequest) {
+        Set<MessageField> selected = MessageField.parse(fields);
+        PageResponse<Map<String, Object>> page = withTotal
+                ? PageResponse.from(messageService.getFieldsBySession(userId, sessionId, selected, pageable))
+                : PageResponse.from(messageService.getFieldsBySessionSlice(userId, sessionId, selected, pageable));
+        if (ConditionalRequests.notModified(webRequest, ConditionalRequests.etag("mf", sessionId, selected, page.content(),
+                page.totalElements(), page.number(), page.last()))) {
+            return null;
+        }
+        return page;
+    }
+
+    @Operation(summary = "List messages after a cursor (keyset)",
+            description = "Oldest first, no total count. Pass an empty 'after' to start at the oldest message, then follow nextCursor. Supports If-None-Match (304).")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @GetMapping(params = "after")
+    public CursorPageResponse<MessageResponse> listAfter(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID sessionId,
+            @Parameter(description = "Opaque cursor (nextCursor of a previous page), or empty for the first page") @RequestParam String after,
+            @Parameter(description = "Page size (optional)", required = false) @PageableDefault(size = 20) Pageable pageable,
+            ServletWebRequest webRequest) {
+        return notModified(webRequest, sessionId, messageService.getBySessionAfter(userId, sessionId, after, pageable.getPageSize()));
+    }
+
+    @Operation(summary = "List messages before a cursor (keyset)",
+            description = "Returned oldest first, no total count. Pass an empty 'before' to get the most recent messages, then follow prevCursor. Supports If-None-Match (304).")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @GetMapping(params = { "before", "!after" })
+    public CursorPageResponse<MessageResponse> listBefore(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID sessionId,
+            @Parameter(description = "Opaque cursor (prevCursor of a previous page), or empty for the latest page") @RequestParam String before,
+            @Parameter(description = "Page size (optional)", required = false) @PageableDefault(size = 20) Pageable pageable,
+            ServletWebRequest webRequest) {
+        return notModified(webRequest, sessionId, messageService.getBySessionBefore(userId, sessionId, before, pageable.getPageSize()));
+    }
+
+    @Operation(summary = "List messages after a cursor (keyset, sparse fields)", description = "As List messages after a cursor, limited to the comma-separated fields.")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or unknown field"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @GetMapping(params = { "after", "fields" })
+    public CursorPageResponse<Map<String, Object>> listAfterFields(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID sessionId,
+            @Parameter(description = "Opaque cursor (nextCursor of a previous page), or empty for the first page") @RequestParam String after,
+            @Parameter(description = FIELDS) @RequestParam String fields,
+            @Parameter(description = "Page size (optional)", required = false) @PageableDefault(size = 20) Pageable pageable,
+            ServletWebRequest webRequest) {
+        Set<MessageField> selected = MessageField.parse(fields);
+        return notModifiedFields(webRequest, sessionId, selected,
+                messageService.getFieldsBySessionAfter(userId, sessionId, after, pageable.getPageSize(), selected));
+    }
+
+    @Operation(summary = "List messages before a cursor (keyset, sparse fields)",
+            description = "As List messages before a cursor, limited to the comma-separated fields. Not served from the tail cache.")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or unknown field"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @GetMapping(params = { "before", "!after", "fields" })
+    public CursorPageResponse<Map<String, Object>> listBeforeFields(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID sessionId,
+            @Parameter(description = "Opaque cursor (prevCursor of a previous page), or empty for the latest page") @RequestParam String before,
+            @Parameter(description = FIELDS) @RequestParam String fields,
+            @Parameter(description = "Page size (optional)", required = false) @PageableDefault(size = 20) Pageable pageable,
+            ServletWebRequest webRequest) {
+        Set<MessageField> selected = MessageField.parse(fields);
+        return notModifiedFields(webRequest, sessionId, selected,
+                messageService.getFieldsBySessionBefore(userId, sessionId, before, pageable.getPageSize(), selected));
+    }
+
+    /**
+     * Messages are immutable, so their ids and the cursors (which tell whether more exist) identify a
+     * page; null (304) when the client has it. The latest page is usually served from the tail cache.
+     */
+    private static CursorPageResponse<MessageResponse> notModified(ServletWebRequest webRequest, UUID sessionId,
+                                                                 CursorPageResponse<MessageResponse> page) {
+        return ConditionalRequests.notModified(webRequest, ConditionalRequests.etag("mc", sessionId, ids(page.content()),
+                page.nextCursor(), page.prevCursor())) ? null : page;
+    }
+
+    /** As {@link #notModified}, from the page itself since the fields may not include the ids. */
+    private static CursorPageResponse<Map<String, Object>> notModifiedFields(ServletWebRequest webRequest, UUID sessionId,
+                                                                            Set<MessageField> fields,
+                                                                            CursorPageResponse<Map<String, Object>> page) {
+        return ConditionalRequests.notModified(webRequest, ConditionalRequests.etag("mcf", sessionId, fields, page.content(),
+                page.nextCursor(), page.prevCursor())) ? null : page;
+    }
+
+    private static List<UUID> ids(List<MessageResponse> messages) {
+        return messages.stream().map(MessageResponse::id).toList();
+    }
+
+    @Operation(summary = "Export session transcript (NDJSON)", description = "Streams every message, oldest first, one JSON object per line.")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @PathVariable UUID sessionId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MessageExportService.NDJSON_VALUE))
+                .body(messageExportService.exportSession(userId, sessionId));
     }
 }
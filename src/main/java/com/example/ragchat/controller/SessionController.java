@@ -2,8 +2,10 @@ package com.example.ragchat.controller;
 
 import com.example.ragchat.model.dto.CreateSessionRequest;
 import com.example.ragchat.model.dto.PageResponse;
+import com.example.ragchat.model.dto.SessionField;
 import com.example.ragchat.model.dto.SessionResponse;
 import com.example.ragchat.model.dto.UpdateSessionRequest;
+import com.example.ragchat.service.MessageExportService;
 import com.example.ragchat.service.SessionService;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,11 +14,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -27,9 +35,11 @@ public class SessionController {
     private static final String USER_ID_HEADER = "X-User-Id";
 
     private final SessionService sessionService;
+    private final MessageExportService messageExportService;
 
-    public SessionController(SessionService sessionService) {
+    public SessionController(SessionService sessionService, MessageExportService messageExportService) {
         this.sessionService = sessionService;
+        this.messageExportService = messageExportService;
     }
 
     @Operation(summary = "Create session")
@@ -42,22 +52,76 @@ public class SessionController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
-    @Operation(summary = "List sessions", description = "Paginated list; optional filter by favorite. Page/size are optional (default: page=0, size=20).")
+    @Operation(summary = "List sessions", description = "Paginated list; optional filter by favorite. Page/size are optional (default: page=0, size=20, most recently updated first). withTotal=false skips the total count. Supports If-None-Match (304).")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified") })
     @GetMapping
     public PageResponse<SessionResponse> list(
             @RequestHeader(USER_ID_HEADER) String userId,
             @RequestParam(required = false) Boolean favorite,
-            @Parameter(description = "Pagination (optional: page=0, size=20)", required = false) @PageableDefault(size = 20) Pageable pageable) {
-        return PageResponse.from(sessionService.listByUser(userId, favorite, pageable));
+            @Parameter(description = "Include totalElements/totalPages (optional, default true)") @RequestParam(defaultValue = "true") boolean withTotal,
+            @Parameter(description = "Pagination (optional: page=0, size=20)", required = false)
+            @PageableDefault(size = 20, sort = "updatedAt", direction = Sort.Direction.DESC) Pageable pageable,
+            ServletWebRequest webRequest) {
+        // With a generation counter the ETag is known before any cache or database read
+        Long version = sessionService.listVersion(userId);
+        if (version != null && ConditionalRequests.notModified(webRequest,
+                ConditionalRequests.etag("sl", userId, version, favorite, withTotal, pageable))) {
+            return null;
+        }
+        PageResponse<SessionResponse> page = withTotal
+                ? PageResponse.from(sessionService.listByUser(userId, favorite, pageable))
+                : PageResponse.from(sessionService.listByUserSlice(userId, favorite, pageable));
+        if (version == null && ConditionalRequests.notModified(webRequest, ConditionalRequests.etag("sl", userId,
+                page.content().stream().map(s -> s.id() + "@" + s.updatedAt()).toList(),
+                page.totalElements(), page.number(), page.last()))) {
+            return null;
+        }
+        return page;
     }
 
-    @Operation(summary = "Get session by ID")
-    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "404", description = "Session not found") })
+    @Operation(summary = "List sessions (sparse fields)",
+            description = "As List sessions, but each session has only the comma-separated fields (e.g. fields=id,title,updatedAt); only their columns are read. Supports If-None-Match (304).")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "400", description = "Unknown field") })
+    @GetMapping(params = "fields")
+    public PageResponse<Map<String, Object>> listFields(
+            @RequestHeader(USER_ID_HEADER) String userId,
+            @Parameter(description = "Any of id, sessionId, title, favorite, createdAt, updatedAt") @RequestParam String fields,
+            @RequestParam(required = false) Boolean favorite,
+            @Parameter(description = "Include totalElements/totalPages (optional, default true)") @RequestParam(defaultValue = "true") boolean withTotal,
+            @Parameter(description = "Pagination (optional: page=0, size=20)", required = false)
+            @PageableDefault(size = 20, sort = "updatedAt", direction = Sort.Direction.DESC) Pageable pageable,
+            ServletWebRequest webRequest) {
+        Set<SessionField> selected = SessionField.parse(fields);
+        Long version = sessionService.listVersion(userId);
+        if (version != null && ConditionalRequests.notModified(webRequest,
+                ConditionalRequests.etag("slf", userId, version, selected, favorite, withTotal, pageable))) {
+            return null;
+        }
+        PageResponse<Map<String, Object>> page = withTotal
+                ? PageResponse.from(sessionService.listFieldsByUser(userId, favorite, selected, pageable))
+                : PageResponse.from(sessionService.listFieldsByUserSlice(userId, favorite, selected, pageable));
+        // Without a generation counter the page itself is the version (the fields may not include updatedAt)
+        if (version == null && ConditionalRequests.notModified(webRequest, ConditionalRequests.etag("slf", userId,
+                page.content(), page.totalElements(), page.number(), page.last()))) {
+            return null;
+        }
+        return page;
+    }
+
+    @Operation(summary = "Get session by ID", description = "Supports If-None-Match (304).")
+    @ApiResponses({ @ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "404", description = "Session not found") })
     @GetMapping("/{id}")
     public SessionResponse getById(
             @RequestHeader(USER_ID_HEADER) String userId,
-            @PathVariable UUID id) {
-        return sessionService.getById(userId, id);
+            @PathVariable UUID id,
+            ServletWebRequest webRequest) {
+        SessionResponse session = sessionService.getById(userId, id);
+        if (ConditionalRequests.notModified(webRequest, ConditionalRequests.etag("s", session.id(), session.updatedAt()))) {
+            return null;
+        }
+        return session;
     }
 
     @Operation(summary = "Update session (partial: title and/or favorite)")
@@ -79,4 +143,12 @@ public class SessionController {
             @PathVariable UUID id) {
         sessionService.delete(userId, id);
     }
+
+    @Operation(summary = "Export all of the user's messages (NDJSON)", description = "Streams every message of every session, grouped by session, one JSON object per line.")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader(USER_ID_HEADER) String userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MessageExportService.NDJSON_VALUE))
+                .body(messageExportService.exportUser(userId));
+    }
 }
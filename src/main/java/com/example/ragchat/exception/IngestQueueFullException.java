@@ -0,0 +1,11 @@
+package com.example.ragchat.exception;
+
+/**
+ * The write-behind queue cannot take more messages (full, or draining for shutdown).
+ */
+public class IngestQueueFullException extends RuntimeException {
+
+    public IngestQueueFullException() {
+        super("Message ingestion queue is full; retry shortly");
+    }
+}
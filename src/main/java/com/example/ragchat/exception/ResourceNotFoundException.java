@@ -2,13 +2,17 @@ package com.example.ragchat.exception;
 
 import java.util.UUID;
 
+/**
+ * Thrown for every lookup of a missing or foreign resource, often by clients probing stale ids, so it
+ * carries no stack trace: the handler only needs the message.
+ */
 public class ResourceNotFoundException extends RuntimeException {
 
     public ResourceNotFoundException(String resourceName, UUID id) {
-        super(resourceName + " not found: " + id);
+        this(resourceName + " not found: " + id);
     }
 
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
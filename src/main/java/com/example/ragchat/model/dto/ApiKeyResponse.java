@@ -0,0 +1,18 @@
+package com.example.ragchat.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** {@code key} is only set in the response to the key's creation; it cannot be read back later. */
+public record ApiKeyResponse(
+        UUID id,
+        String tenantId,
+        String name,
+        Integer rateLimit,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String key,
+        Instant createdAt,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Instant revokedAt
+) {
+}
@@ -0,0 +1,18 @@
+package com.example.ragchat.model.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Ordered list of messages to append to a session in one call (e.g. user turn + assistant turn).
+ */
+public record BatchAddMessagesRequest(
+        @NotEmpty(message = "Messages are required")
+        @Size(max = 100, message = "At most 100 messages per batch")
+        List<@Valid @NotNull AddMessageRequest> messages
+) {
+}
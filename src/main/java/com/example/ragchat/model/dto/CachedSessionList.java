@@ -3,13 +3,15 @@ package com.example.ragchat.model.dto;
 import java.util.List;
 
 /**
- * Serializable shape for session list cache (content + pagination info).
+ * Serializable shape for session list cache (content + pagination info). Slices (withTotal=false)
+ * are cached without totals and carry {@code hasNext} instead.
  */
 public record CachedSessionList(
         List<SessionResponse> content,
-        long totalElements,
-        int totalPages,
+        Long totalElements,
+        Integer totalPages,
         int size,
-        int number
+        int number,
+        boolean hasNext
 ) {
 }
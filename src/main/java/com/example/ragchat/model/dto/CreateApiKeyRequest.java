@@ -0,0 +1,22 @@
+package com.example.ragchat.model.dto;
+
+import com.example.ragchat.security.ApiKeyPrincipal;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+public record CreateApiKeyRequest(
+        @NotBlank(message = "Tenant id is required")
+        @Size(max = 255, message = "Tenant id must be at most 255 characters")
+        @Pattern(regexp = ApiKeyPrincipal.TENANT_ID_PATTERN,
+                message = "Tenant id may only contain letters, digits, '-' and '_'")
+        String tenantId,
+
+        @Size(max = 255, message = "Name must be at most 255 characters")
+        String name,
+
+        @Positive(message = "Rate limit must be positive")
+        Integer rateLimit
+) {
+}
@@ -0,0 +1,15 @@
+package com.example.ragchat.model.dto;
+
+import java.util.List;
+
+/**
+ * Keyset (cursor) paginated response shape. Cursors are opaque; a null cursor means there is
+ * nothing further in that direction.
+ */
+public record CursorPageResponse<T>(
+        List<T> content,
+        int size,
+        String nextCursor,
+        String prevCursor
+) {
+}
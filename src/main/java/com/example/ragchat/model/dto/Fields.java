@@ -0,0 +1,41 @@
+package com.example.ragchat.model.dto;
+
+import java.util.EnumSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parses a {@code fields=} parameter (comma-separated field names) into the fields a list response
+ * is limited to. The set iterates in declaration order, which is the order the fields are written.
+ */
+final class Fields {
+
+    private Fields() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if a name is not a field of the resource, or none is given
+     */
+    static <E extends Enum<E>> EnumSet<E> parse(Class<E> type, String fields) {
+        EnumSet<E> selected = EnumSet.noneOf(type);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(Stream.of(type.getEnumConstants())
+                    .filter(field -> field.name().equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown field '" + trimmed + "', expected any of "
+                            + names(type))));
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one of " + names(type));
+        }
+        return selected;
+    }
+
+    private static String names(Class<? extends Enum<?>> type) {
+        return Stream.of(type.getEnumConstants()).map(Enum::name).collect(Collectors.joining(", "));
+    }
+}
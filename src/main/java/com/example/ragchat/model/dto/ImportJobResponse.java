@@ -0,0 +1,19 @@
+package com.example.ragchat.model.dto;
+
+import com.example.ragchat.model.entity.ImportJobStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ImportJobResponse(
+        UUID id,
+        ImportJobStatus status,
+        long linesProcessed,
+        long sessionsImported,
+        long messagesImported,
+        long rowsSkipped,
+        String error,
+        Instant createdAt,
+        Instant updatedAt
+) {
+}
@@ -0,0 +1,23 @@
+package com.example.ragchat.model.dto;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/** Fields of {@link MessageResponse} a message list can be limited to with {@code fields=}. */
+public enum MessageField {
+    id,
+    sender,
+    content,
+    context,
+    createdAt;
+
+    public static final Set<MessageField> ALL = Collections.unmodifiableSet(EnumSet.allOf(MessageField.class));
+
+    /**
+     * @throws IllegalArgumentException on an unknown or empty field list
+     */
+    public static EnumSet<MessageField> parse(String fields) {
+        return Fields.parse(MessageField.class, fields);
+    }
+}
@@ -1,22 +1,26 @@
 package com.example.ragchat.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
 /**
- * Paginated response shape for list endpoints.
+ * Paginated response shape for list endpoints. For count-free listings (withTotal=false) the totals
+ * are omitted and {@code last} tells whether there is a next page.
  */
 public record PageResponse<T>(
         List<T> content,
-        @JsonProperty("totalElements") long totalElements,
-        @JsonProperty("totalPages") int totalPages,
+        @JsonInclude(JsonInclude.Include.NON_NULL) @JsonProperty("totalElements") Long totalElements,
+        @JsonInclude(JsonInclude.Include.NON_NULL) @JsonProperty("totalPages") Integer totalPages,
         int size,
         int number,
         boolean first,
         boolean last
 ) {
-    public static <T> PageResponse<T> from(org.springframework.data.domain.Page<T> page) {
+    public static <T> PageResponse<T> from(Page<T> page) {
         return new PageResponse<>(
                 page.getContent(),
                 page.getTotalElements(),
@@ -27,4 +31,20 @@ public record PageResponse<T>(
                 page.isLast()
         );
     }
+
+    /** Same shape without totals; a {@link Page} keeps its totals. */
+    public static <T> PageResponse<T> from(Slice<T> slice) {
+        if (slice instanceof Page<T> page) {
+            return from(page);
+        }
+        return new PageResponse<>(
+                slice.getContent(),
+                null,
+                null,
+                slice.getSize(),
+                slice.getNumber(),
+                slice.isFirst(),
+                slice.isLast()
+        );
+    }
 }
@@ -0,0 +1,20 @@
+package com.example.ragchat.model.dto;
+
+import java.util.EnumSet;
+
+/** Fields of {@link SessionResponse} a session list can be limited to with {@code fields=}. */
+public enum SessionField {
+    id,
+    sessionId,
+    title,
+    favorite,
+    createdAt,
+    updatedAt;
+
+    /**
+     * @throws IllegalArgumentException on an unknown or empty field list
+     */
+    public static EnumSet<SessionField> parse(String fields) {
+        return Fields.parse(SessionField.class, fields);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.ragchat.model.entity;
+
+public enum ImportJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
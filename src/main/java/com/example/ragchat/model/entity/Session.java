@@ -2,6 +2,7 @@ package com.example.ragchat.model.entity;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.Instant;
@@ -10,11 +11,15 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "sessions")
+@Table(name = "sessions", indexes = {
+        // Session lists filter by user (and optionally favorite), most recently updated first
+        @Index(name = "idx_sessions_user_updated", columnList = "user_id, updated_at DESC"),
+        @Index(name = "idx_sessions_user_favorite_updated", columnList = "user_id, is_favorite, updated_at DESC")
+})
 public class Session {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     private UUID id;
 
     @Column(name = "user_id", nullable = false, length = 255)
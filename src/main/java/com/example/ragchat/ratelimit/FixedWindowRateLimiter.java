@@ -0,0 +1,68 @@
+package com.example.ragchat.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fixed window in Redis: max N tokens per window (e.g. 100 per 60 seconds), counted by one script
+ * call per request. Allows up to twice the limit across a window boundary; see {@link GcraRateLimiter}.
+ */
+@Component
+@ConditionalOnBean(StringRedisTemplate.class)
+@ConditionalOnProperty(name = "app.rate-limit.mode", havingValue = "redis")
+public class FixedWindowRateLimiter implements RateLimiter {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    // INCRBY key, set TTL only on first request in window, return current count and remaining TTL
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> COUNT_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('INCRBY', KEYS[1], ARGV[2])
+            if current == tonumber(ARGV[2]) then
+                redis.call('EXPIRE', KEYS[1], ARGV[1])
+            end
+            return { current, redis.call('PTTL', KEYS[1]) }
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final int maxRequests;
+    private final String windowSeconds;
+
+    public FixedWindowRateLimiter(StringRedisTemplate redisTemplate,
+                                  @Value("${app.rate-limit.max-requests:100}") int maxRequests,
+                                  @Value("${app.rate-limit.window-seconds:60}") int windowSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.maxRequests = maxRequests;
+        this.windowSeconds = String.valueOf(windowSeconds);
+    }
+
+    @Override
+    public int limit() {
+        return maxRequests;
+    }
+
+    @Override
+    public Decision tryAcquire(String clientKey, int cost, int limit) {
+        List<?> result = redisTemplate.execute(COUNT_SCRIPT, List.of(KEY_PREFIX + clientKey), windowSeconds,
+                String.valueOf(cost));
+        if (result == null || result.size() < 2) {
+            return new Decision(true, limit, -1, 0);
+        }
+        long count = (Long) result.get(0);
+        long ttlMillis = Math.max(0, (Long) result.get(1));
+        boolean allowed = count <= limit;
+        return new Decision(allowed, limit, Math.max(0, limit - count), allowed ? 0 : ttlMillis);
+    }
+
+    @Override
+    public void charge(String clientKey, int cost, int limit) {
+        redisTemplate.execute(COUNT_SCRIPT, List.of(KEY_PREFIX + clientKey), windowSeconds, String.valueOf(cost));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ragchat.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Generic cell rate algorithm in Redis: tokens are emitted at a steady {@code max-requests} per
+ * {@code window-seconds}, and a client may burst up to {@code max-requests} tokens, but never more, at
+ * any point in time (no 2x burst at window boundaries). The only state per client is its theoretical
+ * arrival time (TAT), kept in one key that expires once the client is idle for its burst period.
+ * <p>
+ * One script call per request, timed by the Redis clock so that nodes with skewed clocks agree. The
+ * script is loaded at startup and then run by SHA (EVALSHA); after a Redis restart it is sent again.
+ */
+@Component
+@ConditionalOnBean(StringRedisTemplate.class)
+@ConditionalOnProperty(name = "app.rate-limit.mode", havingValue = "gcra", matchIfMissing = true)
+public class GcraRateLimiter implements RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(GcraRateLimiter.class);
+
+    private static final String KEY_PREFIX = "ratelimit:gcra:";
+
+    /**
+     * ARGV: emission interval (ms per token), burst (ms), cost, force (1 = charge even if over the
+     * limit, with debt capped at one more burst). Returns {allowed, remaining tokens, retry after ms}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> GCRA_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local interval = tonumber(ARGV[1])
+            local burst = tonumber(ARGV[2])
+            local tat = math.max(tonumber(redis.call('GET', KEYS[1]) or now), now)
+            local newTat = tat + tonumber(ARGV[3]) * interval
+            local allowAt = newTat - burst
+            if allowAt > now and ARGV[4] ~= '1' then
+                return { 0, math.floor((burst - (tat - now)) / interval), allowAt - now }
+            end
+            newTat = math.min(newTat, now + 2 * burst)
+            redis.call('SET', KEYS[1], newTat, 'PX', math.ceil(newTat - now))
+            return { 1, math.max(0, math.floor((burst - (newTat - now)) / interval)), 0 }
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final int maxRequests;
+    private final long windowMillis;
+    private final String intervalMillis;
+    private final String burstMillis;
+
+    public GcraRateLimiter(StringRedisTemplate redisTemplate,
+                           @Value("${app.rate-limit.max-requests:100}") int maxRequests,
+                           @Value("${app.rate-limit.window-seconds:60}") int windowSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.maxRequests = maxRequests;
+        this.windowMillis = windowSeconds * 1000L;
+        this.intervalMillis = intervalMillis(maxRequests);
+        this.burstMillis = String.valueOf(windowMillis);
+    }
+
+    /** Loads the script so the first requests already run it by SHA. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadScript() {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.scriptingCommands()
+                    .scriptLoad(GCRA_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+        } catch (DataAccessException e) {
+            log.warn("Rate limit script not preloaded, it will be sent with the first request: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int limit() {
+        return maxRequests;
+    }
+
+    @Override
+    public Decision tryAcquire(String clientKey, int cost, int limit) {
+        // A request costing more than the burst could never pass; charge it as a full burst instead
+        List<?> result = execute(clientKey, Math.min(cost, limit), limit, false);
+        if (result == null || result.size() < 3) {
+            return new Decision(true, limit, -1, 0);
+        }
+        return new Decision((Long) result.get(0) == 1, limit, (Long) result.get(1), (Long) result.get(2));
+    }
+
+    @Override
+    public void charge(String clientKey, int cost, int limit) {
+        execute(clientKey, cost, limit, true);
+    }
+
+    private List<?> execute(String clientKey, int cost, int limit, boolean force) {
+        return redisTemplate.execute(GCRA_SCRIPT, List.of(KEY_PREFIX + clientKey),
+                limit == maxRequests ? intervalMillis : intervalMillis(limit), burstMillis, String.valueOf(cost),
+                force ? "1" : "0");
+    }
+
+    /** Lua numbers are doubles, so a fractional interval is exact enough. */
+    private String intervalMillis(int limit) {
+        return String.valueOf((double) windowMillis / limit);
+    }
+}
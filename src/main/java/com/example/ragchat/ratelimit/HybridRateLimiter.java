@@ -0,0 +1,214 @@
+package com.example.ragchat.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed window enforced from local tokens: each node leases up to {@code lease-size} of a client's
+ * window quota from Redis at a time and admits requests by decrementing its local count, so the
+ * request path does no network I/O. When a lease runs low the next one is fetched in the background;
+ * only a client's first request in a window (or one that outruns the prefetch) waits for Redis.
+ * A request costing more than one lease leases its whole cost at once.
+ * <p>
+ * Leased tokens count as used in Redis, so the global limit is never exceeded; tokens a node leased
+ * but did not use are lost, i.e. a client may be admitted up to {@code nodes * lease-size} fewer
+ * requests per window. Leases live in a bounded in-process map. When Redis is unreachable, nodes
+ * admit one lease worth of requests per attempt (failing open, as limiting is best effort). The
+ * remaining global quota is not known locally, so decisions carry no remaining count.
+ */
+@Component
+@ConditionalOnBean(StringRedisTemplate.class)
+@ConditionalOnProperty(name = "app.rate-limit.mode", havingValue = "hybrid")
+public class HybridRateLimiter implements RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(HybridRateLimiter.class);
+
+    private static final String KEY_PREFIX = "ratelimit:lease:";
+
+    /** Grants up to ARGV[1] more of the window's ARGV[2] tokens; returns the number granted. */
+    private static final RedisScript<Long> LEASE_SCRIPT = new DefaultRedisScript<>("""
+            local used = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local grant = math.min(tonumber(ARGV[1]), tonumber(ARGV[2]) - used)
+            if grant <= 0 then
+                return 0
+            end
+            if redis.call('INCRBY', KEYS[1], grant) == grant then
+                redis.call('EXPIRE', KEYS[1], ARGV[3])
+            end
+            return grant
+            """, Long.class);
+
+    /** This node's tokens for one client and window; {@code exhausted} once Redis granted none. */
+    private static final class Lease {
+        final int limit;
+        final AtomicInteger tokens = new AtomicInteger();
+        final AtomicBoolean prefetching = new AtomicBoolean();
+        final ReentrantLock lock = new ReentrantLock();
+        volatile boolean exhausted;
+
+        Lease(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final long windowMillis;
+    private final int maxRequests;
+    private final int leaseSize;
+    private final String keyTtlSeconds;
+    private final int lowWater;
+    private final Executor executor;
+    private final Cache<String, Lease> leases;
+    private final Counter granted;
+    private final Counter exhausted;
+    private final Counter failed;
+
+    @Autowired
+    public HybridRateLimiter(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                             @Value("${app.rate-limit.max-requests:100}") int maxRequests,
+                             @Value("${app.rate-limit.window-seconds:60}") int windowSeconds,
+                             @Value("${app.rate-limit.hybrid.lease-size:10}") int leaseSize,
+                             @Value("${app.rate-limit.hybrid.max-clients:100000}") long maxClients) {
+        this(redisTemplate, meterRegistry, maxRequests, windowSeconds, leaseSize, maxClients,
+                task -> Thread.ofVirtual().name("ratelimit-lease").start(task));
+    }
+
+    HybridRateLimiter(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry, int maxRequests,
+                      int windowSeconds, int leaseSize, long maxClients, Executor executor) {
+        this.redisTemplate = redisTemplate;
+        this.windowMillis = windowSeconds * 1000L;
+        this.maxRequests = maxRequests;
+        this.leaseSize = leaseSize;
+        this.keyTtlSeconds = String.valueOf(windowSeconds + 1);
+        this.lowWater = leaseSize / 2;
+        this.executor = executor;
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofMillis(windowMillis))
+                .build();
+        this.granted = leaseCounter(meterRegistry, "granted");
+        this.exhausted = leaseCounter(meterRegistry, "exhausted");
+        this.failed = leaseCounter(meterRegistry, "error");
+    }
+
+    private static Counter leaseCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ratelimit.leases")
+                .description("Token leases requested from Redis by the hybrid rate limiter")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int limit() {
+        return maxRequests;
+    }
+
+    /** A client's limit is fixed for a window: a changed limit applies from the next one. */
+    @Override
+    public Decision tryAcquire(String clientKey, int cost, int limit) {
+        long now = System.currentTimeMillis();
+        String key = key(clientKey, now);
+        Lease lease = leases.get(key, k -> new Lease(limit));
+        // A request costing more than the window's quota could never pass; charge it as the full quota
+        int tokens = Math.min(cost, lease.limit);
+        boolean allowed = take(key, lease, tokens) || (!lease.exhausted && renewAndTake(key, lease, tokens));
+        return new Decision(allowed, lease.limit, -1, allowed ? 0 : windowMillis - now % windowMillis);
+    }
+
+    /** Takes the tokens from the window's quota in Redis, in the background. */
+    @Override
+    public void charge(String clientKey, int cost, int limit) {
+        String key = key(clientKey, System.currentTimeMillis());
+        executor.execute(() -> {
+            try {
+                redisTemplate.execute(LEASE_SCRIPT, List.of(key), String.valueOf(cost), String.valueOf(limit), keyTtlSeconds);
+            } catch (DataAccessException e) {
+                log.warn("Rate limit charge of {} failed for {}: {}", cost, key, e.getMessage());
+            }
+        });
+    }
+
+    /** Windows are aligned on the epoch, so every node uses the same Redis key for a window. */
+    private String key(String clientKey, long now) {
+        return KEY_PREFIX + clientKey + ":" + now / windowMillis;
+    }
+
+    private boolean renewAndTake(String key, Lease lease, int tokens) {
+        lease.lock.lock();
+        try {
+            if (lease.tokens.get() < tokens && !lease.exhausted) {
+                renew(key, lease, Math.max(leaseSize, tokens));
+            }
+        } finally {
+            lease.lock.unlock();
+        }
+        return take(key, lease, tokens);
+    }
+
+    private boolean take(String key, Lease lease, int tokens) {
+        int left = lease.tokens.addAndGet(-tokens);
+        if (left < 0) {
+            lease.tokens.addAndGet(tokens);
+            return false;
+        }
+        if (left <= lowWater && !lease.exhausted && lease.prefetching.compareAndSet(false, true)) {
+            executor.execute(() -> prefetch(key, lease));
+        }
+        return true;
+    }
+
+    private void prefetch(String key, Lease lease) {
+        lease.lock.lock();
+        try {
+            if (!lease.exhausted && lease.tokens.get() <= lowWater) {
+                renew(key, lease, leaseSize);
+            }
+        } finally {
+            lease.prefetching.set(false);
+            lease.lock.unlock();
+        }
+    }
+
+    /** Called with the lease's lock held. */
+    private void renew(String key, Lease lease, int count) {
+        long grant;
+        try {
+            Long result = redisTemplate.execute(LEASE_SCRIPT, List.of(key), String.valueOf(count),
+                    String.valueOf(lease.limit), keyTtlSeconds);
+            grant = result != null ? result : 0;
+        } catch (DataAccessException e) {
+            int local = Math.min(count, lease.limit);
+            log.warn("Rate limit lease failed for {}, admitting {} tokens locally: {}", key, local, e.getMessage());
+            failed.increment();
+            lease.tokens.addAndGet(local);
+            return;
+        }
+        if (grant <= 0) {
+            exhausted.increment();
+            lease.exhausted = true;
+            return;
+        }
+        granted.increment();
+        lease.tokens.addAndGet((int) grant);
+    }
+}
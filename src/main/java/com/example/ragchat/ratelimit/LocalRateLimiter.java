@@ -0,0 +1,66 @@
+package com.example.ragchat.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process GCRA (see {@link GcraRateLimiter}) used by {@link com.example.ragchat.config.RateLimitFilter}
+ * while Redis is unavailable. Each node enforces the full limit on its own, so the global limit is
+ * only approximated (up to once per node); clients are kept in a bounded map.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private final int maxRequests;
+    private final long burstNanos;
+    private final Cache<String, AtomicLong> arrivalTimes;
+
+    public LocalRateLimiter(int maxRequests, int windowSeconds, long maxClients) {
+        this.maxRequests = maxRequests;
+        this.burstNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.arrivalTimes = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofSeconds(windowSeconds))
+                .build();
+    }
+
+    @Override
+    public int limit() {
+        return maxRequests;
+    }
+
+    @Override
+    public Decision tryAcquire(String clientKey, int cost, int limit) {
+        AtomicLong tat = arrivalTimes.get(clientKey, k -> new AtomicLong(Long.MIN_VALUE));
+        long intervalNanos = burstNanos / limit;
+        long increment = Math.min(cost, limit) * intervalNanos;
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long base = current == Long.MIN_VALUE ? now : Math.max(current, now);
+            long next = base + increment;
+            long allowAt = next - burstNanos;
+            if (allowAt > now) {
+                return new Decision(false, limit, (burstNanos - (base - now)) / intervalNanos,
+                        TimeUnit.NANOSECONDS.toMillis(allowAt - now));
+            }
+            if (tat.compareAndSet(current, next)) {
+                return new Decision(true, limit, (burstNanos - (next - now)) / intervalNanos, 0);
+            }
+        }
+    }
+
+    @Override
+    public void charge(String clientKey, int cost, int limit) {
+        AtomicLong tat = arrivalTimes.get(clientKey, k -> new AtomicLong(Long.MIN_VALUE));
+        long intervalNanos = burstNanos / limit;
+        tat.updateAndGet(current -> {
+            long now = System.nanoTime();
+            long base = current == Long.MIN_VALUE ? now : Math.max(current, now);
+            return Math.min(base + cost * intervalNanos, now + 2 * burstNanos);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.ragchat.ratelimit;
+
+/**
+ * Admission decision for {@link com.example.ragchat.config.RateLimitFilter}. Selected by
+ * {@code app.rate-limit.mode}: {@code gcra} ({@link GcraRateLimiter}, smooth rate with a bounded
+ * burst), {@code redis} ({@link FixedWindowRateLimiter}, fixed window counter) or {@code hybrid}
+ * ({@link HybridRateLimiter}, local tokens leased from Redis in chunks). Every request has a cost in
+ * tokens (see {@link RouteCosts}). The limit is {@code max-requests} tokens per window unless the
+ * client has its own (e.g. a tenant API key's rate limit).
+ */
+public interface RateLimiter {
+
+    /**
+     * Outcome of {@link #tryAcquire}. {@code remaining} is the number of tokens left, or -1 if the
+     * limiter cannot tell; {@code retryAfterMillis} is how long a rejected client should wait.
+     */
+    record Decision(boolean allowed, long limit, long remaining, long retryAfterMillis) {
+    }
+
+    /** The configured limit: tokens per window. */
+    int limit();
+
+    /** Whether a request of the given cost from the client fits the configured limit; consumes the tokens if so. */
+    default Decision tryAcquire(String clientKey, int cost) {
+        return tryAcquire(clientKey, cost, limit());
+    }
+
+    /** As {@link #tryAcquire(String, int)}, for a client with its own limit (tokens per window). */
+    Decision tryAcquire(String clientKey, int cost, int limit);
+
+    /**
+     * Consumes tokens for work already done (e.g. bytes of a finished export), even beyond the limit,
+     * so the client's next requests are slowed down instead.
+     */
+    default void charge(String clientKey, int cost) {
+        charge(clientKey, cost, limit());
+    }
+
+    /** As {@link #charge(String, int)}, for a client with its own limit. */
+    void charge(String clientKey, int cost, int limit);
+}
@@ -0,0 +1,58 @@
+package com.example.ragchat.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Rate limit cost of a request in tokens, by kind of route: single reads, list reads and writes
+ * each have a configurable cost. Exports are charged as a read up front and then per started MB of
+ * response body once it has been streamed.
+ */
+@Component
+public class RouteCosts {
+
+    private static final Pattern LIST = Pattern.compile("/api/v1/sessions(/[^/]+/messages)?/?");
+    private static final long MB = 1024 * 1024;
+
+    private final int read;
+    private final int list;
+    private final int write;
+    private final int exportPerMb;
+
+    public RouteCosts(@Value("${app.rate-limit.cost.read:1}") int read,
+                      @Value("${app.rate-limit.cost.list:2}") int list,
+                      @Value("${app.rate-limit.cost.write:3}") int write,
+                      @Value("${app.rate-limit.cost.export-per-mb:5}") int exportPerMb) {
+        this.read = read;
+        this.list = list;
+        this.write = write;
+        this.exportPerMb = exportPerMb;
+    }
+
+    /** Tokens to acquire before the request is handled. */
+    public int cost(HttpServletRequest request) {
+        if (!isRead(request)) {
+            return write;
+        }
+        String uri = request.getRequestURI();
+        return uri != null && LIST.matcher(uri).matches() ? list : read;
+    }
+
+    /** Whether the response body is charged by size after it has been written ({@link #bodyCost}). */
+    public boolean metered(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return exportPerMb > 0 && isRead(request) && uri != null && uri.endsWith("/export");
+    }
+
+    /** Tokens for a metered response body of the given size. */
+    public int bodyCost(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + MB - 1) / MB * exportPerMb);
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+}
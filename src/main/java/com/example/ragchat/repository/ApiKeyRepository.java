@@ -0,0 +1,21 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.entity.ApiKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface ApiKeyRepository extends JpaRepository<ApiKey, UUID> {
+
+    /** Keys changed after position (since, afterId) in (updatedAt, id) order; keyset paging for the index refresh. */
+    @Query("SELECT k FROM ApiKey k WHERE k.updatedAt > :since OR (k.updatedAt = :since AND k.id > :afterId) "
+            + "ORDER BY k.updatedAt, k.id")
+    List<ApiKey> findChangedAfter(@Param("since") Instant since, @Param("afterId") UUID afterId, Pageable pageable);
+
+    List<ApiKey> findByTenantIdOrderByCreatedAt(String tenantId);
+}
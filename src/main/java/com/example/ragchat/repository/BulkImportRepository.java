@@ -0,0 +1,215 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.entity.MessageSender;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Loads one chunk of imported sessions and messages. On PostgreSQL rows go through COPY into
+ * per-connection staging tables and are moved with one INSERT ... SELECT per table; elsewhere (H2)
+ * they are written as JDBC batches. Either way existing ids are skipped, so replaying a chunk is
+ * harmless, and messages are only attached to sessions owned by the importing user.
+ * Must be called inside a transaction.
+ */
+@Repository
+public class BulkImportRepository {
+
+    public record SessionRow(UUID id, String title, boolean favorite, Instant createdAt, Instant updatedAt) {
+    }
+
+    /** {@code context} is JSON text. */
+    public record MessageRow(UUID id, UUID sessionId, MessageSender sender, String content, String context,
+                             Instant createdAt) {
+    }
+
+    public record Counts(int sessions, int messages) {
+    }
+
+    // ON COMMIT DELETE ROWS empties the staging tables after every chunk; they live as long as the pooled connection
+    private static final String CREATE_SESSION_STAGE_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS import_sessions_stage (
+                id UUID, title TEXT, is_favorite BOOLEAN, created_at TIMESTAMPTZ, updated_at TIMESTAMPTZ
+            ) ON COMMIT DELETE ROWS
+            """;
+    private static final String CREATE_MESSAGE_STAGE_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS import_messages_stage (
+                id UUID, session_id UUID, sender TEXT, content TEXT, context TEXT, created_at TIMESTAMPTZ
+            ) ON COMMIT DELETE ROWS
+            """;
+    private static final String COPY_SESSIONS_SQL =
+            "COPY import_sessions_stage (id, title, is_favorite, created_at, updated_at) FROM STDIN (FORMAT csv)";
+    private static final String COPY_MESSAGES_SQL =
+            "COPY import_messages_stage (id, session_id, sender, content, context, created_at) FROM STDIN (FORMAT csv)";
+    private static final String MOVE_SESSIONS_SQL = """
+            INSERT INTO sessions (id, user_id, title, is_favorite, created_at, updated_at)
+            SELECT st.id, ?, st.title, st.is_favorite, st.created_at, st.updated_at FROM import_sessions_stage st
+            ON CONFLICT (id) DO NOTHING
+            """;
+    private static final String MOVE_MESSAGES_SQL = """
+            INSERT INTO messages (id, session_id, sender, content, context, created_at)
+            SELECT st.id, st.session_id, st.sender, st.content, CAST(st.context AS jsonb), st.created_at
+            FROM import_messages_stage st JOIN sessions s ON s.id = st.session_id AND s.user_id = ?
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String INSERT_SESSION_SQL = """
+            INSERT INTO sessions (id, user_id, title, is_favorite, created_at, updated_at)
+            SELECT ?, ?, ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM sessions WHERE id = ?)
+            """;
+    private static final String INSERT_MESSAGE_SQL = """
+            INSERT INTO messages (id, session_id, sender, content, context, created_at)
+            SELECT ?, s.id, ?, ?, %s, ? FROM sessions s
+            WHERE s.id = ? AND s.user_id = ? AND NOT EXISTS (SELECT 1 FROM messages WHERE id = ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean copySupported;
+    private final String insertMessageSql;
+
+    public BulkImportRepository(JdbcTemplate jdbcTemplate,
+                                @Value("${app.sql.json-parameter:CAST(? AS jsonb)}") String jsonParameter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.copySupported = Boolean.TRUE.equals(
+                jdbcTemplate.execute((ConnectionCallback<Boolean>) c -> c.isWrapperFor(PGConnection.class)));
+        this.insertMessageSql = INSERT_MESSAGE_SQL.formatted(jsonParameter);
+    }
+
+    public Counts load(String userId, List<SessionRow> sessions, List<MessageRow> messages) {
+        return copySupported ? copy(userId, sessions, messages) : batchInsert(userId, sessions, messages);
+    }
+
+    private Counts copy(String userId, List<SessionRow> sessions, List<MessageRow> messages) {
+        return jdbcTemplate.execute((ConnectionCallback<Counts>) con -> {
+            int sessionCount = 0;
+            int messageCount = 0;
+            if (!sessions.isEmpty()) {
+                StringBuilder csv = new StringBuilder(sessions.size() * 96);
+                for (SessionRow s : sessions) {
+                    csvRow(csv, s.id(), s.title(), s.favorite(), timestamp(s.createdAt()), timestamp(s.updatedAt()));
+                }
+                sessionCount = copyAndMove(con, CREATE_SESSION_STAGE_SQL, COPY_SESSIONS_SQL, csv, MOVE_SESSIONS_SQL, userId);
+            }
+            if (!messages.isEmpty()) {
+                StringBuilder csv = new StringBuilder(messages.size() * 256);
+                for (MessageRow m : messages) {
+                    csvRow(csv, m.id(), m.sessionId(), m.sender().name(), m.content(), m.context(), timestamp(m.createdAt()));
+                }
+                messageCount = copyAndMove(con, CREATE_MESSAGE_STAGE_SQL, COPY_MESSAGES_SQL, csv, MOVE_MESSAGES_SQL, userId);
+            }
+            return new Counts(sessionCount, messageCount);
+        });
+    }
+
+    private static int copyAndMove(Connection con, String createSql, String copySql, StringBuilder csv,
+                                   String moveSql, String userId) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(createSql);
+        }
+        try {
+            con.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql, new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (var ps = con.prepareStatement(moveSql)) {
+            ps.setString(1, userId);
+            return ps.executeUpdate();
+        }
+    }
+
+    private Counts batchInsert(String userId, List<SessionRow> sessions, List<MessageRow> messages) {
+        int sessionCount = insert(INSERT_SESSION_SQL, sessions, (ps, s) -> {
+            ps.setObject(1, s.id());
+            ps.setString(2, userId);
+            ps.setString(3, s.title());
+            ps.setBoolean(4, s.favorite());
+            ps.setObject(5, timestamp(s.createdAt()));
+            ps.setObject(6, timestamp(s.updatedAt()));
+            ps.setObject(7, s.id());
+        });
+        int messageCount = insert(insertMessageSql, messages, (ps, m) -> {
+            ps.setObject(1, m.id());
+            ps.setString(2, m.sender().name());
+            ps.setString(3, m.content());
+            ps.setString(4, m.context());
+            ps.setObject(5, timestamp(m.createdAt()));
+            ps.setObject(6, m.sessionId());
+            ps.setString(7, userId);
+            ps.setObject(8, m.id());
+        });
+        return new Counts(sessionCount, messageCount);
+    }
+
+    /**
+     * Runs the rows as one batch and returns how many were inserted. A driver may answer a batch with
+     * {@link Statement#SUCCESS_NO_INFO}, which does not tell an inserted row from a skipped one; the batch
+     * is then rolled back to a savepoint and the rows run one by one, where every update count is exact.
+     */
+    private <T> int insert(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+            Savepoint beforeBatch = con.setSavepoint();
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (T row : rows) {
+                    setter.setValues(ps, row);
+                    ps.addBatch();
+                }
+                int inserted = 0;
+                boolean reported = true;
+                for (int count : ps.executeBatch()) {
+                    reported &= count != Statement.SUCCESS_NO_INFO;
+                    inserted += count;
+                }
+                if (reported) {
+                    con.releaseSavepoint(beforeBatch);
+                    return inserted;
+                }
+            }
+            con.rollback(beforeBatch);
+            int inserted = 0;
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (T row : rows) {
+                    setter.setValues(ps, row);
+                    inserted += ps.executeUpdate();
+                }
+            }
+            return inserted;
+        });
+    }
+
+    private static OffsetDateTime timestamp(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    /** CSV as read by COPY: every value quoted, null as an unquoted empty field. */
+    private static void csvRow(StringBuilder csv, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            if (values[i] != null) {
+                csv.append('"').append(values[i].toString().replace("\"", "\"\"")).append('"');
+            }
+        }
+        csv.append('\n');
+    }
+}
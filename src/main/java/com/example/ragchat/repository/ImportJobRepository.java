@@ -0,0 +1,12 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.entity.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, UUID> {
+
+    Optional<ImportJob> findByIdAndUserId(UUID id, String userId);
+}
@@ -0,0 +1,85 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.dto.MessageField;
+import com.example.ragchat.model.entity.Message;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Message queries that fold the session ownership check into the statement that reads or writes
+ * the messages, so each request costs one round trip.
+ */
+public interface MessageRepositoryCustom {
+
+    /**
+     * Inserts the messages (id and createdAt must be set) only if the session belongs to the user,
+     * as one JDBC batch of INSERT ... SELECT statements.
+     *
+     * @return number of rows inserted: all of them, or 0 if the session is missing or not owned
+     */
+    int insertIfSessionOwned(UUID sessionId, String userId, List<Message> messages);
+
+    /**
+     * One page of messages plus the total count (window function), joined to the owning session.
+     *
+     * @return empty if the session is missing or not owned, or if the page lies beyond the last message
+     */
+    Optional<Page<Message>> findPageIfSessionOwned(UUID sessionId, String userId, Pageable pageable);
+
+    /**
+     * Count-free page: size + 1 messages of an owned session to compute hasNext, no window count.
+     *
+     * @return empty if the session is missing or not owned, or if the page lies beyond the last message
+     */
+    Optional<Slice<Message>> findSliceIfSessionOwned(UUID sessionId, String userId, Pageable pageable);
+
+    /**
+     * Keyset slice ordered by (createdAt, id), read straight off the (session_id, created_at, id) index.
+     * A null cursor starts from the oldest message (ascending) or the newest (descending).
+     *
+     * @return up to {@code limit} messages in the requested direction, or empty if the session is
+     *         missing or not owned
+     */
+    Optional<List<Message>> findKeysetIfSessionOwned(UUID sessionId, String userId, Instant cursorCreatedAt,
+                                                     UUID cursorId, boolean ascending, int limit);
+
+    /**
+     * {@link #findKeysetIfSessionOwned} reading only the requested columns (id and createdAt are always
+     * read, for cursors); the other attributes of the returned messages are left unset.
+     */
+    Optional<List<Message>> findKeysetFieldsIfSessionOwned(UUID sessionId, String userId, Instant cursorCreatedAt,
+                                                           UUID cursorId, boolean ascending, int limit,
+                                                           Set<MessageField> fields);
+
+    /**
+     * {@link #findPageIfSessionOwned} reading only the requested columns into detached messages (id
+     * and createdAt are always read). Leaving out context skips reading and parsing the JSON.
+     */
+    Optional<Page<Message>> findFieldsPageIfSessionOwned(UUID sessionId, String userId, Set<MessageField> fields,
+                                                        Pageable pageable);
+
+    /** {@link #findSliceIfSessionOwned} reading only the requested columns, as {@link #findFieldsPageIfSessionOwned}. */
+    Optional<Slice<Message>> findFieldsSliceIfSessionOwned(UUID sessionId, String userId, Set<MessageField> fields,
+                                                          Pageable pageable);
+
+    /**
+     * @return the session's message count, or empty if the session is missing or not owned
+     */
+    Optional<Long> countIfSessionOwned(UUID sessionId, String userId);
+
+    /**
+     * Streams messages ordered by (createdAt, id) through a forward-only cursor with a bounded fetch
+     * size; columns are id, session_id, sender, content, context (JSON text), created_at. With a null
+     * session every session of the user is streamed, grouped by session. Must run inside a transaction:
+     * PostgreSQL only honours the fetch size with autocommit off.
+     */
+    void streamOwned(String userId, UUID sessionId, RowCallbackHandler handler);
+}
@@ -0,0 +1,415 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.dto.MessageField;
+import com.example.ragchat.model.entity.Message;
+import com.example.ragchat.model.entity.MessageSender;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+class MessageRepositoryImpl implements MessageRepositoryCustom {
+
+    private static final String INSERT_IF_OWNED_SQL = """
+            INSERT INTO messages (id, session_id, sender, content, context, created_at)
+            SELECT ?, s.id, ?, ?, %s, ? FROM sessions s WHERE s.id = ? AND s.user_id = ?
+            """;
+
+    /**
+     * The first branch is a plain index-ordered scan with LIMIT, gated by a one-time ownership check;
+     * the second branch adds a sentinel row of NULLs when the session is owned, so "no rows at all"
+     * means 404. UNION ALL does not promise to keep the branch order, so the page is put back in keyset
+     * order in Java ({@link #KEYSET_ORDER}) rather than by an outer sort. Columns are id and created_at
+     * (needed for cursors) followed by any of sender, content and context.
+     */
+    private static final String KEYSET_SQL = """
+            (SELECT %1$s FROM messages m
+             WHERE m.session_id = ?%2$s
+               AND EXISTS (SELECT 1 FROM sessions o WHERE o.id = ? AND o.user_id = ?)
+             ORDER BY m.created_at %3$s, m.id %3$s
+             LIMIT ?)
+            UNION ALL
+            SELECT %4$s FROM sessions s WHERE s.id = ? AND s.user_id = ?
+            """;
+
+    /** created_at, then id as PostgreSQL compares uuids (unsigned, byte by byte), unlike UUID.compareTo. */
+    private static final Comparator<Message> KEYSET_ORDER = Comparator.comparing(Message::getCreatedAt)
+            .thenComparing(Message::getId, (a, b) -> {
+                int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            });
+
+    /** Columns a projection may leave out; their positions are the bits of a column mask. */
+    private static final List<MessageField> OPTIONAL = List.of(MessageField.sender, MessageField.content, MessageField.context);
+    private static final int ALL_COLUMNS = (1 << OPTIONAL.size()) - 1;
+
+    /** Keyset statements indexed by {@link #keysetIndex}, for every column mask and cursor direction. */
+    private static final String[] KEYSET_SQLS = new String[(ALL_COLUMNS + 1) * 4];
+
+    static {
+        for (int mask = 0; mask <= ALL_COLUMNS; mask++) {
+            StringBuilder columns = new StringBuilder("m.id, m.created_at");
+            StringBuilder nulls = new StringBuilder("NULL, NULL");
+            for (int i = 0; i < OPTIONAL.size(); i++) {
+                if ((mask & 1 << i) != 0) {
+                    columns.append(", m.").append(OPTIONAL.get(i).name());
+                    nulls.append(", NULL");
+                }
+            }
+            String cols = columns.toString();
+            String sentinel = nulls.toString();
+            KEYSET_SQLS[keysetIndex(mask, true, true)] = KEYSET_SQL.formatted(cols, "", "ASC", sentinel);
+            KEYSET_SQLS[keysetIndex(mask, true, false)] = KEYSET_SQL.formatted(cols, "", "DESC", sentinel);
+            KEYSET_SQLS[keysetIndex(mask, false, true)] =
+                    KEYSET_SQL.formatted(cols, " AND (m.created_at, m.id) > (?, ?)", "ASC", sentinel);
+            KEYSET_SQLS[keysetIndex(mask, false, false)] =
+                    KEYSET_SQL.formatted(cols, " AND (m.created_at, m.id) < (?, ?)", "DESC", sentinel);
+        }
+    }
+
+    static final String KEYSET_FIRST_SQL = KEYSET_SQLS[keysetIndex(ALL_COLUMNS, true, true)];
+    static final String KEYSET_LAST_SQL = KEYSET_SQLS[keysetIndex(ALL_COLUMNS, true, false)];
+    static final String KEYSET_AFTER_SQL = KEYSET_SQLS[keysetIndex(ALL_COLUMNS, false, true)];
+    static final String KEYSET_BEFORE_SQL = KEYSET_SQLS[keysetIndex(ALL_COLUMNS, false, false)];
+
+    private static final String STREAM_COLUMNS = "SELECT m.id, m.session_id, m.sender, m.content, m.context, m.created_at FROM messages m ";
+    static final String STREAM_SESSION_SQL = STREAM_COLUMNS + """
+            WHERE m.session_id = ?
+              AND EXISTS (SELECT 1 FROM sessions o WHERE o.id = ? AND o.user_id = ?)
+            ORDER BY m.created_at, m.id
+            """;
+    static final String STREAM_USER_SQL = STREAM_COLUMNS + """
+            JOIN sessions s ON s.id = m.session_id
+            WHERE s.user_id = ?
+            ORDER BY m.session_id, m.created_at, m.id
+            """;
+
+    /** Rows held per cursor round trip during exports. */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /** Message attributes clients may sort by (guards the HQL built from Pageable). */
+    private static final Set<String> SORTABLE = Set.of("id", "sender", "content", "createdAt");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final String insertIfOwnedSql;
+
+    /**
+     * @param jsonParameter SQL expression binding a JSON text parameter to the jsonb column
+     *                      ({@code app.sql.json-parameter})
+     */
+    MessageRepositoryImpl(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                          @Value("${app.sql.json-parameter:CAST(? AS jsonb)}") String jsonParameter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.insertIfOwnedSql = INSERT_IF_OWNED_SQL.formatted(jsonParameter);
+        this.streamJdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.streamJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    @Override
+    public int insertIfSessionOwned(UUID sessionId, String userId, List<Message> messages) {
+        int[] counts = jdbcTemplate.batchUpdate(insertIfOwnedSql, messages, messages.size(), (ps, m) -> {
+            ps.setObject(1, m.getId());
+            ps.setString(2, m.getSender().name());
+            ps.setString(3, m.getContent());
+            ps.setString(4, toJson(m));
+            ps.setObject(5, OffsetDateTime.ofInstant(m.getCreatedAt(), ZoneOffset.UTC));
+            ps.setObject(6, sessionId);
+            ps.setString(7, userId);
+        })[0];
+        int inserted = 0;
+        int unknown = 0;
+        for (int count : counts) {
+            if (count == Statement.SUCCESS_NO_INFO) {
+                unknown++;
+            } else {
+                inserted += count;
+            }
+        }
+        // A driver that reports no row counts leaves "not owned" (0 rows) undistinguished from success:
+        // every statement inserts one row exactly when the session is owned, so ask that directly
+        if (unknown > 0 && isSessionOwned(sessionId, userId)) {
+            inserted += unknown;
+        }
+        return inserted;
+    }
+
+    private boolean isSessionOwned(UUID sessionId, String userId) {
+        Integer owned = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sessions WHERE id = ? AND user_id = ?",
+                Integer.class, sessionId, userId);
+        return owned != null && owned > 0;
+    }
+
+    @Override
+    public Optional<Page<Message>> findPageIfSessionOwned(UUID sessionId, String userId, Pageable pageable) {
+        // Left join keeps one (null) message row for an owned but empty session, so "no rows" means not owned
+        String hql = "select m, count(m.id) over () from Session s left join s.messages m "
+                + "where s.id = :sessionId and s.userId = :userId order by " + orderBy(pageable.getSort());
+        var query = entityManager.createQuery(hql, Object[].class)
+                .setParameter("sessionId", sessionId)
+                .setParameter("userId", userId);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        List<Object[]> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Message> content = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                content.add((Message) row[0]);
+            }
+        }
+        long total = (Long) rows.get(0)[1];
+        return Optional.of(new PageImpl<>(content, pageable, total));
+    }
+
+    @Override
+    public Optional<Slice<Message>> findSliceIfSessionOwned(UUID sessionId, String userId, Pageable pageable) {
+        // Driven from messages (not a left join from the session) so the planner can walk the index in order
+        String hql = "select m from Message m where m.session.id = :sessionId and m.session.userId = :userId "
+                + "order by " + orderBy(pageable.getSort());
+        var query = entityManager.createQuery(hql, Message.class)
+                .setParameter("sessionId", sessionId)
+                .setParameter("userId", userId);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize() + 1);
+        }
+        List<Message> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        boolean hasNext = pageable.isPaged() && rows.size() > pageable.getPageSize();
+        List<Message> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        return Optional.of(new SliceImpl<>(content, pageable, hasNext));
+    }
+
+    @Override
+    public Optional<List<Message>> findKeysetIfSessionOwned(UUID sessionId, String userId, Instant cursorCreatedAt,
+                                                            UUID cursorId, boolean ascending, int limit) {
+        return findKeysetFieldsIfSessionOwned(sessionId, userId, cursorCreatedAt, cursorId, ascending, limit, MessageField.ALL);
+    }
+
+    @Override
+    public Optional<List<Message>> findKeysetFieldsIfSessionOwned(UUID sessionId, String userId, Instant cursorCreatedAt,
+                                                                  UUID cursorId, boolean ascending, int limit,
+                                                                  Set<MessageField> fields) {
+        boolean fromEdge = cursorCreatedAt == null;
+        List<MessageField> optional = optionalColumns(fields);
+        String sql = KEYSET_SQLS[keysetIndex(columnMask(fields), fromEdge, ascending)];
+        List<Object> args = new ArrayList<>(9);
+        args.add(sessionId);
+        if (!fromEdge) {
+            args.add(OffsetDateTime.ofInstant(cursorCreatedAt, ZoneOffset.UTC));
+            args.add(cursorId);
+        }
+        args.addAll(List.of(sessionId, userId, limit, sessionId, userId));
+        List<Message> rows = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            UUID id = rs.getObject(1, UUID.class);
+            if (id == null) {
+                return null; // ownership sentinel
+            }
+            Message m = new Message();
+            m.setId(id);
+            m.setCreatedAt(rs.getObject(2, OffsetDateTime.class).toInstant());
+            for (int i = 0; i < optional.size(); i++) {
+                switch (optional.get(i)) {
+                    case sender -> m.setSender(MessageSender.valueOf(rs.getString(3 + i)));
+                    case content -> m.setContent(rs.getString(3 + i));
+                    case context -> m.setContext(parseJson(rs.getString(3 + i)));
+                    default -> throw new IllegalStateException("Not an optional column: " + optional.get(i));
+                }
+            }
+            return m;
+        }, args.toArray());
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(rows.stream().filter(Objects::nonNull)
+                .sorted(ascending ? KEYSET_ORDER : KEYSET_ORDER.reversed())
+                .toList());
+    }
+
+    @Override
+    public Optional<Page<Message>> findFieldsPageIfSessionOwned(UUID sessionId, String userId, Set<MessageField> fields,
+                                                               Pageable pageable) {
+        List<MessageField> optional = optionalColumns(fields);
+        // As findPageIfSessionOwned: the left join yields one null row for an owned but empty session
+        String hql = "select m.id, m.createdAt" + selectList(optional) + ", count(m.id) over () "
+                + "from Session s left join s.messages m "
+                + "where s.id = :sessionId and s.userId = :userId order by " + orderBy(pageable.getSort());
+        List<Object[]> rows = projection(hql, sessionId, userId, pageable, 0);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Message> content = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                content.add(toMessage(row, optional));
+            }
+        }
+        long total = (Long) rows.get(0)[2 + optional.size()];
+        return Optional.of(new PageImpl<>(content, pageable, total));
+    }
+
+    @Override
+    public Optional<Slice<Message>> findFieldsSliceIfSessionOwned(UUID sessionId, String userId, Set<MessageField> fields,
+                                                                 Pageable pageable) {
+        List<MessageField> optional = optionalColumns(fields);
+        String hql = "select m.id, m.createdAt" + selectList(optional) + " from Message m "
+                + "where m.session.id = :sessionId and m.session.userId = :userId order by " + orderBy(pageable.getSort());
+        List<Object[]> rows = projection(hql, sessionId, userId, pageable, 1);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        boolean hasNext = pageable.isPaged() && rows.size() > pageable.getPageSize();
+        List<Message> content = new ArrayList<>(Math.min(rows.size(), pageable.isPaged() ? pageable.getPageSize() : rows.size()));
+        for (Object[] row : hasNext ? rows.subList(0, pageable.getPageSize()) : rows) {
+            content.add(toMessage(row, optional));
+        }
+        return Optional.of(new SliceImpl<>(content, pageable, hasNext));
+    }
+
+    @Override
+    public Optional<Long> countIfSessionOwned(UUID sessionId, String userId) {
+        return entityManager.createQuery("select count(m.id) from Session s left join s.messages m "
+                        + "where s.id = :sessionId and s.userId = :userId group by s.id", Long.class)
+                .setParameter("sessionId", sessionId)
+                .setParameter("userId", userId)
+                .getResultStream()
+                .findFirst();
+    }
+
+    private List<Object[]> projection(String hql, UUID sessionId, String userId, Pageable pageable, int extra) {
+        var query = entityManager.createQuery(hql, Object[].class)
+                .setParameter("sessionId", sessionId)
+                .setParameter("userId", userId);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize() + extra);
+        }
+        return query.getResultList();
+    }
+
+    /** A detached message with id, createdAt and the optional attributes of a projected row set. */
+    private static Message toMessage(Object[] row, List<MessageField> optional) {
+        Message m = new Message();
+        m.setId((UUID) row[0]);
+        m.setCreatedAt((Instant) row[1]);
+        for (int i = 0; i < optional.size(); i++) {
+            Object value = row[2 + i];
+            switch (optional.get(i)) {
+                case sender -> m.setSender((MessageSender) value);
+                case content -> m.setContent((String) value);
+                case context -> m.setContext((JsonNode) value);
+                default -> throw new IllegalStateException("Not an optional column: " + optional.get(i));
+            }
+        }
+        return m;
+    }
+
+    /** The requested columns beyond id and created_at, which projections always read. */
+    private static List<MessageField> optionalColumns(Set<MessageField> fields) {
+        return OPTIONAL.stream().filter(fields::contains).toList();
+    }
+
+    private static String selectList(List<MessageField> optional) {
+        StringBuilder select = new StringBuilder();
+        for (MessageField field : optional) {
+            select.append(", m.").append(field.name());
+        }
+        return select.toString();
+    }
+
+    private static int columnMask(Set<MessageField> fields) {
+        int mask = 0;
+        for (int i = 0; i < OPTIONAL.size(); i++) {
+            if (fields.contains(OPTIONAL.get(i))) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private static int keysetIndex(int columnMask, boolean fromEdge, boolean ascending) {
+        return columnMask << 2 | (fromEdge ? 2 : 0) | (ascending ? 1 : 0);
+    }
+
+    private static String orderBy(Sort sort) {
+        StringJoiner joiner = new StringJoiner(", ");
+        boolean hasId = false;
+        for (Sort.Order order : sort) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Cannot sort messages by '" + order.getProperty() + "'");
+            }
+            joiner.add("m." + order.getProperty() + (order.isAscending() ? " asc" : " desc"));
+            hasId |= "id".equals(order.getProperty());
+        }
+        if (sort.isUnsorted()) {
+            joiner.add("m.createdAt asc");
+        }
+        if (!hasId) {
+            joiner.add("m.id asc");
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public void streamOwned(String userId, UUID sessionId, RowCallbackHandler handler) {
+        if (sessionId != null) {
+            streamJdbcTemplate.query(STREAM_SESSION_SQL, handler, sessionId, sessionId, userId);
+        } else {
+            streamJdbcTemplate.query(STREAM_USER_SQL, handler, userId);
+        }
+    }
+
+    private JsonNode parseJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored message context is not valid JSON", e);
+        }
+    }
+
+    private String toJson(Message m) {
+        if (m.getContext() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(m.getContext());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid message context", e);
+        }
+    }
+}
@@ -3,18 +3,36 @@ package com.example.ragchat.repository;
 import com.example.ragchat.model.entity.Session;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface SessionRepository extends JpaRepository<Session, UUID> {
+public interface SessionRepository extends JpaRepository<Session, UUID>, SessionRepositoryCustom {
 
     Page<Session> findByUserId(String userId, Pageable pageable);
 
     Page<Session> findByUserIdAndFavorite(String userId, boolean favorite, Pageable pageable);
 
+    // Count-free variants: fetch size + 1 rows to compute hasNext instead of running COUNT(*)
+
+    Slice<Session> findSliceByUserId(String userId, Pageable pageable);
+
+    Slice<Session> findSliceByUserIdAndFavorite(String userId, boolean favorite, Pageable pageable);
+
     Optional<Session> findByIdAndUserId(UUID id, String userId);
 
     boolean existsByIdAndUserId(UUID id, String userId);
+
+    /** Owner of the session, if it exists (loads the ownership cache). */
+    @Query("select s.userId from Session s where s.id = :id")
+    Optional<String> findUserIdById(@Param("id") UUID id);
+
+    /** Keyset scan of all session ids in id order (builds the session id Bloom filter). */
+    @Query("select s.id from Session s where s.id > :after order by s.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Pageable pageable);
 }
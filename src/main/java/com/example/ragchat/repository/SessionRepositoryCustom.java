@@ -0,0 +1,22 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.dto.SessionField;
+import com.example.ragchat.model.entity.Session;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Set;
+
+/**
+ * Session lists that select only the requested columns. Results are detached {@link Session}
+ * instances with only those attributes set.
+ */
+public interface SessionRepositoryCustom {
+
+    /** Page of the user's sessions (optionally filtered by favorite); counts only when the page is full. */
+    Page<Session> findFieldsByUserId(String userId, Boolean favorite, Set<SessionField> fields, Pageable pageable);
+
+    /** Count-free variant: size + 1 rows decide hasNext. */
+    Slice<Session> findFieldsSliceByUserId(String userId, Boolean favorite, Set<SessionField> fields, Pageable pageable);
+}
@@ -0,0 +1,113 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.dto.SessionField;
+import com.example.ragchat.model.entity.Session;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+class SessionRepositoryImpl implements SessionRepositoryCustom {
+
+    /** Session attributes clients may sort by (guards the HQL built from Pageable). */
+    private static final Set<String> SORTABLE = Set.of("id", "title", "favorite", "createdAt", "updatedAt");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Session> findFieldsByUserId(String userId, Boolean favorite, Set<SessionField> fields, Pageable pageable) {
+        List<Session> content = query(userId, favorite, fields, pageable, 0);
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            var count = entityManager.createQuery("select count(s.id) from Session s" + where(favorite), Long.class);
+            return bind(count, userId, favorite).getSingleResult();
+        });
+    }
+
+    @Override
+    public Slice<Session> findFieldsSliceByUserId(String userId, Boolean favorite, Set<SessionField> fields, Pageable pageable) {
+        List<Session> rows = query(userId, favorite, fields, pageable, 1);
+        boolean hasNext = pageable.isPaged() && rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private List<Session> query(String userId, Boolean favorite, Set<SessionField> fields, Pageable pageable, int extra) {
+        List<String> attributes = attributes(fields);
+        String hql = "select " + String.join(", ", attributes.stream().map(a -> "s." + a).toList())
+                + " from Session s" + where(favorite) + " order by " + orderBy(pageable.getSort());
+        TypedQuery<Object[]> query = bind(entityManager.createQuery(hql, Object[].class), userId, favorite);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize() + extra);
+        }
+        List<Object[]> rows = query.getResultList();
+        List<Session> sessions = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Session s = new Session();
+            for (int i = 0; i < row.length; i++) {
+                switch (attributes.get(i)) {
+                    case "id" -> s.setId((UUID) row[i]);
+                    case "title" -> s.setTitle((String) row[i]);
+                    case "favorite" -> s.setFavorite((Boolean) row[i]);
+                    case "createdAt" -> s.setCreatedAt((Instant) row[i]);
+                    case "updatedAt" -> s.setUpdatedAt((Instant) row[i]);
+                    default -> throw new IllegalStateException("Unmapped session attribute " + attributes.get(i));
+                }
+            }
+            sessions.add(s);
+        }
+        return sessions;
+    }
+
+    /** Entity attributes to select, in field order; id and sessionId are both read from the id column. */
+    private static List<String> attributes(Set<SessionField> fields) {
+        Set<String> attributes = new LinkedHashSet<>();
+        for (SessionField field : fields) {
+            attributes.add(field == SessionField.sessionId ? "id" : field.name());
+        }
+        return List.copyOf(attributes);
+    }
+
+    private static String where(Boolean favorite) {
+        return " where s.userId = :userId" + (favorite != null ? " and s.favorite = :favorite" : "");
+    }
+
+    private static <Q extends TypedQuery<?>> Q bind(Q query, String userId, Boolean favorite) {
+        query.setParameter("userId", userId);
+        if (favorite != null) {
+            query.setParameter("favorite", favorite);
+        }
+        return query;
+    }
+
+    private static String orderBy(Sort sort) {
+        StringJoiner joiner = new StringJoiner(", ");
+        boolean hasId = false;
+        for (Sort.Order order : sort) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Cannot sort sessions by '" + order.getProperty() + "'");
+            }
+            joiner.add("s." + order.getProperty() + (order.isAscending() ? " asc" : " desc"));
+            hasId |= "id".equals(order.getProperty());
+        }
+        if (sort.isUnsorted()) {
+            joiner.add("s.updatedAt desc");
+        }
+        if (!hasId) {
+            joiner.add("s.id asc");
+        }
+        return joiner.toString();
+    }
+}
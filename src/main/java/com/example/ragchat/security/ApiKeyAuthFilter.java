@@ -3,6 +3,7 @@ package com.example.ragchat.security;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -10,20 +11,38 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
 
 /**
  * Validates API key from X-API-Key or Authorization: ApiKey <key> and sets authentication.
+ * Accepts the static {@code app.api-key} (with key management rights) and the tenant keys of the
+ * {@link ApiKeyRegistry}; either way the key is hashed once and compared in constant time.
+ * <p>
+ * With a tenant key, X-User-Id is seen by everything downstream as {@code <tenantId>:<X-User-Id>}, so
+ * each tenant's users own their own sessions and one tenant's key cannot reach another tenant's data.
+ * Tenant ids contain no ':', so the first ':' always ends the tenant and no two tenant/user pairs share
+ * an owner id. Requests made with the static key keep the X-User-Id as sent, which therefore may not
+ * contain ':'. Owner ids longer than the {@code user_id} column are rejected with 400.
  */
 @Component
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
     private static final String HEADER_API_KEY = "X-API-Key";
+    private static final String HEADER_USER_ID = "X-User-Id";
     private static final String AUTH_HEADER_PREFIX = "ApiKey ";
+    private static final char TENANT_SEPARATOR = ':';
+    /** Length of {@code sessions.user_id}. */
+    static final int MAX_OWNER_ID_LENGTH = 255;
 
-    private final String validApiKey;
+    private final ApiKeyRegistry registry;
+    private final byte[] staticKeyHash;
 
-    public ApiKeyAuthFilter(@Value("${app.api-key:}") String validApiKey) {
-        this.validApiKey = validApiKey != null ? validApiKey : "";
+    public ApiKeyAuthFilter(ApiKeyRegistry registry, @Value("${app.api-key:}") String validApiKey) {
+        this.registry = registry;
+        this.staticKeyHash = validApiKey != null && !validApiKey.isBlank() ? ApiKeyRegistry.hash(validApiKey) : null;
     }
 
     @Override
@@ -37,12 +56,84 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
             }
         }
 
-        if (apiKey != null && !apiKey.isBlank() && apiKey.equals(validApiKey)) {
-            SecurityContextHolder.getContext().setAuthentication(new ApiKeyAuthenticationToken(apiKey));
+        ApiKeyAuthenticationToken authentication = apiKey != null && !apiKey.isBlank() ? authenticate(apiKey) : null;
+        if (authentication != null) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
         } else {
             SecurityContextHolder.clearContext();
         }
 
+        String userId = request.getHeader(HEADER_USER_ID);
+        if (authentication != null && userId != null) {
+            String ownerId;
+            try {
+                ownerId = ownerId(authentication.getPrincipal().tenantId(), userId);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.setContentType("application/json");
+                response.setCharacterEncoding("UTF-8");
+                response.getWriter().write("{\"status\":400,\"error\":\"Bad Request\",\"message\":\"" + e.getMessage() + "\"}");
+                return;
+            }
+            if (!ownerId.equals(userId)) {
+                request = new TenantUserRequest(request, ownerId);
+            }
+        }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * The id that owns the sessions of {@code userId}: scoped to the tenant for tenant keys, as sent for the
+     * static key (tenantId null).
+     *
+     * @throws IllegalArgumentException if the pair cannot be mapped to an unambiguous owner id that fits the column
+     */
+    static String ownerId(String tenantId, String userId) {
+        String ownerId;
+        if (tenantId == null) {
+            if (userId.indexOf(TENANT_SEPARATOR) >= 0) {
+                throw new IllegalArgumentException("X-User-Id must not contain ':'");
+            }
+            ownerId = userId;
+        } else {
+            if (!tenantId.matches(ApiKeyPrincipal.TENANT_ID_PATTERN)) {
+                throw new IllegalArgumentException("API key tenant id is not valid");
+            }
+            ownerId = tenantId + TENANT_SEPARATOR + userId;
+        }
+        if (ownerId.length() > MAX_OWNER_ID_LENGTH) {
+            throw new IllegalArgumentException("X-User-Id is too long");
+        }
+        return ownerId;
+    }
+
+    private ApiKeyAuthenticationToken authenticate(String apiKey) {
+        byte[] hash = ApiKeyRegistry.hash(apiKey);
+        if (staticKeyHash != null && MessageDigest.isEqual(hash, staticKeyHash)) {
+            return new ApiKeyAuthenticationToken(ApiKeyPrincipal.STATIC, true);
+        }
+        ApiKeyPrincipal principal = registry.find(hash);
+        return principal != null ? new ApiKeyAuthenticationToken(principal, false) : null;
+    }
+
+    /** Replaces the X-User-Id header with the tenant-scoped user id. */
+    private static final class TenantUserRequest extends HttpServletRequestWrapper {
+
+        private final String userId;
+
+        TenantUserRequest(HttpServletRequest request, String userId) {
+            super(request);
+            this.userId = userId;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return HEADER_USER_ID.equalsIgnoreCase(name) ? userId : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return HEADER_USER_ID.equalsIgnoreCase(name) ? Collections.enumeration(List.of(userId)) : super.getHeaders(name);
+        }
+    }
 }
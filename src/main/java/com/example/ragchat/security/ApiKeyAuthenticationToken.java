@@ -1,20 +1,20 @@
 package com.example.ragchat.security;
 
 import org.springframework.security.authentication.AbstractAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-
-import java.util.Collections;
+import org.springframework.security.core.authority.AuthorityUtils;
 
 /**
- * Authentication token for valid API key. Principal is the API key (or "authenticated").
+ * Authentication token for a valid API key. Principal is the {@link ApiKeyPrincipal}, never the key.
+ * The static {@code app.api-key} also has ROLE_ADMIN (key management).
  */
 public class ApiKeyAuthenticationToken extends AbstractAuthenticationToken {
 
-    private final String apiKey;
+    private final ApiKeyPrincipal principal;
 
-    public ApiKeyAuthenticationToken(String apiKey) {
-        super(Collections.singletonList(new SimpleGrantedAuthority("ROLE_API")));
-        this.apiKey = apiKey;
+    public ApiKeyAuthenticationToken(ApiKeyPrincipal principal, boolean admin) {
+        super(admin ? AuthorityUtils.createAuthorityList("ROLE_API", "ROLE_ADMIN")
+                : AuthorityUtils.createAuthorityList("ROLE_API"));
+        this.principal = principal;
         setAuthenticated(true);
     }
 
@@ -24,7 +24,7 @@ public class ApiKeyAuthenticationToken extends AbstractAuthenticationToken {
     }
 
     @Override
-    public Object getPrincipal() {
-        return apiKey;
+    public ApiKeyPrincipal getPrincipal() {
+        return principal;
     }
 }
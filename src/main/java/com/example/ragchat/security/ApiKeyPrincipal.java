@@ -0,0 +1,15 @@
+package com.example.ragchat.security;
+
+import java.util.UUID;
+
+/**
+ * Who a request authenticated as. Tenant keys from the {@link ApiKeyRegistry} carry their id, tenant
+ * and rate limit (null for the default); the static {@code app.api-key} is {@link #STATIC}.
+ */
+public record ApiKeyPrincipal(UUID keyId, String tenantId, Integer rateLimit) {
+
+    /** Tenant ids never contain the ':' that separates them from the user id in a scoped owner id. */
+    public static final String TENANT_ID_PATTERN = "[A-Za-z0-9_-]+";
+
+    public static final ApiKeyPrincipal STATIC = new ApiKeyPrincipal(null, null, null);
+}
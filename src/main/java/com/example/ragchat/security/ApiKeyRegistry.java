@@ -0,0 +1,236 @@
+package com.example.ragchat.security;
+
+import com.example.ragchat.model.entity.ApiKey;
+import com.example.ragchat.repository.ApiKeyRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory index of the tenant API keys in {@code api_keys}, so authentication is one hash and one
+ * map lookup, without SQL. Keys are random 256-bit values, so an unsalted SHA-256 is enough to store
+ * them; the index holds only hashes, keyed by their first 8 bytes, and the full hash is compared in
+ * constant time.
+ * <p>
+ * Loaded in full at startup (before the node reports ready), then refreshed every
+ * {@code refresh-interval} by reading the rows whose {@code updated_at} is at most
+ * {@code refresh-overlap} older than the newest change seen, which covers transactions that
+ * committed late and clock skew between nodes. Revocations are also sent to the other nodes on
+ * {@link #REVOCATION_CHANNEL}, so they apply at once rather than at the next refresh.
+ */
+@Component
+public class ApiKeyRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyRegistry.class);
+
+    /** Message body is the hex SHA-256 hash of the revoked key. */
+    public static final String REVOCATION_CHANNEL = "apiKeys:revoke";
+
+    private static final String KEY_PREFIX = "rcs_";
+    private static final int KEY_BYTES = 32;
+    private static final int LOAD_BATCH = 1000;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final MessageDigest SHA_256;
+
+    static {
+        try {
+            SHA_256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Keys whose hashes share the first 8 bytes (practically never more than one) are chained. */
+    private record Entry(byte[] hash, ApiKeyPrincipal principal, Entry next) {
+    }
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final Duration refreshInterval;
+    private final Duration refreshOverlap;
+    private final ConcurrentHashMap<Long, Entry> index = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** Newest {@code updated_at} read so far; guarded by this. */
+    private Instant refreshedUpTo;
+    private volatile Thread refresher;
+
+    public ApiKeyRegistry(ApiKeyRepository apiKeyRepository,
+                          @Autowired(required = false) StringRedisTemplate redisTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.api-keys.refresh-interval:5s}") Duration refreshInterval,
+                          @Value("${app.api-keys.refresh-overlap:1m}") Duration refreshOverlap) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.redisTemplate = redisTemplate;
+        this.refreshInterval = refreshInterval;
+        this.refreshOverlap = refreshOverlap;
+        Gauge.builder("apikeys.indexed", size, AtomicInteger::get)
+                .description("Active tenant API keys in this node's index")
+                .register(meterRegistry);
+    }
+
+    /** SHA-256 of the key as presented by a client. */
+    public static byte[] hash(String key) {
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) SHA_256.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException unreachable) {
+                throw new IllegalStateException(unreachable);
+            }
+        }
+        return digest.digest(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A new random key; only its {@link #hash} is to be stored. */
+    public static String generateKey() {
+        byte[] bytes = new byte[KEY_BYTES];
+        RANDOM.nextBytes(bytes);
+        return KEY_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** The active key with this hash, or null. */
+    public ApiKeyPrincipal find(byte[] hash) {
+        for (Entry e = index.get(slot(hash)); e != null; e = e.next()) {
+            if (MessageDigest.isEqual(e.hash(), hash)) {
+                return e.principal();
+            }
+        }
+        return null;
+    }
+
+    /** Adds or replaces a key in this node's index (other nodes pick it up at their next refresh). */
+    public void putLocal(byte[] hash, ApiKeyPrincipal principal) {
+        index.compute(slot(hash), (slot, head) -> {
+            Entry rest = without(head, hash);
+            if (rest == head) {
+                size.incrementAndGet();
+            }
+            return new Entry(hash, principal, rest);
+        });
+    }
+
+    /** Drops the key from this node's index (also called for revocations from other nodes). */
+    public void removeLocal(byte[] hash) {
+        index.computeIfPresent(slot(hash), (slot, head) -> {
+            Entry rest = without(head, hash);
+            if (rest != head) {
+                size.decrementAndGet();
+            }
+            return rest;
+        });
+    }
+
+    /** Drops the key on every node; nodes that miss the message drop it at their next refresh. */
+    public void revoke(byte[] hash) {
+        removeLocal(hash);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(REVOCATION_CHANNEL, HexFormat.of().formatHex(hash));
+        } catch (DataAccessException e) {
+            log.warn("API key revocation not broadcast, other nodes apply it within {}: {}",
+                    refreshInterval, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Initial API key load failed, only the static key is accepted until it succeeds: {}", e.getMessage());
+        }
+        refresher = Thread.ofVirtual().name("api-key-refresh").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(refreshInterval);
+                    refresh();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    log.warn("API key refresh failed: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.interrupt();
+        }
+    }
+
+    /** Applies the keys created, changed or revoked since the last refresh (all keys on the first one). */
+    public synchronized void refresh() {
+        Instant since = refreshedUpTo == null ? Instant.EPOCH : refreshedUpTo.minus(refreshOverlap);
+        UUID after = new UUID(0, 0);
+        Instant newest = refreshedUpTo;
+        List<ApiKey> batch;
+        do {
+            batch = apiKeyRepository.findChangedAfter(since, after, PageRequest.of(0, LOAD_BATCH));
+            for (ApiKey key : batch) {
+                if (key.getRevokedAt() != null) {
+                    removeLocal(key.getKeyHash());
+                } else {
+                    putLocal(key.getKeyHash(), new ApiKeyPrincipal(key.getId(), key.getTenantId(), key.getRateLimit()));
+                }
+            }
+            if (!batch.isEmpty()) {
+                ApiKey last = batch.get(batch.size() - 1);
+                since = last.getUpdatedAt();
+                after = last.getId();
+                if (newest == null || since.isAfter(newest)) {
+                    newest = since;
+                }
+            }
+        } while (batch.size() == LOAD_BATCH);
+        refreshedUpTo = newest != null ? newest : Instant.EPOCH;
+    }
+
+    private static Entry without(Entry head, byte[] hash) {
+        if (head == null) {
+            return null;
+        }
+        if (MessageDigest.isEqual(head.hash(), hash)) {
+            return head.next();
+        }
+        Entry rest = without(head.next(), hash);
+        return rest == head.next() ? head : new Entry(head.hash(), head.principal(), rest);
+    }
+
+    private static long slot(byte[] hash) {
+        return (long) LONG_VIEW.get(hash, 0);
+    }
+}
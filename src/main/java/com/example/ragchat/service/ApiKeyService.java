@@ -0,0 +1,66 @@
+package com.example.ragchat.service;
+
+import com.example.ragchat.exception.ResourceNotFoundException;
+import com.example.ragchat.model.dto.ApiKeyResponse;
+import com.example.ragchat.model.dto.CreateApiKeyRequest;
+import com.example.ragchat.model.entity.ApiKey;
+import com.example.ragchat.repository.ApiKeyRepository;
+import com.example.ragchat.security.ApiKeyPrincipal;
+import com.example.ragchat.security.ApiKeyRegistry;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tenant API key management. A created key is usable on this node at once and on the others after
+ * their next registry refresh; a revoked key is dropped on every node at once.
+ */
+@Service
+public class ApiKeyService {
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final ApiKeyRegistry registry;
+
+    public ApiKeyService(ApiKeyRepository apiKeyRepository, ApiKeyRegistry registry) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.registry = registry;
+    }
+
+    /** Returns the new key in clear; only its hash is stored. */
+    public ApiKeyResponse create(CreateApiKeyRequest request) {
+        String key = ApiKeyRegistry.generateKey();
+        ApiKey apiKey = new ApiKey();
+        apiKey.setTenantId(request.tenantId().trim());
+        apiKey.setName(request.name());
+        apiKey.setRateLimit(request.rateLimit());
+        apiKey.setKeyHash(ApiKeyRegistry.hash(key));
+        apiKey = apiKeyRepository.save(apiKey);
+        registry.putLocal(apiKey.getKeyHash(), new ApiKeyPrincipal(apiKey.getId(), apiKey.getTenantId(), apiKey.getRateLimit()));
+        return toResponse(apiKey, key);
+    }
+
+    public List<ApiKeyResponse> listByTenant(String tenantId) {
+        return apiKeyRepository.findByTenantIdOrderByCreatedAt(tenantId).stream()
+                .map(k -> toResponse(k, null))
+                .toList();
+    }
+
+    /** Idempotent: revoking a revoked key changes nothing. */
+    public ApiKeyResponse revoke(UUID id) {
+        ApiKey apiKey = apiKeyRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("API key", id));
+        if (apiKey.getRevokedAt() == null) {
+            apiKey.setRevokedAt(Instant.now());
+            apiKey = apiKeyRepository.save(apiKey);
+        }
+        registry.revoke(apiKey.getKeyHash());
+        return toResponse(apiKey, null);
+    }
+
+    private static ApiKeyResponse toResponse(ApiKey k, String key) {
+        return new ApiKeyResponse(k.getId(), k.getTenantId(), k.getName(), k.getRateLimit(), key, k.getCreatedAt(),
+                k.getRevokedAt());
+    }
+}
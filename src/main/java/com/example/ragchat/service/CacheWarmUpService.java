@@ -0,0 +1,135 @@
+package com.example.ragchat.service;
+
+import com.example.ragchat.cache.ActiveUserTracker;
+import com.example.ragchat.cache.MessageTailCache;
+import com.example.ragchat.model.dto.SessionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prefetches the caches of recently active users after a deploy or a Redis flush: their first
+ * session-list page (as the UI requests it) and the message tails of their most recent sessions.
+ * Entries that are still cached cost one Redis read. At most {@code concurrency} users are loaded at
+ * a time, so a warm-up never takes more than that many database connections.
+ */
+@Service
+@ConditionalOnBean(StringRedisTemplate.class)
+public class CacheWarmUpService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmUpService.class);
+
+    /** Same page as the session list endpoint's defaults, so it is the same cache key. */
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "updatedAt"));
+
+    public record Result(int users, int failed, long elapsedMillis) {
+    }
+
+    private final ActiveUserTracker activeUsers;
+    private final SessionService sessionService;
+    private final MessageService messageService;
+    private final MessageTailCache messageTail;
+    private final boolean onStartup;
+    private final Duration window;
+    private final int maxUsers;
+    private final int concurrency;
+    private final int tailSessions;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CacheWarmUpService(ActiveUserTracker activeUsers, SessionService sessionService, MessageService messageService,
+                              @Autowired(required = false) MessageTailCache messageTail,
+                              @Value("${app.cache.warmup.on-startup:true}") boolean onStartup,
+                              @Value("${app.cache.warmup.window:24h}") Duration window,
+                              @Value("${app.cache.warmup.max-users:1000}") int maxUsers,
+                              @Value("${app.cache.warmup.concurrency:4}") int concurrency,
+                              @Value("${app.cache.warmup.tail-sessions:3}") int tailSessions) {
+        this.activeUsers = activeUsers;
+        this.sessionService = sessionService;
+        this.messageService = messageService;
+        this.messageTail = messageTail;
+        this.onStartup = onStartup;
+        this.window = window;
+        this.maxUsers = maxUsers;
+        this.concurrency = concurrency;
+        this.tailSessions = tailSessions;
+    }
+
+    /** Warms up in the background so startup and readiness are not delayed. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (onStartup) {
+            Thread.ofVirtual().name("cache-warmup").start(this::warmUp);
+        }
+    }
+
+    /**
+     * Warms the caches of up to {@code max-users} users active within {@code window}, most recent
+     * first, and blocks until done. Empty if a warm-up is already running.
+     */
+    public Optional<Result> warmUp() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        long start = System.currentTimeMillis();
+        try {
+            List<String> users = activeUsers.recentUsers(window, maxUsers);
+            AtomicInteger failed = new AtomicInteger();
+            Semaphore permits = new Semaphore(concurrency);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String userId : users) {
+                    permits.acquire();
+                    executor.submit(() -> {
+                        try {
+                            warmUser(userId);
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                            log.debug("Cache warm-up failed for user {}: {}", userId, e.getMessage());
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+            Result result = new Result(users.size(), failed.get(), System.currentTimeMillis() - start);
+            log.info("Cache warm-up: {} users in {} ms, {} failed", result.users(), result.elapsedMillis(), result.failed());
+            return Optional.of(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            // E.g. Redis unavailable: the caches fill on demand instead
+            log.warn("Cache warm-up aborted: {}", e.getMessage());
+            return Optional.empty();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void warmUser(String userId) {
+        List<SessionResponse> sessions = sessionService.prefetch(userId, FIRST_PAGE).getContent();
+        if (messageTail == null) {
+            return;
+        }
+        for (SessionResponse session : sessions.subList(0, Math.min(tailSessions, sessions.size()))) {
+            messageService.getBySessionBefore(userId, session.id(), null, messageTail.size());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.ragchat.service;
+
+import com.example.ragchat.cache.MessageTailCache;
+import com.example.ragchat.cache.SessionOwnershipCache;
+import com.example.ragchat.config.SessionListCacheEvictor;
+import com.example.ragchat.exception.ResourceNotFoundException;
+import com.example.ragchat.model.dto.ImportJobResponse;
+import com.example.ragchat.model.entity.ImportJob;
+import com.example.ragchat.model.entity.ImportJobStatus;
+import com.example.ragchat.model.entity.MessageSender;
+import com.example.ragchat.model.entity.UuidV7Generator;
+import com.example.ragchat.repository.BulkImportRepository;
+import com.example.ragchat.repository.BulkImportRepository.MessageRow;
+import com.example.ragchat.repository.BulkImportRepository.SessionRow;
+import com.example.ragchat.repository.ImportJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bulk import of historical conversations from NDJSON, one session or message per line:
+ * <pre>
+ * {"type":"session","id":"uuid","title":"...","favorite":false,"createdAt":"...","updatedAt":"..."}
+ * {"type":"message","id":"uuid","sessionId":"uuid","sender":"user","content":"...","context":{...},"createdAt":"..."}
+ * </pre>
+ * Lines are committed in chunks together with the job checkpoint; resuming a job skips the lines
+ * it has already committed.
+ */
+@Service
+public class ImportService {
+
+    private final ImportJobRepository jobRepository;
+    private final BulkImportRepository bulkImportRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate tx;
+    private final SessionListCacheEvictor cacheEvictor;
+    private final MessageTailCache messageTail;
+    private final SessionOwnershipCache ownershipCache;
+    private final int chunkSize;
+
+    public ImportService(ImportJobRepository jobRepository, BulkImportRepository bulkImportRepository,
+                         ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                         SessionOwnershipCache ownershipCache,
+                         @Autowired(required = false) SessionListCacheEvictor cacheEvictor,
+                         @Autowired(required = false) MessageTailCache messageTail,
+                         @Value("${app.import.chunk-size:1000}") int chunkSize) {
+        this.jobRepository = jobRepository;
+        this.bulkImportRepository = bulkImportRepository;
+        this.objectMapper = objectMapper;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.cacheEvictor = cacheEvictor;
+        this.messageTail = messageTail;
+        this.ownershipCache = ownershipCache;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads the body to the end, committing every {@code chunkSize} lines. A malformed line stops the
+     * import with the job FAILED and the chunks before it committed; resend the corrected body with
+     * the job id to continue.
+     *
+     * @param resumeJobId job to continue, or null to start a new one
+     */
+    public ImportJobResponse importNdjson(String userId, UUID resumeJobId, InputStream body) throws IOException {
+        ImportJob job = resumeJobId != null ? resume(userId, resumeJobId) : start(userId);
+        if (job.getStatus() == ImportJobStatus.COMPLETED) {
+            return toResponse(job);
+        }
+        long checkpoint = job.getLinesProcessed();
+        long lineNo = 0;
+        List<SessionRow> sessions = new ArrayList<>();
+        List<MessageRow> messages = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo <= checkpoint || line.isBlank()) {
+                    continue;
+                }
+                parseLine(line, lineNo, sessions, messages);
+                if (sessions.size() + messages.size() >= chunkSize) {
+                    job = commitChunk(job, lineNo, sessions, messages);
+                }
+            }
+            job = commitChunk(job, Math.max(lineNo, checkpoint), sessions, messages);
+            job.setStatus(ImportJobStatus.COMPLETED);
+            job = jobRepository.save(job);
+        } catch (MalformedLineException e) {
+            job = fail(job, e);
+        } catch (RuntimeException | IOException e) {
+            fail(job, e);
+            throw e;
+        } finally {
+            if (cacheEvictor != null) {
+                cacheEvictor.evictForUser(userId);
+            }
+        }
+        return toResponse(job);
+    }
+
+    public ImportJobResponse getJob(String userId, UUID jobId) {
+        return toResponse(jobRepository.findByIdAndUserId(jobId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Import job", jobId)));
+    }
+
+    private ImportJob fail(ImportJob job, Exception e) {
+        job.setStatus(ImportJobStatus.FAILED);
+        job.setError(e.getMessage());
+        return jobRepository.save(job);
+    }
+
+    private ImportJob start(String userId) {
+        ImportJob job = new ImportJob();
+        job.setUserId(userId);
+        return jobRepository.save(job);
+    }
+
+    private ImportJob resume(String userId, UUID jobId) {
+        ImportJob job = jobRepository.findByIdAndUserId(jobId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Import job", jobId));
+        if (job.getStatus() == ImportJobStatus.FAILED) {
+            job.setStatus(ImportJobStatus.RUNNING);
+            job.setError(null);
+        }
+        return job;
+    }
+
+    /** Loads the buffered rows and advances the checkpoint in one transaction, then clears the buffers. */
+    private ImportJob commitChunk(ImportJob job, long lineNo, List<SessionRow> sessions, List<MessageRow> messages) {
+        ImportJob saved = tx.execute(status -> {
+            BulkImportRepository.Counts counts = bulkImportRepository.load(job.getUserId(), sessions, messages);
+            job.setLinesProcessed(lineNo);
+            job.setSessionsImported(job.getSessionsImported() + counts.sessions());
+            job.setMessagesImported(job.getMessagesImported() + counts.messages());
+            job.setRowsSkipped(job.getRowsSkipped() + sessions.size() + messages.size()
+                    - counts.sessions() - counts.messages());
+            if (messageTail != null && counts.messages() > 0) {
+                // Imported history may be newer than a cached tail
+                messages.stream().map(MessageRow::sessionId).distinct()
+                        .forEach(sessionId -> messageTail.invalidateAfterCommit(job.getUserId(), sessionId));
+            }
+            return jobRepository.save(job);
+        });
+        // Imported ids may have been cached as missing; other nodes' negative entries expire shortly
+        ownershipCache.recordCreated(sessions.stream().map(SessionRow::id).toList());
+        sessions.clear();
+        messages.clear();
+        return saved;
+    }
+
+    private void parseLine(String line, long lineNo, List<SessionRow> sessions, List<MessageRow> messages) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            String type = node.path("type").asText();
+            switch (type) {
+                case "session" -> {
+                    Instant createdAt = instant(node, "createdAt");
+                    String title = node.path("title").asText("").trim();
+                    if (title.length() > 500) {
+                        throw new IllegalArgumentException("title exceeds 500 characters");
+                    }
+                    sessions.add(new SessionRow(
+                            UUID.fromString(required(node, "id")),
+                            title.isEmpty() ? "New Chat" : title,
+                            node.path("favorite").asBoolean(false),
+                            createdAt,
+                            node.hasNonNull("updatedAt") ? instant(node, "updatedAt") : createdAt));
+                }
+                case "message" -> {
+                    String content = required(node, "content").trim();
+                    if (content.isEmpty()) {
+                        throw new IllegalArgumentException("content must not be blank");
+                    }
+                    JsonNode context = node.get("context");
+                    messages.add(new MessageRow(
+                            node.hasNonNull("id") ? UUID.fromString(node.get("id").asText()) : UuidV7Generator.generate(),
+                            UUID.fromString(required(node, "sessionId")),
+                            MessageSender.valueOf(required(node, "sender")),
+                            content,
+                            context == null || context.isNull() ? null : objectMapper.writeValueAsString(context),
+                            instant(node, "createdAt")));
+                }
+                default -> throw new IllegalArgumentException("type must be 'session' or 'message'");
+            }
+        } catch (JsonProcessingException e) {
+            throw new MalformedLineException("Line " + lineNo + ": invalid JSON", e);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new MalformedLineException("Line " + lineNo + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String required(JsonNode node, String field) {
+        if (!node.hasNonNull(field)) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return node.get(field).asText();
+    }
+
+    /** Missing timestamps default to now; stored at the database's microsecond precision. */
+    private static Instant instant(JsonNode node, String field) {
+        Instant instant = node.hasNonNull(field) ? Instant.parse(node.get(field).asText()) : Instant.now();
+        return instant.truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static ImportJobResponse toResponse(ImportJob job) {
+        return new ImportJobResponse(
+                job.getId(),
+                job.getStatus(),
+                job.getLinesProcessed(),
+                job.getSessionsImported(),
+                job.getMessagesImported(),
+                job.getRowsSkipped(),
+                job.getError(),
+                job.getCreatedAt(),
+                job.getUpdatedAt());
+    }
+
+    private static class MalformedLineException extends RuntimeException {
+        MalformedLineException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
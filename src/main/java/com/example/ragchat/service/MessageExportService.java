@@ -0,0 +1,92 @@
+package com.example.ragchat.service;
+
+import com.example.ragchat.cache.SessionOwnershipCache;
+import com.example.ragchat.exception.ResourceNotFoundException;
+import com.example.ragchat.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * NDJSON transcript export: one JSON object per message, written straight from the JDBC cursor to
+ * the response, so memory stays flat regardless of session length.
+ */
+@Service
+public class MessageExportService {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final MessageRepository messageRepository;
+    private final SessionOwnershipCache ownershipCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    public MessageExportService(MessageRepository messageRepository, SessionOwnershipCache ownershipCache,
+                                ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.messageRepository = messageRepository;
+        this.ownershipCache = ownershipCache;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /**
+     * Checks ownership up front (a 404 must be decided before the response is committed), then
+     * returns the body that streams the session's messages oldest first.
+     */
+    public StreamingResponseBody exportSession(String userId, UUID sessionId) {
+        if (!ownershipCache.isOwner(sessionId, userId)) {
+            throw new ResourceNotFoundException("Session", sessionId);
+        }
+        return out -> write(userId, sessionId, out);
+    }
+
+    /** Streams every message of every session owned by the user, grouped by session. */
+    public StreamingResponseBody exportUser(String userId) {
+        return out -> write(userId, null, out);
+    }
+
+    private void write(String userId, UUID sessionId, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null); // lines are separated by '\n' below
+            readOnlyTx.executeWithoutResult(status ->
+                    messageRepository.streamOwned(userId, sessionId, rs -> writeLine(json, rs)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeLine(JsonGenerator json, ResultSet rs) throws SQLException {
+        try {
+            json.writeStartObject();
+            json.writeStringField("id", rs.getObject(1, UUID.class).toString());
+            json.writeStringField("sessionId", rs.getObject(2, UUID.class).toString());
+            json.writeStringField("sender", rs.getString(3));
+            json.writeStringField("content", rs.getString(4));
+            String context = rs.getString(5);
+            json.writeFieldName("context");
+            if (context != null) {
+                json.writeRawValue(context); // stored JSON is written as-is, never parsed
+            } else {
+                json.writeNull();
+            }
+            json.writeStringField("createdAt", rs.getObject(6, OffsetDateTime.class).toInstant().toString());
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,49 +1,305 @@
 package com.example.ragchat.service;
 
+import com.example.ragchat.cache.MessageTailCache;
+import com.example.ragchat.cache.SessionOwnershipCache;
+import com.example.ragchat.exception.IngestQueueFullException;
 import com.example.ragchat.exception.ResourceNotFoundException;
 import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.CursorPageResponse;
+import com.example.ragchat.model.dto.MessageCursor;
+import com.example.ragchat.model.dto.MessageField;
 import com.example.ragchat.model.dto.MessageResponse;
 import com.example.ragchat.model.entity.Message;
-import com.example.ragchat.model.entity.Session;
+import com.example.ragchat.model.entity.UuidV7Generator;
 import com.example.ragchat.repository.MessageRepository;
-import com.example.ragchat.repository.SessionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
+/**
+ * Every read and write runs as a single ownership-checked statement: a missing or foreign session is
+ * detected from the same statement that inserts or selects the messages. Sessions the ownership cache
+ * already knows to be missing or foreign are rejected before any SQL.
+ */
 @Service
 public class MessageService {
 
     private final MessageRepository messageRepository;
-    private final SessionRepository sessionRepository;
+    private final SessionOwnershipCache ownershipCache;
+    private final WriteBehindMessageWriter writeBehindWriter;
+    private final MessageTailCache messageTail;
 
-    public MessageService(MessageRepository messageRepository, SessionRepository sessionRepository) {
+    public MessageService(MessageRepository messageRepository, SessionOwnershipCache ownershipCache,
+                          @Autowired(required = false) WriteBehindMessageWriter writeBehindWriter,
+                          @Autowired(required = false) MessageTailCache messageTail) {
         this.messageRepository = messageRepository;
-        this.sessionRepository = sessionRepository;
+        this.ownershipCache = ownershipCache;
+        this.writeBehindWriter = writeBehindWriter;
+        this.messageTail = messageTail;
+    }
+
+    /** True when write-behind ingestion is enabled (app.ingest.write-behind.enabled). */
+    public boolean supportsAsyncAdd() {
+        return writeBehindWriter != null;
+    }
+
+    /**
+     * Write-behind add: ownership is checked now (from the ownership cache, else one read), the row is
+     * written by the next group flush. The returned id and createdAt are final.
+     *
+     * @throws IngestQueueFullException if the queue is full
+     */
+    public MessageResponse addAsync(String userId, UUID sessionId, AddMessageRequest request) {
+        if (writeBehindWriter == null) {
+            throw new IllegalStateException("Write-behind ingestion is disabled");
+        }
+        if (!ownershipCache.isOwner(sessionId, userId)) {
+            throw new ResourceNotFoundException("Session", sessionId);
+        }
+        Message message = newMessage(request, Instant.now());
+        writeBehindWriter.enqueue(userId, sessionId, message);
+        return toResponse(message);
     }
 
     @Transactional
     public MessageResponse add(String userId, UUID sessionId, AddMessageRequest request) {
-        Session session = sessionRepository.findByIdAndUserId(sessionId, userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Session", sessionId));
+        rejectKnownNotOwner(userId, sessionId);
+        Message message = newMessage(request, Instant.now());
+        if (messageRepository.insertIfSessionOwned(sessionId, userId, List.of(message)) == 0) {
+            throw sessionNotFound(userId, sessionId);
+        }
+        ownershipCache.recordOwner(sessionId, userId);
+        MessageResponse response = toResponse(message);
+        if (messageTail != null) messageTail.appendAfterCommit(userId, sessionId, List.of(response));
+        return response;
+    }
+
+    /**
+     * Appends messages in request order as one JDBC batch in one transaction. Ownership is enforced
+     * by every row's INSERT ... SELECT, so either all rows are inserted or none.
+     */
+    @Transactional
+    public List<MessageResponse> addAll(String userId, UUID sessionId, List<AddMessageRequest> requests) {
+        rejectKnownNotOwner(userId, sessionId);
+        // Rows share one timestamp; the time-ordered IDs keep them in request order
+        Instant now = Instant.now();
+        List<Message> messages = new ArrayList<>(requests.size());
+        for (AddMessageRequest request : requests) {
+            messages.add(newMessage(request, now));
+        }
+        if (messageRepository.insertIfSessionOwned(sessionId, userId, messages) == 0) {
+            throw sessionNotFound(userId, sessionId);
+        }
+        ownershipCache.recordOwner(sessionId, userId);
+        List<MessageResponse> responses = messages.stream().map(MessageService::toResponse).toList();
+        if (messageTail != null) messageTail.appendAfterCommit(userId, sessionId, responses);
+        return responses;
+    }
+
+    @Transactional(readOnly = true)
+    public Page<MessageResponse> getBySession(String userId, UUID sessionId, Pageable pageable) {
+        rejectKnownNotOwner(userId, sessionId);
+        Page<Message> page = messageRepository.findPageIfSessionOwned(sessionId, userId, pageable)
+                .orElseGet(() -> emptyPageIfOwned(userId, sessionId, pageable));
+        ownershipCache.recordOwner(sessionId, userId);
+        return page.map(MessageService::toResponse);
+    }
+
+    /**
+     * Count-free listing: size + 1 rows decide hasNext, no total. An empty result is disambiguated
+     * (not owned vs. past the end) only on that rare path.
+     */
+    @Transactional(readOnly = true)
+    public Slice<MessageResponse> getBySessionSlice(String userId, UUID sessionId, Pageable pageable) {
+        rejectKnownNotOwner(userId, sessionId);
+        Slice<Message> slice = messageRepository.findSliceIfSessionOwned(sessionId, userId, pageable)
+                .orElseGet(() -> {
+                    emptyPageIfOwned(userId, sessionId, pageable);
+                    return new SliceImpl<>(List.of(), pageable, false);
+                });
+        ownershipCache.recordOwner(sessionId, userId);
+        return slice.map(MessageService::toResponse);
+    }
+
+    /**
+     * {@link #getBySession} limited to the requested fields, read by a query that selects only their
+     * columns (and id and createdAt).
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> getFieldsBySession(String userId, UUID sessionId, Set<MessageField> fields, Pageable pageable) {
+        rejectKnownNotOwner(userId, sessionId);
+        Page<Message> page = messageRepository.findFieldsPageIfSessionOwned(sessionId, userId, fields, pageable)
+                .orElseGet(() -> emptyPageIfOwned(userId, sessionId, pageable));
+        ownershipCache.recordOwner(sessionId, userId);
+        return page.map(m -> toFields(m, fields));
+    }
+
+    /** {@link #getBySessionSlice} limited to the requested fields. */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> getFieldsBySessionSlice(String userId, UUID sessionId, Set<MessageField> fields, Pageable pageable) {
+        rejectKnownNotOwner(userId, sessionId);
+        Slice<Message> slice = messageRepository.findFieldsSliceIfSessionOwned(sessionId, userId, fields, pageable)
+                .orElseGet(() -> {
+                    emptyPageIfOwned(userId, sessionId, pageable);
+                    return new SliceImpl<>(List.of(), pageable, false);
+                });
+        ownershipCache.recordOwner(sessionId, userId);
+        return slice.map(m -> toFields(m, fields));
+    }
+
+    /**
+     * Keyset page of messages strictly after the cursor, oldest first. An empty cursor starts at the
+     * oldest message.
+     */
+    public CursorPageResponse<MessageResponse> getBySessionAfter(String userId, UUID sessionId, String cursor, int size) {
+        boolean fromStart = cursor == null || cursor.isBlank();
+        List<Message> found = findKeyset(userId, sessionId, fromStart ? null : MessageCursor.decode(cursor), true, size + 1);
+        return afterPage(found, size, fromStart, MessageService::toResponse);
+    }
+
+    /** {@link #getBySessionAfter} limited to the requested fields. */
+    public CursorPageResponse<Map<String, Object>> getFieldsBySessionAfter(String userId, UUID sessionId, String cursor, int size,
+                                                                       Set<MessageField> fields) {
+        boolean fromStart = cursor == null || cursor.isBlank();
+        List<Message> found = findKeysetFields(userId, sessionId, fromStart ? null : MessageCursor.decode(cursor), true, size + 1, fields);
+        return afterPage(found, size, fromStart, m -> toFields(m, fields));
+    }
+
+    private static <T> CursorPageResponse<T> afterPage(List<Message> found, int size, boolean fromStart, Function<Message, T> mapper) {
+        boolean hasMore = found.size() > size;
+        List<Message> page = found.subList(0, Math.min(size, found.size()));
+        String next = hasMore ? cursorOf(page.get(page.size() - 1)) : null;
+        String prev = !fromStart && !page.isEmpty() ? cursorOf(page.get(0)) : null;
+        return new CursorPageResponse<>(page.stream().map(mapper).toList(), size, next, prev);
+    }
+
+    /**
+     * Keyset page of messages strictly before the cursor, returned oldest first. An empty cursor
+     * returns the most recent messages, served from the tail cache when the page fits in it.
+     */
+    public CursorPageResponse<MessageResponse> getBySessionBefore(String userId, UUID sessionId, String cursor, int size) {
+        boolean fromEnd = cursor == null || cursor.isBlank();
+        if (fromEnd && messageTail != null && size <= messageTail.size()) {
+            return latestFromTail(userId, sessionId, size);
+        }
+        List<MessageResponse> found = findKeyset(userId, sessionId, fromEnd ? null : MessageCursor.decode(cursor), false, size + 1)
+                .stream().map(MessageService::toResponse).toList();
+        return beforePage(found, size, fromEnd, MessageService::cursorOf);
+    }
+
+    /**
+     * {@link #getBySessionBefore} limited to the requested fields. Always read from the database: the
+     * tail cache holds full messages.
+     */
+    public CursorPageResponse<Map<String, Object>> getFieldsBySessionBefore(String userId, UUID sessionId, String cursor, int size,
+                                                                        Set<MessageField> fields) {
+        boolean fromEnd = cursor == null || cursor.isBlank();
+        List<Message> newestFirst = findKeysetFields(userId, sessionId, fromEnd ? null : MessageCursor.decode(cursor), false, size + 1, fields);
+        CursorPageResponse<Message> page = beforePage(newestFirst, size, fromEnd, MessageService::cursorOf);
+        return new CursorPageResponse<>(page.content().stream().map(m -> toFields(m, fields)).toList(),
+                size, page.nextCursor(), page.prevCursor());
+    }
+
+    /** On a miss the newest messages are loaded once, returned, and used to populate the tail. */
+    private CursorPageResponse<MessageResponse> latestFromTail(String userId, UUID sessionId, int size) {
+        rejectKnownNotOwner(userId, sessionId);
+        MessageTailCache.Lookup tail = messageTail.read(userId, sessionId);
+        if (tail.hit()) {
+            ownershipCache.recordOwner(sessionId, userId); // tail keys include the owner
+            List<MessageResponse> newestFirst = new ArrayList<>(tail.messages());
+            Collections.reverse(newestFirst);
+            return beforePage(newestFirst, size, true, MessageService::cursorOf);
+        }
+        List<MessageResponse> newestFirst = findKeyset(userId, sessionId, null, false, messageTail.loadSize())
+                .stream().map(MessageService::toResponse).toList();
+        messageTail.populate(userId, sessionId, tail.version(), newestFirst);
+        return beforePage(newestFirst, size, true, MessageService::cursorOf);
+    }
+
+    /** Builds a "before" page from up to size + 1 messages, newest first; returned oldest first. */
+    private static <T> CursorPageResponse<T> beforePage(List<T> newestFirst, int size, boolean fromEnd, Function<T, String> cursorOf) {
+        boolean hasMore = newestFirst.size() > size;
+        List<T> content = new ArrayList<>(newestFirst.subList(0, Math.min(size, newestFirst.size())));
+        Collections.reverse(content);
+        String prev = hasMore ? cursorOf.apply(content.get(0)) : null;
+        String next = !fromEnd && !content.isEmpty() ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return new CursorPageResponse<>(List.copyOf(content), size, next, prev);
+    }
+
+    private List<Message> findKeyset(String userId, UUID sessionId, MessageCursor cursor, boolean ascending, int limit) {
+        rejectKnownNotOwner(userId, sessionId);
+        List<Message> found = messageRepository.findKeysetIfSessionOwned(sessionId, userId,
+                        cursor != null ? cursor.createdAt() : null, cursor != null ? cursor.id() : null, ascending, limit)
+                .orElseThrow(() -> sessionNotFound(userId, sessionId));
+        ownershipCache.recordOwner(sessionId, userId);
+        return found;
+    }
+
+    private List<Message> findKeysetFields(String userId, UUID sessionId, MessageCursor cursor, boolean ascending, int limit,
+                                           Set<MessageField> fields) {
+        rejectKnownNotOwner(userId, sessionId);
+        List<Message> found = messageRepository.findKeysetFieldsIfSessionOwned(sessionId, userId,
+                        cursor != null ? cursor.createdAt() : null, cursor != null ? cursor.id() : null, ascending, limit, fields)
+                .orElseThrow(() -> sessionNotFound(userId, sessionId));
+        ownershipCache.recordOwner(sessionId, userId);
+        return found;
+    }
+
+    private void rejectKnownNotOwner(String userId, UUID sessionId) {
+        if (ownershipCache.isKnownNotOwner(sessionId, userId)) {
+            throw new ResourceNotFoundException("Session", sessionId);
+        }
+    }
+
+    /** A statement found the session missing or foreign: remember it so repeats skip SQL. */
+    private ResourceNotFoundException sessionNotFound(String userId, UUID sessionId) {
+        ownershipCache.recordNotOwner(sessionId, userId);
+        return new ResourceNotFoundException("Session", sessionId);
+    }
+
+    /**
+     * Rare path: the page query returned no rows, either because the session is not owned or because
+     * the requested page lies past the end.
+     */
+    private Page<Message> emptyPageIfOwned(String userId, UUID sessionId, Pageable pageable) {
+        long total = messageRepository.countIfSessionOwned(sessionId, userId)
+                .orElseThrow(() -> sessionNotFound(userId, sessionId));
+        return new PageImpl<>(List.of(), pageable, total);
+    }
+
+    private static Message newMessage(AddMessageRequest request, Instant now) {
         Message message = new Message();
-        message.setSession(session);
+        message.setId(UuidV7Generator.generate());
         message.setSender(request.sender());
         message.setContent(request.content().trim());
         message.setContext(request.context());
-        message = messageRepository.save(message);
-        return toResponse(message);
+        // PostgreSQL stores microseconds; truncate so the response matches what is read back later
+        message.setCreatedAt(now.truncatedTo(ChronoUnit.MICROS));
+        return message;
     }
 
-    public Page<MessageResponse> getBySession(String userId, UUID sessionId, Pageable pageable) {
-        if (!sessionRepository.existsByIdAndUserId(sessionId, userId)) {
-            throw new ResourceNotFoundException("Session", sessionId);
-        }
-        return messageRepository.findBySessionIdAndSessionUserId(sessionId, userId, pageable)
-                .map(MessageService::toResponse);
+    private static String cursorOf(MessageResponse m) {
+        return new MessageCursor(m.createdAt(), m.id()).encode();
+    }
+
+    private static String cursorOf(Message m) {
+        return new MessageCursor(m.getCreatedAt(), m.getId()).encode();
     }
 
     static MessageResponse toResponse(Message m) {
@@ -55,4 +311,19 @@ public class MessageService {
                 m.getCreatedAt()
         );
     }
+
+    /** Only the requested fields, in {@link MessageResponse} order. */
+    static Map<String, Object> toFields(Message m, Set<MessageField> fields) {
+        Map<String, Object> out = new LinkedHashMap<>(fields.size() * 2);
+        for (MessageField field : fields) {
+            out.put(field.name(), switch (field) {
+                case id -> m.getId();
+                case sender -> m.getSender();
+                case content -> m.getContent();
+                case context -> m.getContext();
+                case createdAt -> m.getCreatedAt();
+            });
+        }
+        return out;
+    }
 }
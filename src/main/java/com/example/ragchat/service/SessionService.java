@@ -1,10 +1,15 @@
 package com.example.ragchat.service;
 
+import com.example.ragchat.cache.ActiveUserTracker;
+import com.example.ragchat.cache.MessageTailCache;
+import com.example.ragchat.cache.SessionOwnershipCache;
+import com.example.ragchat.cache.TenantCacheStats;
 import com.example.ragchat.config.RedisCacheConfig;
 import com.example.ragchat.config.SessionListCacheEvictor;
 import com.example.ragchat.exception.ResourceNotFoundException;
 import com.example.ragchat.model.dto.CreateSessionRequest;
 import com.example.ragchat.model.dto.CachedSessionList;
+import com.example.ragchat.model.dto.SessionField;
 import com.example.ragchat.model.dto.SessionResponse;
 import com.example.ragchat.model.dto.UpdateSessionRequest;
 import com.example.ragchat.model.entity.Session;
@@ -13,11 +18,18 @@ import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @Service
 public class SessionService {
@@ -25,13 +37,23 @@ public class SessionService {
     private final SessionRepository sessionRepository;
     private final org.springframework.cache.Cache sessionListCache;
     private final SessionListCacheEvictor cacheEvictor;
+    private final MessageTailCache messageTail;
+    private final SessionOwnershipCache ownershipCache;
+    private final ActiveUserTracker activeUsers;
+    private final TenantCacheStats tenantStats;
 
-    public SessionService(SessionRepository sessionRepository,
+    public SessionService(SessionRepository sessionRepository, SessionOwnershipCache ownershipCache, TenantCacheStats tenantStats,
                           @org.springframework.beans.factory.annotation.Autowired(required = false) CacheManager cacheManager,
-                          @org.springframework.beans.factory.annotation.Autowired(required = false) SessionListCacheEvictor cacheEvictor) {
+                          @org.springframework.beans.factory.annotation.Autowired(required = false) SessionListCacheEvictor cacheEvictor,
+                          @org.springframework.beans.factory.annotation.Autowired(required = false) MessageTailCache messageTail,
+                          @org.springframework.beans.factory.annotation.Autowired(required = false) ActiveUserTracker activeUsers) {
         this.sessionRepository = sessionRepository;
         this.sessionListCache = cacheManager != null ? cacheManager.getCache(RedisCacheConfig.SESSION_LIST_CACHE) : null;
         this.cacheEvictor = cacheEvictor;
+        this.messageTail = messageTail;
+        this.ownershipCache = ownershipCache;
+        this.activeUsers = activeUsers;
+        this.tenantStats = tenantStats;
     }
 
     @Transactional
@@ -41,43 +63,123 @@ public class SessionService {
         session.setTitle(request.getTitleOrDefault());
         session.setFavorite(false);
         session = sessionRepository.save(session);
-        if (cacheEvictor != null) cacheEvictor.evictForUser(userId);
+        ownershipCache.recordCreated(List.of(session.getId()));
+        ownershipCache.recordOwner(session.getId(), userId);
+        if (cacheEvictor != null) cacheEvictor.evictForUserAfterCommit(userId);
         return toResponse(session);
     }
 
     public Page<SessionResponse> listByUser(String userId, Boolean favorite, Pageable pageable) {
-        String cacheKey = userId + "::" + (favorite != null ? favorite : "all")
-                + "::" + pageable.getPageNumber() + "::" + pageable.getPageSize();
-        if (sessionListCache != null) {
-            org.springframework.cache.Cache.ValueWrapper wrapper = sessionListCache.get(cacheKey);
-            if (wrapper != null) {
-                CachedSessionList cached = (CachedSessionList) wrapper.get();
-                if (cached != null) {
-                    return new PageImpl<>(cached.content(), pageable, cached.totalElements());
-                }
-            }
+        if (activeUsers != null) activeUsers.recordActivity(userId);
+        return page(userId, favorite, pageable);
+    }
+
+    /** Loads the page into the session-list cache (if missing) without counting as user activity. */
+    Page<SessionResponse> prefetch(String userId, Pageable pageable) {
+        return page(userId, null, pageable);
+    }
+
+    private Page<SessionResponse> page(String userId, Boolean favorite, Pageable pageable) {
+        CachedSessionList cached = cachedList(userId, listCacheKey(userId, favorite, pageable), () -> {
+            Page<Session> page = favorite != null
+                    ? sessionRepository.findByUserIdAndFavorite(userId, favorite, pageable)
+                    : sessionRepository.findByUserId(userId, pageable);
+            return new CachedSessionList(page.getContent().stream().map(SessionService::toResponse).toList(),
+                    page.getTotalElements(), page.getTotalPages(), page.getSize(), page.getNumber(), page.hasNext());
+        });
+        return new PageImpl<>(cached.content(), pageable, cached.totalElements());
+    }
+
+    /**
+     * Count-free listing: one query for size + 1 rows, no COUNT(*). Cached separately from pages.
+     */
+    public Slice<SessionResponse> listByUserSlice(String userId, Boolean favorite, Pageable pageable) {
+        if (activeUsers != null) activeUsers.recordActivity(userId);
+        String cacheKey = listCacheKey(userId, favorite, pageable);
+        CachedSessionList cached = cachedList(userId, cacheKey != null ? cacheKey + "::slice" : null, () -> {
+            Slice<Session> slice = favorite != null
+                    ? sessionRepository.findSliceByUserIdAndFavorite(userId, favorite, pageable)
+                    : sessionRepository.findSliceByUserId(userId, pageable);
+            return new CachedSessionList(slice.getContent().stream().map(SessionService::toResponse).toList(),
+                    null, null, slice.getSize(), slice.getNumber(), slice.hasNext());
+        });
+        return new SliceImpl<>(cached.content(), pageable, cached.hasNext());
+    }
+
+    /**
+     * Session list limited to the requested fields, read by a query that selects only their columns.
+     * Not cached: the session-list cache holds full sessions.
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> listFieldsByUser(String userId, Boolean favorite, Set<SessionField> fields, Pageable pageable) {
+        if (activeUsers != null) activeUsers.recordActivity(userId);
+        return sessionRepository.findFieldsByUserId(userId, favorite, fields, pageable).map(s -> toFields(s, fields));
+    }
+
+    /** Count-free variant of {@link #listFieldsByUser}. */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> listFieldsByUserSlice(String userId, Boolean favorite, Set<SessionField> fields, Pageable pageable) {
+        if (activeUsers != null) activeUsers.recordActivity(userId);
+        return sessionRepository.findFieldsSliceByUserId(userId, favorite, fields, pageable).map(s -> toFields(s, fields));
+    }
+
+    /**
+     * Version of all the user's session lists, changed by every session create, update, delete or
+     * import; null when there is no generation counter (no Redis, or Redis unavailable).
+     */
+    public Long listVersion(String userId) {
+        return cacheEvictor != null ? cacheEvictor.generation(userId) : null;
+    }
+
+    /**
+     * Includes the user's cache generation, so an eviction makes all older keys unreachable; null
+     * (bypass the cache) when the generation is unavailable.
+     */
+    private String listCacheKey(String userId, Boolean favorite, Pageable pageable) {
+        if (sessionListCache == null) {
+            return null;
+        }
+        Long generation = cacheEvictor != null ? cacheEvictor.generation(userId) : Long.valueOf(0);
+        if (generation == null) {
+            return null;
+        }
+        return SessionListCacheEvictor.userKeyPrefix(userId) + "g" + generation
+                + "::" + (favorite != null ? favorite : "all")
+                + "::" + pageable.getPageNumber() + "::" + pageable.getPageSize() + "::" + pageable.getSort();
+    }
+
+    /**
+     * Concurrent misses on one key run the loader once per node; the others wait for its result
+     * (see {@link com.example.ragchat.cache.TwoLevelCache}). Hits and misses are counted per user.
+     */
+    private CachedSessionList cachedList(String userId, String cacheKey, Supplier<CachedSessionList> loader) {
+        if (sessionListCache == null || cacheKey == null) {
+            return loader.get();
         }
-        Page<Session> page = favorite != null
-                ? sessionRepository.findByUserIdAndFavorite(userId, favorite, pageable)
-                : sessionRepository.findByUserId(userId, pageable);
-        List<SessionResponse> content = page.getContent().stream().map(SessionService::toResponse).toList();
-        if (sessionListCache != null) {
-            sessionListCache.put(cacheKey, new CachedSessionList(
-                    content, page.getTotalElements(), page.getTotalPages(), page.getSize(), page.getNumber()));
+        try {
+            AtomicBoolean loaded = new AtomicBoolean();
+            CachedSessionList list = sessionListCache.get(cacheKey, () -> {
+                loaded.set(true);
+                return loader.get();
+            });
+            tenantStats.record(userId, !loaded.get());
+            return list;
+        } catch (org.springframework.cache.Cache.ValueRetrievalException e) {
+            // Surface the loader's own exception (e.g. a DataAccessException) to the exception handler
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
-        return new PageImpl<>(content, pageable, page.getTotalElements());
     }
 
     public SessionResponse getById(String userId, UUID sessionId) {
-        Session session = sessionRepository.findByIdAndUserId(sessionId, userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Session", sessionId));
-        return toResponse(session);
+        return toResponse(findOwned(userId, sessionId));
     }
 
     @Transactional
     public SessionResponse update(String userId, UUID sessionId, UpdateSessionRequest request) {
-        Session session = sessionRepository.findByIdAndUserId(sessionId, userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Session", sessionId));
+        Session session = findOwned(userId, sessionId);
         if (request.title() != null && !request.title().isBlank()) {
             session.setTitle(request.title().trim());
         }
@@ -85,17 +187,40 @@ public class SessionService {
             session.setFavorite(request.isFavorite());
         }
         session = sessionRepository.save(session);
-        if (cacheEvictor != null) cacheEvictor.evictForUser(userId);
+        if (cacheEvictor != null) cacheEvictor.evictForUserAfterCommit(userId);
         return toResponse(session);
     }
 
     @Transactional
     public void delete(String userId, UUID sessionId) {
+        rejectKnownNotOwner(userId, sessionId);
         if (!sessionRepository.existsByIdAndUserId(sessionId, userId)) {
-            throw new ResourceNotFoundException("Session", sessionId);
+            throw sessionNotFound(userId, sessionId);
         }
         sessionRepository.deleteById(sessionId);
-        if (cacheEvictor != null) cacheEvictor.evictForUser(userId);
+        if (cacheEvictor != null) cacheEvictor.evictForUserAfterCommit(userId);
+        if (messageTail != null) messageTail.invalidateAfterCommit(userId, sessionId);
+        ownershipCache.invalidateAfterCommit(sessionId);
+    }
+
+    /** Ids known to be missing or foreign (negative cache, Bloom filter) are rejected without SQL. */
+    private Session findOwned(String userId, UUID sessionId) {
+        rejectKnownNotOwner(userId, sessionId);
+        Session session = sessionRepository.findByIdAndUserId(sessionId, userId)
+                .orElseThrow(() -> sessionNotFound(userId, sessionId));
+        ownershipCache.recordOwner(sessionId, userId);
+        return session;
+    }
+
+    private void rejectKnownNotOwner(String userId, UUID sessionId) {
+        if (ownershipCache.isKnownNotOwner(sessionId, userId)) {
+            throw new ResourceNotFoundException("Session", sessionId);
+        }
+    }
+
+    private ResourceNotFoundException sessionNotFound(String userId, UUID sessionId) {
+        ownershipCache.recordNotOwner(sessionId, userId);
+        return new ResourceNotFoundException("Session", sessionId);
     }
 
     static SessionResponse toResponse(Session s) {
@@ -107,4 +232,19 @@ public class SessionService {
                 s.getUpdatedAt()
         );
     }
+
+    /** Only the requested fields, in {@link SessionResponse} order. */
+    static Map<String, Object> toFields(Session s, Set<SessionField> fields) {
+        Map<String, Object> out = new LinkedHashMap<>(fields.size() * 2);
+        for (SessionField field : fields) {
+            out.put(field.name(), switch (field) {
+                case id, sessionId -> s.getId();
+                case title -> s.getTitle();
+                case favorite -> s.isFavorite();
+                case createdAt -> s.getCreatedAt();
+                case updatedAt -> s.getUpdatedAt();
+            });
+        }
+        return out;
+    }
 }
@@ -0,0 +1,275 @@
+package com.example.ragchat.service;
+
+import com.example.ragchat.cache.MessageTailCache;
+import com.example.ragchat.exception.IngestQueueFullException;
+import com.example.ragchat.model.entity.Message;
+import com.example.ragchat.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind ingestion: accepted messages wait in a bounded queue and a single writer thread
+ * inserts them in grouped transactions (group commit), flushing after {@code max-batch} rows or
+ * {@code flush-interval}, whichever comes first. A failed group is retried with backoff, then written
+ * one transaction per session, so one session's failure cannot drop the others' messages. On shutdown
+ * new messages are refused and the queue is drained before the datasource closes.
+ */
+@Component
+@ConditionalOnProperty(name = "app.ingest.write-behind.enabled", havingValue = "true")
+public class WriteBehindMessageWriter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindMessageWriter.class);
+
+    private record Pending(String userId, UUID sessionId, Message message) {
+    }
+
+    private record SessionKey(String userId, UUID sessionId) {
+    }
+
+    private final BlockingQueue<Pending> queue;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate tx;
+    private final MessageTailCache messageTail;
+    private final int maxBatch;
+    private final long flushIntervalNanos;
+    private final Duration drainTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    /** Accepting a message (read) and refusing further ones on shutdown (write) exclude each other. */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private final Timer flushTimer;
+    private final Counter rejected;
+    private final Counter dropped;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    public WriteBehindMessageWriter(MessageRepository messageRepository, PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Autowired(required = false) MessageTailCache messageTail,
+                                    @Value("${app.ingest.write-behind.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${app.ingest.write-behind.max-batch:500}") int maxBatch,
+                                    @Value("${app.ingest.write-behind.flush-interval:5ms}") Duration flushInterval,
+                                    @Value("${app.ingest.write-behind.drain-timeout:30s}") Duration drainTimeout,
+                                    @Value("${app.ingest.write-behind.max-attempts:3}") int maxAttempts,
+                                    @Value("${app.ingest.write-behind.retry-backoff:50ms}") Duration retryBackoff) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.messageRepository = messageRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.messageTail = messageTail;
+        this.maxBatch = maxBatch;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.drainTimeout = drainTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        Gauge.builder("messages.writebehind.queue.depth", queue, BlockingQueue::size)
+                .description("Messages accepted but not yet written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("messages.writebehind.flush")
+                .description("Time to write one group of queued messages")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("messages.writebehind.rejected")
+                .description("Messages refused because the queue was full")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("messages.writebehind.dropped")
+                .description("Queued messages that could not be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the message (id and createdAt already set) for the next flush.
+     *
+     * @throws IngestQueueFullException if the queue is full or the writer is shutting down
+     */
+    public void enqueue(String userId, UUID sessionId, Message message) {
+        boolean queued;
+        acceptLock.readLock().lock();
+        try {
+            queued = accepting && queue.offer(new Pending(userId, sessionId, message));
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (!queued) {
+            rejected.increment();
+            throw new IngestQueueFullException();
+        }
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        running = true;
+        writer = new Thread(this::run, "message-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        // Once the write lock is held no offer is in flight, so the drain below sees every accepted message
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        running = false;
+        try {
+            writer.join(drainTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Write-behind drain timed out; {} queued messages were not written", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Stop after the web server has stopped taking requests, before the datasource is closed. */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        boolean interrupted = false;
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Waits for a first message, then lingers up to the flush interval for more (up to max-batch). */
+    private void collect(List<Pending> batch) throws InterruptedException {
+        if (!running) {
+            queue.drainTo(batch, maxBatch); // draining for shutdown: no waiting
+            return;
+        }
+        Pending first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < maxBatch && running) {
+            queue.drainTo(batch, maxBatch - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatch || remaining <= 0) {
+                break;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * One transaction (one commit) for the whole group, one JDBC batch per session within it. If the
+     * group still fails after retries, each session is written in its own transaction.
+     */
+    private void flush(List<Pending> batch) {
+        Map<SessionKey, List<Message>> bySession = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            bySession.computeIfAbsent(new SessionKey(p.userId(), p.sessionId()), k -> new ArrayList<>()).add(p.message());
+        }
+        if (bySession.size() == 1 || !writeWithRetries(bySession)) {
+            bySession.forEach((key, messages) -> {
+                if (!writeWithRetries(Map.of(key, messages))) {
+                    dropped.increment(messages.size());
+                    log.error("Write-behind dropped {} messages of session {} after {} attempts",
+                            messages.size(), key.sessionId(), maxAttempts);
+                }
+            });
+        }
+    }
+
+    /** Writes the group in one transaction, retrying with exponential backoff; false once attempts are exhausted. */
+    private boolean writeWithRetries(Map<SessionKey, List<Message>> group) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int notOwned = flushTimer.record(() -> tx.execute(status -> write(group)));
+                if (notOwned > 0) {
+                    // Session deleted between accept and flush; counted only once the transaction committed
+                    dropped.increment(notOwned);
+                }
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Write-behind write of {} sessions failed after {} attempts", group.size(), attempt, e);
+                    return false;
+                }
+                log.warn("Write-behind write of {} sessions failed (attempt {} of {}), retrying: {}",
+                        group.size(), attempt, maxAttempts, e.getMessage());
+                backOff(attempt);
+            }
+        }
+    }
+
+    /** @return messages not inserted because their session no longer exists */
+    private int write(Map<SessionKey, List<Message>> group) {
+        int notOwned = 0;
+        for (Map.Entry<SessionKey, List<Message>> entry : group.entrySet()) {
+            SessionKey key = entry.getKey();
+            List<Message> messages = entry.getValue();
+            int inserted = messageRepository.insertIfSessionOwned(key.sessionId(), key.userId(), messages);
+            if (inserted < messages.size()) {
+                notOwned += messages.size() - inserted;
+            } else if (messageTail != null) {
+                messageTail.appendAfterCommit(key.userId(), key.sessionId(),
+                        messages.stream().map(MessageService::toResponse).toList());
+            }
+        }
+        return notOwned;
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoff.multipliedBy(1L << Math.min(attempt - 1, 10)));
+        } catch (InterruptedException e) {
+            // Keep retrying without waiting; the interrupt is restored for the writer loop
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+-- Time-ordered (UUIDv7) primary keys: the application generates v7 IDs; rows inserted directly in SQL
+-- get the same layout from this default so inserts stay at the right edge of the PK index.
+CREATE OR REPLACE FUNCTION uuid_generate_v7() RETURNS uuid
+LANGUAGE plpgsql VOLATILE AS $$
+DECLARE
+    v BYTEA := uuid_send(gen_random_uuid());
+BEGIN
+    -- Bytes 0-5: Unix epoch milliseconds
+    v := overlay(v PLACING substring(int8send(floor(extract(epoch FROM clock_timestamp()) * 1000)::BIGINT) FROM 3) FROM 1 FOR 6);
+    -- Version nibble 7 (variant bits are already RFC 4122 from gen_random_uuid)
+    v := set_byte(v, 6, (b'0111' || get_byte(v, 6)::BIT(4))::BIT(8)::INT);
+    RETURN encode(v, 'hex')::UUID;
+END
+$$;
+
+ALTER TABLE sessions ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE messages ALTER COLUMN id SET DEFAULT uuid_generate_v7();
@@ -0,0 +1,18 @@
+-- Composite indexes matching the real access patterns; they replace the single-column indexes from V1.
+-- Every statement is CONCURRENTLY, so Flyway runs this migration outside a transaction and writes to
+-- messages and sessions go on during the builds. IF [NOT] EXISTS makes a rerun after a failure safe
+-- (drop an index left INVALID by a failed build before rerunning).
+
+-- Message history: WHERE session_id = ? ORDER BY created_at, id (offset and keyset pages).
+-- Also serves the ON DELETE CASCADE lookup by session_id.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_session_created_id ON messages (session_id, created_at, id);
+
+-- Session lists: WHERE user_id = ? [AND is_favorite = ?] ORDER BY updated_at DESC.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sessions_user_updated ON sessions (user_id, updated_at DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sessions_user_favorite_updated ON sessions (user_id, is_favorite, updated_at DESC);
+
+-- The old indexes go only once their replacements are in place.
+DROP INDEX CONCURRENTLY IF EXISTS idx_messages_session_id;
+DROP INDEX CONCURRENTLY IF EXISTS idx_messages_created_at;
+DROP INDEX CONCURRENTLY IF EXISTS idx_sessions_user_id;
+DROP INDEX CONCURRENTLY IF EXISTS idx_sessions_created_at_desc;
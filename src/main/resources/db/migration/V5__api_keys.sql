@@ -0,0 +1,17 @@
+-- API keys of client applications (tenants). Only the SHA-256 hash of a key is stored; the key itself
+-- is returned once, when it is created. Keys are revoked, never deleted, so every node sees the change.
+CREATE TABLE IF NOT EXISTS api_keys (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v7(),
+    tenant_id VARCHAR(255) NOT NULL,
+    name VARCHAR(255),
+    key_hash BYTEA NOT NULL UNIQUE,
+    rate_limit INTEGER CHECK (rate_limit > 0),
+    revoked_at TIMESTAMP WITH TIME ZONE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Incremental refresh of each node's key index: WHERE updated_at >= ? ORDER BY updated_at, id.
+CREATE INDEX idx_api_keys_updated_id ON api_keys (updated_at, id);
+-- Admin listing: WHERE tenant_id = ?.
+CREATE INDEX idx_api_keys_tenant ON api_keys (tenant_id);
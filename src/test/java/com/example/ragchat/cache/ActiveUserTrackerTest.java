@@ -0,0 +1,40 @@
+package com.example.ragchat.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ActiveUserTrackerTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ActiveUserTracker tracker = new ActiveUserTracker(redis,
+            new RedisCircuitBreaker(new SimpleMeterRegistry(), 20, 10, 0.5, Duration.ofMillis(100), Duration.ofSeconds(5), 10_000),
+            100, Duration.ofMinutes(1));
+
+    @Test
+    void recordActivity_writesEachUserOncePerResolution() {
+        tracker.recordActivity("u1");
+        tracker.recordActivity("u1");
+        tracker.recordActivity("u2");
+
+        verify(redis).execute(any(RedisScript.class), eq(List.of("activeUsers")), anyString(), eq("u1"), eq("100"));
+        verify(redis).execute(any(RedisScript.class), eq(List.of("activeUsers")), anyString(), eq("u2"), eq("100"));
+        verifyNoMoreInteractions(redis);
+    }
+
+    @Test
+    void recordActivity_redisFailureIsNotThrown() {
+        when(redis.execute(any(RedisScript.class), anyList(), any())).thenThrow(new RedisConnectionFailureException("down"));
+
+        tracker.recordActivity("u1");
+    }
+}
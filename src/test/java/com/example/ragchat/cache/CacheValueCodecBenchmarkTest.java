@@ -0,0 +1,108 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.dto.CachedSessionList;
+import com.example.ragchat.model.dto.SessionResponse;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the cache value codecs ({@code app.cache.codec}) on session-list pages:
+ * {@link CompactCacheValueSerializer} against the JSON serializer it replaced. Logs the encoded size
+ * of each page size, and JMH prints encode/decode time per value. Public because JMH generates
+ * subclasses of it. Tagged {@code benchmark}, so it only runs with {@code -Pbenchmark}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheValueCodecBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheValueCodecBenchmarkTest.class);
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private GenericJackson2JsonRedisSerializer json;
+    private CompactCacheValueSerializer compact;
+    private CachedSessionList page;
+    private byte[] jsonBytes;
+    private byte[] compactBytes;
+
+    @Test
+    void reportsSizeAndCodecSpeed() throws Exception {
+        for (int size : new int[] {20, 100}) {
+            pageSize = size;
+            setUp();
+            log.info("{} sessions per page: json {} bytes, compact {} bytes", size, jsonBytes.length, compactBytes.length);
+        }
+        new Runner(new OptionsBuilder().include(CacheValueCodecBenchmarkTest.class.getName() + "\\.").build()).run();
+    }
+
+    /** Same serializers as {@code RedisCacheConfig} with the default compress threshold. */
+    @Setup
+    public void setUp() {
+        json = new GenericJackson2JsonRedisSerializer();
+        json.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        compact = new CompactCacheValueSerializer(json, 512);
+        page = page(pageSize);
+        jsonBytes = json.serialize(page);
+        compactBytes = compact.serialize(page);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return json.serialize(page);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() {
+        return compact.serialize(page);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return json.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Object decodeCompact() {
+        return compact.deserialize(compactBytes);
+    }
+
+    private static CachedSessionList page(int count) {
+        Instant base = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<SessionResponse> content = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            content.add(new SessionResponse(UUID.randomUUID(), "Quarterly planning notes and retrieval experiments " + i,
+                    i % 3 == 0, base.minusSeconds(i * 60L), base.minusSeconds(i * 30L)));
+        }
+        return new CachedSessionList(content, 1000L, 10, count, 0, true);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.dto.CachedSessionList;
+import com.example.ragchat.model.dto.SessionResponse;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactCacheValueSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final CompactCacheValueSerializer serializer;
+
+    CompactCacheValueSerializerTest() {
+        json.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        serializer = new CompactCacheValueSerializer(json, 512);
+    }
+
+    @Test
+    void sessionList_roundTripsExactly() {
+        Instant now = Instant.parse("2025-02-21T10:00:00.123456789Z");
+        UUID id = UUID.randomUUID();
+        CachedSessionList page = new CachedSessionList(List.of(
+                new SessionResponse(id, "Über chat ✓", true, now, now.plusSeconds(5)),
+                new SessionResponse(UUID.randomUUID(), UUID.randomUUID(), null, false, null, Instant.EPOCH.minusSeconds(1))),
+                42L, 3, 20, 1, true);
+        CachedSessionList slice = new CachedSessionList(List.of(), null, null, 20, 0, false);
+
+        assertThat(serializer.deserialize(serializer.serialize(page))).isEqualTo(page);
+        assertThat(serializer.deserialize(serializer.serialize(slice))).isEqualTo(slice);
+    }
+
+    @Test
+    void largeValuesAreCompressedAndMuchSmallerThanJson() {
+        CachedSessionList page = page(100);
+
+        byte[] compact = serializer.serialize(page);
+        byte[] uncompressed = new CompactCacheValueSerializer(json, Integer.MAX_VALUE).serialize(page);
+        byte[] jsonBytes = json.serialize(page);
+
+        assertThat(compact[1] & 0x80).as("deflated flag").isNotZero();
+        assertThat(compact.length).isLessThan(uncompressed.length);
+        assertThat(uncompressed.length).isLessThan(jsonBytes.length / 2);
+        assertThat(serializer.deserialize(compact)).isEqualTo(page);
+    }
+
+    @Test
+    void smallValuesAreNotCompressed() {
+        byte[] bytes = serializer.serialize(page(1));
+
+        assertThat(bytes[0]).isEqualTo(CompactCacheValueSerializer.FORMAT_VERSION);
+        assertThat(bytes[1] & 0x80).isZero();
+    }
+
+    @Test
+    void otherValuesGoThroughTheFallback() {
+        Map<String, Object> value = new HashMap<>(Map.of("k", "v"));
+
+        assertThat(serializer.deserialize(serializer.serialize(value))).isEqualTo(value);
+    }
+
+    @Test
+    void cacheEntry_roundTripsThroughBothCodecs() {
+        CacheEntry entry = new CacheEntry(page(100), 1740132000123L, 37);
+        CacheEntry other = new CacheEntry(new HashMap<>(Map.of("k", "v")), 1740132000123L, 0);
+
+        byte[] bytes = serializer.serialize(entry);
+
+        assertThat(bytes[1] & 0x80).as("deflated flag").isNotZero();
+        assertThat(serializer.deserialize(bytes)).isEqualTo(entry);
+        assertThat(serializer.deserialize(serializer.serialize(other))).isEqualTo(other);
+        assertThat(json.deserialize(json.serialize(entry))).isEqualTo(entry);
+    }
+
+    @Test
+    void unknownVersionOrLegacyJsonReadsAsMiss() {
+        byte[] bytes = serializer.serialize(page(1));
+        bytes[0] = (byte) (CompactCacheValueSerializer.FORMAT_VERSION + 1);
+
+        assertThat(serializer.deserialize(bytes)).isNull();
+        assertThat(serializer.deserialize(json.serialize(page(1)))).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    private static CachedSessionList page(int count) {
+        Instant base = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<SessionResponse> content = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            content.add(new SessionResponse(UUID.randomUUID(), "Quarterly planning notes and retrieval experiments " + i,
+                    i % 3 == 0, base.minusSeconds(i * 60L), base.minusSeconds(i * 30L)));
+        }
+        return new CachedSessionList(content, 1000L, 10, count, 0, true);
+    }
+}
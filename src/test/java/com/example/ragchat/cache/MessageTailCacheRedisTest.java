@@ -0,0 +1,80 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.dto.MessageResponse;
+import com.example.ragchat.model.entity.MessageSender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Runs the tail scripts against a real Redis. Skipped when Docker is not available. */
+@Testcontainers(disabledWithoutDocker = true)
+class MessageTailCacheRedisTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UUID sessionId = UUID.randomUUID();
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void populateBetweenCommitAndAppend_keepsOneCopyOfTheMessage() throws Exception {
+        MessageTailCache tail = new MessageTailCache(redisTemplate,
+                new RedisCircuitBreaker(meterRegistry, 20, 10, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(5), 10_000),
+                objectMapper, meterRegistry, 50, Duration.ofMinutes(30));
+        Instant createdAt = Instant.parse("2025-02-21T10:00:00.123456Z");
+        UUID older = UUID.randomUUID();
+        UUID id = UUID.randomUUID();
+        MessageResponse previous = new MessageResponse(older, MessageSender.user, "Q", null, createdAt.minusSeconds(1));
+        // As sent by the client, and as read back from JSONB (keys reordered)
+        MessageResponse appended = new MessageResponse(id, MessageSender.assistant, "A",
+                objectMapper.readTree("{\"source\":\"doc-1\",\"score\":0.9}"), createdAt);
+        MessageResponse readBack = new MessageResponse(id, MessageSender.assistant, "A",
+                objectMapper.readTree("{\"score\":0.9,\"source\":\"doc-1\"}"), createdAt);
+
+        // A read misses and loads the committed row before the writer's after-commit append runs
+        MessageTailCache.Lookup miss = tail.read("u1", sessionId);
+        tail.populate("u1", sessionId, miss.version(), List.of(readBack, previous));
+        tail.appendAfterCommit("u1", sessionId, List.of(appended));
+
+        MessageTailCache.Lookup hit = tail.read("u1", sessionId);
+        assertThat(hit.hit()).isTrue();
+        assertThat(hit.messages()).extracting(MessageResponse::id).containsExactly(older, id);
+    }
+}
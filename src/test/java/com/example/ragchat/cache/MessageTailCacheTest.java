@@ -0,0 +1,95 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.dto.MessageResponse;
+import com.example.ragchat.model.entity.MessageSender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MessageTailCacheTest {
+
+    private static final UUID SESSION_ID = UUID.randomUUID();
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MessageTailCache tail = new MessageTailCache(redis,
+            new RedisCircuitBreaker(meterRegistry, 20, 10, 0.5, Duration.ofMillis(100), Duration.ofSeconds(5), 10_000),
+            objectMapper, meterRegistry, 50, Duration.ofMinutes(30));
+
+    @Test
+    void read_decodesMembersAndVersionOnHit() throws Exception {
+        MessageResponse m = new MessageResponse(UUID.randomUUID(), MessageSender.user, "Hi", null,
+                Instant.parse("2025-02-21T10:00:00.123456Z"));
+        List<Object> result = new ArrayList<>(List.of("3", objectMapper.writeValueAsString(m)));
+        when(redis.execute(any(RedisScript.class), eq(keys("u1")), any())).thenReturn(result);
+
+        MessageTailCache.Lookup lookup = tail.read("u1", SESSION_ID);
+
+        assertThat(lookup.hit()).isTrue();
+        assertThat(lookup.messages()).singleElement()
+                .satisfies(cached -> {
+                    assertThat(cached.id()).isEqualTo(m.id());
+                    assertThat(cached.content()).isEqualTo("Hi");
+                    assertThat(cached.createdAt()).isEqualTo(m.createdAt());
+                });
+        assertThat(lookup.version()).isEqualTo("3");
+        assertThat(meterRegistry.counter("messages.tail.reads", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void read_missReturnsVersionForPopulate() {
+        when(redis.execute(any(RedisScript.class), eq(keys("u1")), any())).thenReturn(new ArrayList<>(List.of("0")));
+
+        MessageTailCache.Lookup lookup = tail.read("u1", SESSION_ID);
+
+        assertThat(lookup.hit()).isFalse();
+        assertThat(lookup.version()).isEqualTo("0");
+    }
+
+    @Test
+    void read_redisFailureIsAMissThatDoesNotPopulate() {
+        when(redis.execute(any(RedisScript.class), anyList(), any())).thenThrow(new RedisConnectionFailureException("down"));
+
+        MessageTailCache.Lookup lookup = tail.read("u1", SESSION_ID);
+        tail.populate("u1", SESSION_ID, lookup.version(),
+                List.of(new MessageResponse(UUID.randomUUID(), MessageSender.user, "Hi", null, Instant.now())));
+
+        assertThat(lookup.hit()).isFalse();
+        verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    void appendAfterCommit_outsideTransactionScoresByMicrosAndKeepsOneExtra() {
+        Instant createdAt = Instant.parse("2025-02-21T10:00:00.123456Z");
+        MessageResponse m = new MessageResponse(UUID.randomUUID(), MessageSender.assistant, "Answer", null, createdAt);
+
+        tail.appendAfterCommit("u1", SESSION_ID, List.of(m));
+
+        verify(redis).execute(any(RedisScript.class), eq(keys("u1")),
+                eq("51"), eq("1800"), eq("1740132000123456"), argThat(json -> json.toString().startsWith("{\"id\":\"" + m.id())));
+    }
+
+    private static List<String> keys(String userId) {
+        String tail = "messageTail:{" + SESSION_ID + "}:" + userId;
+        return List.of(tail, tail + ":ver");
+    }
+}
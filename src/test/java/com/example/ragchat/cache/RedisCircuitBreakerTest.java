@@ -0,0 +1,114 @@
+package com.example.ragchat.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class RedisCircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(meterRegistry, 10, 4, 0.5,
+            Duration.ofMillis(100), Duration.ofSeconds(5), 2, nanos::get);
+
+    @Test
+    void opensOnFailuresAndAnswersWithTheFallbackWithoutCalling() {
+        AtomicInteger calls = new AtomicInteger();
+        breaker.call(() -> "ok", () -> "fallback");
+        breaker.call(() -> "ok", () -> "fallback");
+        fail();
+        assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+        fail();
+
+        String result = breaker.call(() -> {
+            calls.incrementAndGet();
+            return "ok";
+        }, () -> "fallback");
+
+        assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        assertThat(result).isEqualTo("fallback");
+        assertThat(calls).hasValue(0);
+        assertThat(meterRegistry.counter("redis.breaker.calls", "outcome", "rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void slowCallsCountAsFailuresButReturnTheirResult() {
+        for (int i = 0; i < 4; i++) {
+            String result = breaker.call(() -> {
+                nanos.addAndGet(Duration.ofMillis(150).toNanos());
+                return "slow";
+            }, () -> "fallback");
+            assertThat(result).isEqualTo("slow");
+        }
+
+        assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenProbeClosesOnSuccessAndReopensOnFailure() {
+        open();
+        nanos.addAndGet(Duration.ofSeconds(5).toNanos());
+        fail();
+        assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+
+        nanos.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(breaker.call(() -> "ok", () -> "fallback")).isEqualTo("ok");
+
+        assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+        assertThat(breaker.status().calls()).isZero();
+    }
+
+    @Test
+    void queuedWritesAreReplayedOncePerKeyWhenRedisIsBack() {
+        List<String> replayed = new ArrayList<>();
+        open();
+
+        assertThat(breaker.runOrReplay("a", () -> replayed.add("a1"))).isFalse();
+        breaker.runOrReplay("b", () -> replayed.add("b"));
+        breaker.runOrReplay("a", () -> replayed.add("a2"));
+        assertThat(breaker.isPending("a")).isTrue();
+        assertThat(breaker.status().pendingReplays()).isEqualTo(2);
+
+        nanos.addAndGet(Duration.ofSeconds(5).toNanos());
+        breaker.call(() -> "ok", () -> "fallback");
+
+        await().untilAsserted(() -> assertThat(breaker.status().pendingReplays()).isZero());
+        assertThat(replayed).containsExactly("b", "a2");
+        assertThat(breaker.isPending("a")).isFalse();
+    }
+
+    @Test
+    void replayQueueIsBounded() {
+        open();
+
+        breaker.runOrReplay("a", () -> { });
+        breaker.runOrReplay("b", () -> { });
+        breaker.runOrReplay("c", () -> { });
+
+        assertThat(breaker.isPending("a")).isFalse();
+        assertThat(breaker.status().pendingReplays()).isEqualTo(2);
+        assertThat(meterRegistry.counter("redis.breaker.replays.dropped").count()).isEqualTo(1);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    }
+
+    private void fail() {
+        breaker.call(() -> {
+            throw new RedisConnectionFailureException("down");
+        }, () -> "fallback");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.model.entity.UuidV7Generator;
+import com.example.ragchat.repository.SessionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SessionBloomFilterTest {
+
+    private final SessionRepository sessionRepository = mock(SessionRepository.class);
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final SessionBloomFilter filter = new SessionBloomFilter(sessionRepository, redis, null, 1000, 0.01,
+            Duration.ofHours(6));
+
+    {
+        when(redis.opsForValue()).thenReturn(values);
+    }
+
+    @Test
+    void beforeTheFirstBuild_everyIdMayExist() {
+        assertThat(filter.mightContain(UUID.randomUUID())).isTrue();
+    }
+
+    @Test
+    void rebuild_containsEverySessionAndRejectsMostUnknownIds() {
+        List<UUID> existing = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID()).toList();
+        when(sessionRepository.findIdsAfter(any(), any(Pageable.class))).thenReturn(existing, List.of());
+
+        filter.rebuild();
+
+        assertThat(existing).allMatch(filter::mightContain);
+        long falsePositives = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID()).filter(filter::mightContain).count();
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    void sessionsCreatedAfterTheBuildAreLetThroughOrAdded() {
+        when(sessionRepository.findIdsAfter(any(), any(Pageable.class))).thenReturn(List.of());
+        filter.rebuild();
+        UUID createdElsewhere = UuidV7Generator.generate();
+        UUID imported = UUID.randomUUID();
+
+        filter.add(List.of(imported, UuidV7Generator.generate()));
+
+        assertThat(filter.mightContain(createdElsewhere)).isTrue();
+        assertThat(filter.mightContain(imported)).isTrue();
+        // Only the id other nodes cannot infer is broadcast
+        verify(redis).convertAndSend(SessionBloomFilter.ADD_CHANNEL, imported.toString());
+    }
+
+    @Test
+    void add_flagsTheOtherNodesWhenTheBroadcastFails() {
+        doThrow(new RedisConnectionFailureException("down")).when(redis).convertAndSend(anyString(), anyString());
+
+        filter.add(List.of(UUID.randomUUID()));
+
+        verify(values).set(eq(SessionBloomFilter.MISSED_KEY), anyString(), eq(Duration.ofHours(12)));
+    }
+
+    @Test
+    void aMissedBroadcastLetsUnknownIdsThroughUntilTheNextBuild() throws InterruptedException {
+        when(sessionRepository.findIdsAfter(any(), any(Pageable.class))).thenReturn(List.of());
+        filter.rebuild();
+        UUID importedElsewhere = UUID.randomUUID();
+        String missedAt = String.valueOf(System.currentTimeMillis());
+        when(values.get(SessionBloomFilter.MISSED_KEY)).thenReturn(missedAt);
+
+        assertThat(filter.mightContain(importedElsewhere)).isTrue();
+
+        Thread.sleep(2);
+        filter.rebuild(); // requested by the check; it now holds every session
+        assertThat(filter.mightContain(UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    void anUnreadableFlagLetsUnknownIdsThrough() {
+        when(sessionRepository.findIdsAfter(any(), any(Pageable.class))).thenReturn(List.of());
+        filter.rebuild();
+        when(values.get(SessionBloomFilter.MISSED_KEY)).thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThat(filter.mightContain(UUID.randomUUID())).isTrue();
+    }
+
+    @Test
+    void rebuild_scansIdsInKeysetBatches() {
+        List<UUID> full = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            full.add(UUID.randomUUID());
+        }
+        UUID last = full.get(full.size() - 1);
+        when(sessionRepository.findIdsAfter(eq(new UUID(0, 0)), any(Pageable.class))).thenReturn(full);
+        when(sessionRepository.findIdsAfter(eq(last), any(Pageable.class))).thenReturn(List.of());
+
+        filter.rebuild();
+
+        verify(sessionRepository).findIdsAfter(eq(last), any(Pageable.class));
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.ragchat.cache;
+
+import com.example.ragchat.repository.SessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SessionOwnershipCacheTest {
+
+    private static final UUID SESSION_ID = UUID.randomUUID();
+
+    private final SessionRepository sessionRepository = mock(SessionRepository.class);
+    private final SessionOwnershipCache cache = new SessionOwnershipCache(sessionRepository, null, null, null, new SimpleMeterRegistry(),
+            100, Duration.ofMinutes(10), Duration.ofSeconds(30), true);
+
+    @Test
+    void isOwner_loadsOwnerOnceAndAnswersEveryUserFromIt() {
+        when(sessionRepository.findUserIdById(SESSION_ID)).thenReturn(Optional.of("u1"));
+
+        assertThat(cache.isOwner(SESSION_ID, "u1")).isTrue();
+        assertThat(cache.isOwner(SESSION_ID, "u2")).isFalse();
+        assertThat(cache.isKnownNotOwner(SESSION_ID, "u2")).isTrue();
+        assertThat(cache.isKnownNotOwner(SESSION_ID, "u1")).isFalse();
+
+        verify(sessionRepository, times(1)).findUserIdById(SESSION_ID);
+    }
+
+    @Test
+    void missingSessionIsCachedAsNegative() {
+        when(sessionRepository.findUserIdById(SESSION_ID)).thenReturn(Optional.empty());
+
+        assertThat(cache.isOwner(SESSION_ID, "u1")).isFalse();
+        assertThat(cache.isOwner(SESSION_ID, "u1")).isFalse();
+        assertThat(cache.isKnownNotOwner(SESSION_ID, "u1")).isTrue();
+
+        verify(sessionRepository, times(1)).findUserIdById(SESSION_ID);
+    }
+
+    @Test
+    void recordNotOwner_deniesOnlyThatUser() {
+        when(sessionRepository.findUserIdById(SESSION_ID)).thenReturn(Optional.of("u2"));
+
+        cache.recordNotOwner(SESSION_ID, "u1");
+
+        assertThat(cache.isKnownNotOwner(SESSION_ID, "u1")).isTrue();
+        assertThat(cache.isKnownNotOwner(SESSION_ID, "u2")).isFalse();
+        assertThat(cache.isOwner(SESSION_ID, "u1")).isFalse();
+        verifyNoInteractions(sessionRepository);
+        assertThat(cache.isOwner(SESSION_ID, "u2")).isTrue(); // resolved with one query
+        verify(sessionRepository, times(1)).findUserIdById(SESSION_ID);
+    }
+
+    @Test
+    void recordNotOwner_replacesStaleOwnerEntry() {
+        cache.recordOwner(SESSION_ID, "u1");
+
+        cache.recordNotOwner(SESSION_ID, "u1");
+
+        assertThat(cache.isKnownNotOwner(SESSION_ID, "u1")).isTrue();
+    }
+
+    @Test
+    void unknownSessionIsNeitherKnownOwnedNorForeign() {
+        assertThat(cache.isKnownNotOwner(SESSION_ID, "u1")).isFalse();
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    void invalidate_dropsOwnerSoTheNextCheckReloads() {
+        cache.recordOwner(SESSION_ID, "u1");
+        when(sessionRepository.findUserIdById(SESSION_ID)).thenReturn(Optional.empty());
+
+        cache.invalidateAfterCommit(SESSION_ID); // no transaction: applied immediately
+
+        assertThat(cache.isOwner(SESSION_ID, "u1")).isFalse();
+        verify(sessionRepository).findUserIdById(SESSION_ID);
+    }
+
+    @Test
+    void bloomFilter_rejectsUnknownIdsWithoutQuery() {
+        SessionBloomFilter bloomFilter = mock(SessionBloomFilter.class);
+        SessionOwnershipCache withBloom = new SessionOwnershipCache(sessionRepository, null, null, bloomFilter,
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofSeconds(30), true);
+        UUID created = UUID.randomUUID();
+        when(bloomFilter.mightContain(created)).thenReturn(true);
+
+        assertThat(withBloom.isKnownNotOwner(SESSION_ID, "u1")).isTrue();
+        assertThat(withBloom.isOwner(SESSION_ID, "u1")).isFalse();
+        withBloom.recordCreated(List.of(created));
+
+        verify(bloomFilter).add(List.of(created));
+        assertThat(withBloom.isKnownNotOwner(created, "u1")).isFalse();
+        verifyNoInteractions(sessionRepository);
+    }
+}
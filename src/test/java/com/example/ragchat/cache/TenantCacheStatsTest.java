@@ -0,0 +1,33 @@
+package com.example.ragchat.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantCacheStatsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TenantCacheStats stats = new TenantCacheStats(meterRegistry, 2, 100, Duration.ofHours(1));
+
+    @Test
+    void publish_exposesOnlyTheBusiestTenants() {
+        for (int i = 0; i < 5; i++) stats.record("busy", true);
+        stats.record("busy", false);
+        for (int i = 0; i < 3; i++) stats.record("medium", false);
+        stats.record("quiet", true);
+
+        stats.publish();
+
+        assertThat(gauge("busy", "hit")).isEqualTo(5);
+        assertThat(gauge("busy", "miss")).isEqualTo(1);
+        assertThat(gauge("medium", "miss")).isEqualTo(3);
+        assertThat(meterRegistry.find("cache.tenant.gets").tag("tenant", "quiet").gauges()).isEmpty();
+    }
+
+    private double gauge(String tenant, String result) {
+        return meterRegistry.get("cache.tenant.gets").tags("tenant", tenant, "result", result).gauge().value();
+    }
+}
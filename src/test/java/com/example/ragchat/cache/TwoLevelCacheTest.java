@@ -0,0 +1,143 @@
+package com.example.ragchat.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TwoLevelCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrentMapCacheManager l2Manager = new ConcurrentMapCacheManager("sessionList");
+    private final TwoLevelCacheManager manager = new TwoLevelCacheManager(l2Manager, 100, Duration.ofMinutes(1),
+            Duration.ofMinutes(10), 1.0, null, meterRegistry);
+
+    @Test
+    void get_fillsL1FromL2AndServesRepeatsLocally() {
+        l2Manager.getCache("sessionList").put("u1::all::0::20", "page");
+        Cache cache = manager.getCache("sessionList");
+
+        assertThat(cache.get("u1::all::0::20").get()).isEqualTo("page");
+        l2Manager.getCache("sessionList").clear(); // a second read must not need L2
+        assertThat(cache.get("u1::all::0::20").get()).isEqualTo("page");
+
+        assertThat(count("l1", "hit")).isEqualTo(1);
+        assertThat(count("l1", "miss")).isEqualTo(1);
+        assertThat(count("l2", "hit")).isEqualTo(1);
+        assertThat(cache.get("missing")).isNull();
+        assertThat(count("l2", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void put_andEvict_applyToBothTiers() {
+        Cache cache = manager.getCache("sessionList");
+        cache.put("k", "v");
+        assertThat(l2Manager.getCache("sessionList").get("k").get()).isEqualTo("v");
+
+        cache.evict("k");
+
+        assertThat(l2Manager.getCache("sessionList").get("k")).isNull();
+        assertThat(cache.get("k")).isNull();
+    }
+
+    @Test
+    void get_concurrentMissesRunOneLoader() throws Exception {
+        Cache cache = manager.getCache("sessionList");
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loaderRuns = new AtomicInteger();
+        Callable<String> loader = () -> {
+            loaderRuns.incrementAndGet();
+            release.await();
+            return "page";
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.get("k", loader)));
+            }
+            while (loads("coalesced") < 7) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("page");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(loaderRuns).hasValue(1);
+        assertThat(loads("load")).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.load.duration").tag("cache", "sessionList").timer().count()).isEqualTo(1);
+        assertThat(cache.get("k", () -> "reloaded")).isEqualTo("page");
+    }
+
+    @Test
+    void get_loaderFailureReachesEveryWaiterAndIsNotCached() throws Exception {
+        Cache cache = manager.getCache("sessionList");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = pool.submit(() -> cache.get("k", () -> {
+                release.await();
+                throw new IllegalStateException("db down");
+            }));
+            while (loads("load") < 1) {
+                Thread.sleep(5);
+            }
+            Future<String> second = pool.submit(() -> cache.get("k", () -> "unused"));
+            while (loads("coalesced") < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : List.of(first, second)) {
+                assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                        .hasCauseInstanceOf(Cache.ValueRetrievalException.class)
+                        .hasRootCauseMessage("db down");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(cache.get("k", () -> "page")).isEqualTo("page");
+    }
+
+    @Test
+    void get_refreshesEarlyNearExpiryButNotWhenFresh() {
+        Cache l2 = l2Manager.getCache("sessionList");
+        long now = System.currentTimeMillis();
+        l2.put("due", new CacheEntry("old", now, 1000));
+        l2.put("fresh", new CacheEntry("old", now + 3_600_000, 1));
+        Cache cache = manager.getCache("sessionList");
+
+        assertThat(cache.get("due", () -> "new")).isEqualTo("new");
+        assertThat(cache.get("fresh", () -> "new")).isEqualTo("old");
+        assertThat(cache.get("fresh").get()).isEqualTo("old");
+        assertThat(loads("early-refresh")).isEqualTo(1);
+        assertThat(((CacheEntry) l2.get("due").get()).value()).isEqualTo("new");
+    }
+
+    private double loads(String outcome) {
+        return meterRegistry.get("cache.loads").tags("cache", "sessionList", "outcome", outcome).counter().count();
+    }
+
+    private double count(String tier, String result) {
+        return meterRegistry.get("cache.tier.gets").tags("cache", "sessionList", "tier", tier, "result", result)
+                .counter().count();
+    }
+}
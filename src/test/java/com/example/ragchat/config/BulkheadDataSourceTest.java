@@ -0,0 +1,54 @@
+package com.example.ragchat.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class BulkheadDataSourceTest {
+
+    private final DataSource pool = mock(DataSource.class);
+
+    @Test
+    void getConnection_beyondLimit_timesOut() throws Exception {
+        when(pool.getConnection()).thenAnswer(inv -> mock(Connection.class));
+        BulkheadDataSource bulkhead = new BulkheadDataSource(pool, 1, Duration.ofMillis(50));
+
+        Connection held = bulkhead.getConnection();
+
+        assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        held.close();
+        assertThat(bulkhead.getConnection()).isNotNull();
+    }
+
+    @Test
+    void close_releasesPermitOnceAndWakesWaiter() throws Exception {
+        Connection target = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(target);
+        BulkheadDataSource bulkhead = new BulkheadDataSource(pool, 1, Duration.ofSeconds(1));
+
+        Connection first = bulkhead.getConnection();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return bulkhead.getConnection();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        first.close();
+        first.close();
+        Connection second = waiter.get(5, TimeUnit.SECONDS);
+
+        assertThat(second).isNotNull();
+        // The double close must not have minted a second permit
+        assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.ragchat.config;
+
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import com.example.ragchat.ratelimit.RateLimiter;
+import com.example.ragchat.ratelimit.RouteCosts;
+import com.example.ragchat.security.ApiKeyAuthenticationToken;
+import com.example.ragchat.security.ApiKeyPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private final RateLimiter rateLimiter = mock(RateLimiter.class);
+    private final RedisCircuitBreaker redisBreaker = new RedisCircuitBreaker(new SimpleMeterRegistry(), 20, 2, 0.5,
+            Duration.ofSeconds(1), Duration.ofMinutes(1), 100);
+    private final RateLimitFilter filter = new RateLimitFilter(rateLimiter, new RouteCosts(1, 2, 3, 5), redisBreaker,
+            2, 60, 100);
+
+    RateLimitFilterTest() {
+        when(rateLimiter.limit()).thenReturn(100);
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void chargesByRouteAndReportsRemaining() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyInt(), anyInt())).thenReturn(new RateLimiter.Decision(true, 100, 97, 0));
+
+        MockHttpServletResponse response = run(request("GET", "/api/v1/sessions/abc"), null);
+        run(request("GET", "/api/v1/sessions"), null);
+        run(request("GET", "/api/v1/sessions/abc/messages"), null);
+        run(request("POST", "/api/v1/sessions/abc/messages"), null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(RateLimitFilter.LIMIT_HEADER)).isEqualTo("100");
+        assertThat(response.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("97");
+        verify(rateLimiter).tryAcquire("user:u1", 1, 100);
+        verify(rateLimiter, times(2)).tryAcquire("user:u1", 2, 100);
+        verify(rateLimiter).tryAcquire("user:u1", 3, 100);
+        verify(rateLimiter, never()).charge(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void rejectionCarriesRetryAfterInSeconds() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyInt(), anyInt())).thenReturn(new RateLimiter.Decision(false, 100, 0, 4_200));
+
+        MockHttpServletResponse response = run(request("GET", "/api/v1/sessions"), null);
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("5");
+        assertThat(response.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("0");
+    }
+
+    @Test
+    void unknownRemainingIsNotReported() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyInt(), anyInt())).thenReturn(new RateLimiter.Decision(true, 100, -1, 0));
+
+        MockHttpServletResponse response = run(request("GET", "/api/v1/sessions"), null);
+
+        assertThat(response.containsHeader(RateLimitFilter.REMAINING_HEADER)).isFalse();
+    }
+
+    @Test
+    void exportsAreChargedPerStartedMegabyteAfterTheBody() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyInt(), anyInt())).thenReturn(new RateLimiter.Decision(true, 100, 99, 0));
+
+        run(request("GET", "/api/v1/sessions/export"), new byte[2 * MB + 1]);
+
+        verify(rateLimiter).tryAcquire("user:u1", 1, 100);
+        verify(rateLimiter).charge("user:u1", 15, 100);
+    }
+
+    @Test
+    void streamedExportsAreChargedWhenTheAsyncRequestCompletes() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyInt(), anyInt())).thenReturn(new RateLimiter.Decision(true, 100, 99, 0));
+        MockHttpServletRequest request = request("GET", "/api/v1/sessions/abc/messages/export");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync(req, resp);
+            }
+        }));
+        verify(rateLimiter, never()).charge(anyString(), anyInt(), anyInt());
+
+        request.getAsyncContext().getResponse().getOutputStream().write(new byte[MB]);
+        request.getAsyncContext().complete();
+
+        verify(rateLimiter).charge(eq("user:u1"), eq(5), eq(100));
+    }
+
+    @Test
+    void tenantKeysAreLimitedWithinTheTenantAtTheKeysOwnLimit() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyInt(), anyInt())).thenReturn(new RateLimiter.Decision(true, 5, 4, 0));
+        SecurityContextHolder.getContext().setAuthentication(
+                new ApiKeyAuthenticationToken(new ApiKeyPrincipal(UUID.randomUUID(), "acme", 5), false));
+
+        MockHttpServletResponse response = run(request("GET", "/api/v1/sessions/abc"), null);
+        SecurityContextHolder.getContext().setAuthentication(
+                new ApiKeyAuthenticationToken(new ApiKeyPrincipal(UUID.randomUUID(), "globex", null), false));
+        run(request("GET", "/api/v1/sessions/abc"), null);
+
+        assertThat(response.getHeader(RateLimitFilter.LIMIT_HEADER)).isEqualTo("5");
+        verify(rateLimiter).tryAcquire("tenant:acme:user:u1", 1, 5);
+        verify(rateLimiter).tryAcquire("tenant:globex:user:u1", 1, 100);
+    }
+
+    @Test
+    void redisFailuresFallBackToTheLocalLimitAndOpenTheBreaker() throws Exception {
+        when(rateLimiter.limit()).thenReturn(2);
+        when(rateLimiter.tryAcquire(anyString(), anyInt(), anyInt())).thenThrow(new RedisConnectionFailureException("down"));
+
+        MockHttpServletResponse first = run(request("GET", "/api/v1/sessions/abc"), null);
+        run(request("GET", "/api/v1/sessions/abc"), null);
+        MockHttpServletResponse third = run(request("GET", "/api/v1/sessions/abc"), null);
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("1");
+        assertThat(third.getStatus()).isEqualTo(429);
+        assertThat(redisBreaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        verify(rateLimiter, times(2)).tryAcquire(anyString(), anyInt(), anyInt());
+    }
+
+    private MockHttpServletResponse run(MockHttpServletRequest request, byte[] body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                if (body != null) {
+                    resp.getOutputStream().write(body);
+                }
+            }
+        }));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.addHeader("X-User-Id", "u1");
+        return request;
+    }
+}
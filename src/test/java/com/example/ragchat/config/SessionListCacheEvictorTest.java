@@ -0,0 +1,99 @@
+package com.example.ragchat.config;
+
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SessionListCacheEvictorTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final RedisCircuitBreaker redisBreaker = new RedisCircuitBreaker(new SimpleMeterRegistry(), 20, 10, 0.5,
+            Duration.ofSeconds(1), Duration.ofMinutes(1), 100);
+    private final SessionListCacheEvictor evictor = new SessionListCacheEvictor(redis, redisBreaker,
+            new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
+    @Test
+    void evictForUser_bumpsGenerationWithoutScanningAndPublishes() {
+        when(redis.execute(any(RedisScript.class), eq(List.of("sessionList:gen:u1")), anyString(), anyString()))
+                .thenReturn(7L);
+
+        evictor.evictForUser("u1");
+
+        verify(redis, never()).keys(anyString());
+        verify(redis, never()).delete(anyString());
+        verify(redis).convertAndSend(SessionListCacheEvictor.INVALIDATION_CHANNEL, "u1");
+        // The bumped generation is used locally without another round trip
+        assertThat(evictor.generation("u1")).isEqualTo(7L);
+        verify(redis, times(1)).execute(any(RedisScript.class), anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void evictForUserAfterCommit_bumpsOnlyOnceTheTransactionCommitted() {
+        when(redis.execute(any(RedisScript.class), eq(List.of("sessionList:gen:u1")), anyString(), anyString()))
+                .thenReturn(3L, 4L);
+        assertThat(evictor.generation("u1")).isEqualTo(3L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            evictor.evictForUserAfterCommit("u1");
+
+            // A list read before commit still sees (and caches under) the old generation
+            assertThat(evictor.generation("u1")).isEqualTo(3L);
+            verify(redis, never()).convertAndSend(anyString(), anyString());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(evictor.generation("u1")).isEqualTo(4L);
+        verify(redis).convertAndSend(SessionListCacheEvictor.INVALIDATION_CHANNEL, "u1");
+    }
+
+    @Test
+    void generation_isReadOncePerNodeUntilInvalidated() {
+        when(redis.execute(any(RedisScript.class), eq(List.of("sessionList:gen:u1")), anyString(), anyString()))
+                .thenReturn(3L, 4L);
+
+        assertThat(evictor.generation("u1")).isEqualTo(3L);
+        assertThat(evictor.generation("u1")).isEqualTo(3L);
+        evictor.evictLocal("u1"); // invalidation from another node
+        assertThat(evictor.generation("u1")).isEqualTo(4L);
+
+        verify(redis, times(2)).execute(any(RedisScript.class), anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void evictForUser_whileRedisIsDownBypassesTheCacheUntilTheBumpIsReplayed() {
+        when(redis.execute(any(RedisScript.class), eq(List.of("sessionList:gen:u1")), anyString(), anyString()))
+                .thenReturn(3L)
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn(8L);
+        when(redis.execute(any(RedisScript.class), eq(List.of("sessionList:gen:u2")), anyString(), anyString()))
+                .thenReturn(1L);
+        assertThat(evictor.generation("u1")).isEqualTo(3L);
+
+        evictor.evictForUser("u1");
+
+        assertThat(evictor.generation("u1")).isNull();
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+
+        // The next successful Redis call replays the bump
+        assertThat(evictor.generation("u2")).isEqualTo(1L);
+        await().untilAsserted(() -> verify(redis).convertAndSend(SessionListCacheEvictor.INVALIDATION_CHANNEL, "u1"));
+        assertThat(evictor.generation("u1")).isEqualTo(8L);
+    }
+}
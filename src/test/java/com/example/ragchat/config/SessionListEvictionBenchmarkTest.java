@@ -0,0 +1,116 @@
+package com.example.ragchat.config;
+
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Latency of invalidating one user's session lists with a million cached keys in Redis: the former
+ * {@code KEYS sessionList::<user>::*} plus {@code DEL} (a full keyspace scan on Redis' single
+ * thread) against {@link SessionListCacheEvictor#evictForUser} (one scripted {@code INCR}). Logs
+ * p50/p99 of both. Tagged {@code benchmark}, so it only runs with {@code -Pbenchmark}, and skipped
+ * when Docker is not available.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class SessionListEvictionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionListEvictionBenchmarkTest.class);
+    private static final int USERS = 10_000;
+    private static final int KEYS_PER_USER = 100;
+    private static final int PIPELINE = 10_000;
+    private static final int EVICTIONS = 100;
+    private static final int WARM_UP = 100;
+    private static final String KEY_PREFIX = RedisCacheConfig.SESSION_LIST_CACHE + "::";
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void reportsEvictionLatencyWithAMillionKeys() {
+        for (int from = 0; from < USERS * KEYS_PER_USER; from += PIPELINE) {
+            int first = from;
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (int i = first; i < first + PIPELINE; i++) {
+                    redis.set(cacheKey(i / KEYS_PER_USER, i % KEYS_PER_USER), "cached page");
+                }
+                return null;
+            });
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SessionListCacheEvictor evictor = new SessionListCacheEvictor(redisTemplate,
+                new RedisCircuitBreaker(meterRegistry, 20, 10, 0.5, Duration.ofSeconds(1), Duration.ofMinutes(1), 100),
+                meterRegistry, 100, Duration.ofMinutes(1));
+
+        for (int i = 0; i < WARM_UP; i++) {
+            evictor.evictForUser("warm-up-" + i);
+        }
+        long[] scan = new long[EVICTIONS];
+        long[] generation = new long[EVICTIONS];
+        for (int i = 0; i < EVICTIONS; i++) {
+            String userId = userId(i * (USERS / EVICTIONS));
+            long start = System.nanoTime();
+            Set<String> keys = redisTemplate.keys(KEY_PREFIX + SessionListCacheEvictor.userKeyPrefix(userId) + "*");
+            redisTemplate.delete(keys);
+            scan[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            evictor.evictForUser(userId);
+            generation[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(scan);
+        Arrays.sort(generation);
+
+        log.info("{} keys, per-user eviction latency (ms): KEYS+DEL p50={} p99={}, generation bump p50={} p99={}",
+                USERS * KEYS_PER_USER, percentile(scan, 0.50), percentile(scan, 0.99),
+                percentile(generation, 0.50), percentile(generation, 0.99));
+    }
+
+    /** Same shape as the keys {@code SessionService} caches under. */
+    private static String cacheKey(int user, int page) {
+        return KEY_PREFIX + SessionListCacheEvictor.userKeyPrefix(userId(user)) + "g1::all::" + page + "::20::UNSORTED";
+    }
+
+    private static String userId(int user) {
+        return "user-" + user;
+    }
+
+    private static double percentile(long[] sortedNanos, double p) {
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.round(p * sortedNanos.length))] / 1e6;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.ragchat.config;
+
+import com.example.ragchat.RagChatStorageApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The same mixed load (list sessions, append a message) from {@code CLIENTS} concurrent clients
+ * against the application on platform threads and on virtual threads with the connection bulkhead,
+ * over real HTTP. Logs throughput, p50/p99 latency, failed requests and the peak JVM thread count of
+ * each mode. Runs on the test profile's in-process H2, so blocking is shorter than with a networked
+ * database. Tagged {@code benchmark}, so it only runs with {@code -Pbenchmark}.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadBenchmarkTest.class);
+    private static final int CLIENTS = 1_000;
+    private static final int REQUESTS_PER_CLIENT = 20;
+    private static final int USERS = 100;
+
+    @Test
+    void reportsPlatformAgainstVirtualThreadsAtHighConcurrency() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        log.info("{} clients x {} requests: platform threads {} req/s, p50={}ms p99={}ms, {} failed, peak threads {}; "
+                        + "virtual threads {} req/s, p50={}ms p99={}ms, {} failed, peak threads {}",
+                CLIENTS, REQUESTS_PER_CLIENT,
+                platform.requestsPerSecond(), platform.p50Millis(), platform.p99Millis(), platform.failed(), platform.peakThreads(),
+                virtual.requestsPerSecond(), virtual.p50Millis(), virtual.p99Millis(), virtual.failed(), virtual.peakThreads());
+    }
+
+    private record Result(long requestsPerSecond, long p50Millis, long p99Millis, int failed, int peakThreads) {
+    }
+
+    private static Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(RagChatStorageApplication.class)
+                .run("--spring.profiles.active=test", "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:load_" + virtualThreads + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+             HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            String base = "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort() + "/api/v1/sessions";
+            List<String> sessions = new ArrayList<>(USERS);
+            for (int u = 0; u < USERS; u++) {
+                String created = send(http, HttpRequest.newBuilder(URI.create(base))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Load " + u + "\"}")), u).body();
+                sessions.add(base + "/" + created.substring(created.indexOf("\"id\":\"") + 6, created.indexOf("\"id\":\"") + 42));
+            }
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            AtomicInteger failed = new AtomicInteger();
+            long start = System.nanoTime();
+            List<Future<long[]>> futures = new ArrayList<>(CLIENTS);
+            for (int c = 0; c < CLIENTS; c++) {
+                int user = c % USERS;
+                futures.add(clients.submit(() -> {
+                    long[] nanos = new long[REQUESTS_PER_CLIENT];
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        HttpRequest.Builder request = i % 2 == 0
+                                ? HttpRequest.newBuilder(URI.create(base)).GET()
+                                : HttpRequest.newBuilder(URI.create(sessions.get(user) + "/messages"))
+                                        .POST(HttpRequest.BodyPublishers.ofString("{\"sender\":\"user\",\"content\":\"Load\"}"));
+                        long t = System.nanoTime();
+                        try {
+                            if (send(http, request, user).statusCode() >= 300) {
+                                failed.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                        nanos[i] = System.nanoTime() - t;
+                    }
+                    return nanos;
+                }));
+            }
+            long[] all = new long[CLIENTS * REQUESTS_PER_CLIENT];
+            for (int c = 0; c < CLIENTS; c++) {
+                System.arraycopy(futures.get(c).get(), 0, all, c * REQUESTS_PER_CLIENT, REQUESTS_PER_CLIENT);
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(all);
+            return new Result(Math.round(all.length / (elapsed / 1e9)), percentile(all, 0.50), percentile(all, 0.99),
+                    failed.get(), threads.getPeakThreadCount());
+        }
+    }
+
+    private static HttpResponse<String> send(HttpClient http, HttpRequest.Builder request, int user) throws Exception {
+        return http.send(request.header("X-API-Key", "test-api-key")
+                .header("X-User-Id", "load-" + user)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long percentile(long[] sortedNanos, double p) {
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.round(p * sortedNanos.length))] / 1_000_000;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.ragchat.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadModeIntegrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void dataSourceIsWrappedInBulkheadAndRequestsStillWork() throws Exception {
+        assertThat(dataSource).isInstanceOf(BulkheadDataSource.class);
+
+        mockMvc.perform(get("/api/v1/sessions")
+                        .header("X-API-Key", "test-api-key")
+                        .header("X-User-Id", "vt-user"))
+                .andExpect(status().isOk());
+        assertThat(((BulkheadDataSource) dataSource).getWaiting()).isZero();
+    }
+}
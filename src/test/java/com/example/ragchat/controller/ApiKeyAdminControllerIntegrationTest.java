@@ -0,0 +1,137 @@
+package com.example.ragchat.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ApiKeyAdminControllerIntegrationTest {
+
+    private static final String API_KEY = "test-api-key";
+    private static final String ADMIN_PATH = "/api/v1/admin/api-keys";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void createdKeyAuthenticatesUntilRevoked() throws Exception {
+        String resp = mockMvc.perform(post(ADMIN_PATH)
+                        .header("X-API-Key", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tenantId\":\"acme\",\"name\":\"ingest\",\"rateLimit\":500}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tenantId").value("acme"))
+                .andExpect(jsonPath("$.rateLimit").value(500))
+                .andExpect(jsonPath("$.key").value(startsWith("rcs_")))
+                .andExpect(jsonPath("$.revokedAt").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(resp);
+        String tenantKey = created.get("key").asText();
+
+        mockMvc.perform(get("/api/v1/sessions").header("Authorization", "ApiKey " + tenantKey).header("X-User-Id", "u1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(ADMIN_PATH).param("tenantId", "acme").header("X-API-Key", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(created.get("id").asText()))
+                .andExpect(jsonPath("$[0].key").doesNotExist());
+
+        mockMvc.perform(delete(ADMIN_PATH + "/" + created.get("id").asText()).header("X-API-Key", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revokedAt").exists());
+        mockMvc.perform(get("/api/v1/sessions").header("X-API-Key", tenantKey).header("X-User-Id", "u1"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tenantKeysCannotManageKeysOrReadActuator() throws Exception {
+        String resp = mockMvc.perform(post(ADMIN_PATH)
+                        .header("X-API-Key", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tenantId\":\"globex\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String tenantKey = objectMapper.readTree(resp).get("key").asText();
+
+        mockMvc.perform(get(ADMIN_PATH).param("tenantId", "globex").header("X-API-Key", tenantKey))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.status").value(403));
+        mockMvc.perform(get("/actuator/metrics").header("X-API-Key", tenantKey))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(ADMIN_PATH).param("tenantId", "globex").header("X-API-Key", "rcs_unknown"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tenantsCannotReachEachOthersSessionsWithTheSameUserId() throws Exception {
+        String keyA = createKey("tenant-a");
+        String keyB = createKey("tenant-b");
+        String created = mockMvc.perform(post("/api/v1/sessions").header("X-API-Key", keyA).header("X-User-Id", "alice")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"A's chat\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String session = "/api/v1/sessions/" + objectMapper.readTree(created).get("id").asText();
+
+        mockMvc.perform(get(session).header("X-API-Key", keyA).header("X-User-Id", "alice"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(session).header("X-API-Key", keyB).header("X-User-Id", "alice"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(session + "/messages").header("X-API-Key", keyB).header("X-User-Id", "alice"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete(session).header("X-API-Key", keyB).header("X-User-Id", "alice"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/sessions").header("X-API-Key", keyB).header("X-User-Id", "alice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+        // The static key cannot name a tenant-scoped owner id
+        mockMvc.perform(get(session).header("X-API-Key", API_KEY).header("X-User-Id", "tenant-a:alice"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+    }
+
+    @Test
+    void userIdsThatCannotBeScopedUnambiguouslyAreRejected() throws Exception {
+        String key = createKey("tenant-c");
+        mockMvc.perform(get("/api/v1/sessions").header("X-API-Key", key).header("X-User-Id", "x:bob"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/sessions").header("X-API-Key", key).header("X-User-Id", "u".repeat(250)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post(ADMIN_PATH)
+                        .header("X-API-Key", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tenantId\":\"acme:x\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String createKey(String tenantId) throws Exception {
+        String resp = mockMvc.perform(post(ADMIN_PATH)
+                        .header("X-API-Key", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tenantId\":\"" + tenantId + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(resp).get("key").asText();
+    }
+
+    @Test
+    void invalidRequestIsRejected() throws Exception {
+        mockMvc.perform(post(ADMIN_PATH)
+                        .header("X-API-Key", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tenantId\":\" \",\"rateLimit\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.ragchat.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.import.chunk-size=2")
+class ImportControllerIntegrationTest {
+
+    private static final String API_KEY = "test-api-key";
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void import_loadsSessionsAndMessagesInChunks() throws Exception {
+        String userId = "import-user";
+        UUID sessionId = UUID.randomUUID();
+        String body = String.join("\n",
+                "{\"type\":\"session\",\"id\":\"" + sessionId + "\",\"title\":\"Imported\",\"createdAt\":\"2024-01-01T10:00:00Z\"}",
+                "{\"type\":\"message\",\"sessionId\":\"" + sessionId + "\",\"sender\":\"user\",\"content\":\"Q\",\"createdAt\":\"2024-01-01T10:00:01Z\"}",
+                "{\"type\":\"message\",\"sessionId\":\"" + sessionId + "\",\"sender\":\"assistant\",\"content\":\"A\",\"context\":{\"k\":1},\"createdAt\":\"2024-01-01T10:00:02Z\"}");
+
+        String resp = mockMvc.perform(post("/api/v1/imports")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", userId)
+                        .contentType(NDJSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.linesProcessed").value(3))
+                .andExpect(jsonPath("$.sessionsImported").value(1))
+                .andExpect(jsonPath("$.messagesImported").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String jobId = objectMapper.readTree(resp).get("id").asText();
+
+        mockMvc.perform(get("/api/v1/imports/" + jobId)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messagesImported").value(2));
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("Q"))
+                .andExpect(jsonPath("$.content[1].context.k").value(1))
+                .andExpect(jsonPath("$.content[1].createdAt").value("2024-01-01T10:00:02Z"));
+    }
+
+    @Test
+    void import_failedLine_resumesFromCheckpoint() throws Exception {
+        String userId = "resume-user";
+        UUID sessionId = UUID.randomUUID();
+        String session = "{\"type\":\"session\",\"id\":\"" + sessionId + "\",\"title\":\"Resumed\"}";
+        String first = "{\"type\":\"message\",\"sessionId\":\"" + sessionId + "\",\"sender\":\"user\",\"content\":\"1\"}";
+        String second = "{\"type\":\"message\",\"sessionId\":\"" + sessionId + "\",\"sender\":\"user\",\"content\":\"2\"}";
+
+        String failed = mockMvc.perform(post("/api/v1/imports")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", userId)
+                        .contentType(NDJSON)
+                        .content(String.join("\n", session, first, "{not json", second)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.error").value("Line 3: invalid JSON"))
+                .andExpect(jsonPath("$.linesProcessed").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String jobId = objectMapper.readTree(failed).get("id").asText();
+
+        // The checkpoint covers the first chunk (2 lines); the corrected body is resent in full
+        mockMvc.perform(post("/api/v1/imports")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", userId)
+                        .param("jobId", jobId)
+                        .contentType(NDJSON)
+                        .content(String.join("\n", session, first, "", second)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.linesProcessed").value(4))
+                .andExpect(jsonPath("$.messagesImported").value(2))
+                .andExpect(jsonPath("$.rowsSkipped").value(0));
+    }
+
+    @Test
+    void import_messagesForForeignSession_areSkipped() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        mockMvc.perform(post("/api/v1/imports")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "owner")
+                        .contentType(NDJSON)
+                        .content("{\"type\":\"session\",\"id\":\"" + sessionId + "\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/v1/imports")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "intruder")
+                        .contentType(NDJSON)
+                        .content("{\"type\":\"message\",\"sessionId\":\"" + sessionId + "\",\"sender\":\"user\",\"content\":\"x\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.messagesImported").value(0))
+                .andExpect(jsonPath("$.rowsSkipped").value(1));
+    }
+
+    @Test
+    void getJob_otherUser_returns404() throws Exception {
+        String resp = mockMvc.perform(post("/api/v1/imports")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "job-owner")
+                        .contentType(NDJSON)
+                        .content(""))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode job = objectMapper.readTree(resp);
+
+        mockMvc.perform(get("/api/v1/imports/" + job.get("id").asText())
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "someone-else"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.ragchat.controller;
+
+import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.BatchAddMessagesRequest;
+import com.example.ragchat.model.dto.CreateSessionRequest;
+import com.example.ragchat.model.entity.MessageSender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Appending a RAG turn (the user's question and the assistant's answer) with one
+ * {@code POST .../messages} per message against one {@code POST .../messages/batch}: logs database
+ * round trips (executed statements) per turn and turns per second. Runs on the test profile's H2, so
+ * round trips are the portable number; throughput over a network to PostgreSQL gains more. Tagged
+ * {@code benchmark}, so it only runs with {@code -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MessageBatchAppendBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageBatchAppendBenchmarkTest.class);
+    private static final String API_KEY = "test-api-key";
+    private static final String USER_ID = "batch-bench";
+    private static final int WARM_UP = 200;
+    private static final int TURNS = 2_000;
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    private static final List<AddMessageRequest> TURN = List.of(
+            new AddMessageRequest(MessageSender.user, "What does the retention policy say about backups?", null),
+            new AddMessageRequest(MessageSender.assistant, "Backups are kept for 30 days and then deleted.", null));
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void reportsRoundTripsAndThroughputPerTurn() throws Exception {
+        String singles = createSession("Per message") + "/messages";
+        String batched = createSession("Batched") + "/messages";
+        List<String> bodies = TURN.stream().map(this::json).toList();
+        String batchBody = json(new BatchAddMessagesRequest(TURN));
+
+        for (int i = 0; i < WARM_UP; i++) {
+            appendOneByOne(singles, bodies);
+            appendBatch(batched, batchBody);
+        }
+        STATEMENTS.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < TURNS; i++) {
+            appendOneByOne(singles, bodies);
+        }
+        long oneByOneNanos = System.nanoTime() - start;
+        int oneByOneStatements = STATEMENTS.getAndSet(0);
+        start = System.nanoTime();
+        for (int i = 0; i < TURNS; i++) {
+            appendBatch(batched, batchBody);
+        }
+        long batchNanos = System.nanoTime() - start;
+        int batchStatements = STATEMENTS.get();
+
+        log.info("{}-message turns: per message {} statements/turn, {} turns/s; batch {} statements/turn, {} turns/s",
+                TURN.size(), (double) oneByOneStatements / TURNS, turnsPerSecond(oneByOneNanos),
+                (double) batchStatements / TURNS, turnsPerSecond(batchNanos));
+    }
+
+    private void appendOneByOne(String messages, List<String> bodies) throws Exception {
+        for (String body : bodies) {
+            mockMvc.perform(post(messages).header("X-API-Key", API_KEY).header("X-User-Id", USER_ID)
+                            .contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    private void appendBatch(String messages, String body) throws Exception {
+        mockMvc.perform(post(messages + "/batch").header("X-API-Key", API_KEY).header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated());
+    }
+
+    private static long turnsPerSecond(long nanos) {
+        return Math.round(TURNS / (nanos / 1e9));
+    }
+
+    private String createSession(String title) throws Exception {
+        String body = mockMvc.perform(post("/api/v1/sessions").header("X-API-Key", API_KEY).header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON).content(json(new CreateSessionRequest(title))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return "/api/v1/sessions/" + objectMapper.readTree(body).get("id").asText();
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? countingProxy(ds, DataSource.class) : bean;
+                }
+            };
+        }
+
+        /** Wraps DataSource -> Connection -> Statement and counts every execute* call. */
+        @SuppressWarnings("unchecked")
+        private static <T> T countingProxy(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute") && target instanceof Statement) {
+                    STATEMENTS.incrementAndGet();
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    if (result instanceof Connection c) {
+                        return countingProxy(c, Connection.class);
+                    }
+                    if (result instanceof Statement s) {
+                        return countingProxy(s, (Class<Statement>) statementType(s));
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        private static Class<?> statementType(Statement s) {
+            if (s instanceof java.sql.CallableStatement) return java.sql.CallableStatement.class;
+            if (s instanceof java.sql.PreparedStatement) return java.sql.PreparedStatement.class;
+            return Statement.class;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.ragchat.controller;
 
 import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.BatchAddMessagesRequest;
 import com.example.ragchat.model.entity.MessageSender;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -10,7 +11,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -101,4 +106,314 @@ class MessageControllerIntegrationTest {
                         .content("{}"))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void addBatch_appendsInOrder() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new com.example.ragchat.model.dto.CreateSessionRequest("Batch"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(createResp).get("id").asText();
+
+        BatchAddMessagesRequest batch = new BatchAddMessagesRequest(List.of(
+                new AddMessageRequest(MessageSender.user, "Question", null),
+                new AddMessageRequest(MessageSender.assistant, "Answer", null)));
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages/batch")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].content").value("Question"))
+                .andExpect(jsonPath("$[1].sender").value("assistant"))
+                .andExpect(jsonPath("$[1].id").exists());
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
+    @Test
+    void listMessages_withoutTotal_returnsSlice() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new com.example.ragchat.model.dto.CreateSessionRequest("Slice"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(createResp).get("id").asText();
+        BatchAddMessagesRequest batch = new BatchAddMessagesRequest(List.of(
+                new AddMessageRequest(MessageSender.user, "One", null),
+                new AddMessageRequest(MessageSender.assistant, "Two", null)));
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages/batch")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("withTotal", "false")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("One"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.last").value(false));
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("withTotal", "false")
+                        .param("page", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0))
+                .andExpect(jsonPath("$.last").value(true));
+        mockMvc.perform(get("/api/v1/sessions/00000000-0000-0000-0000-000000000000/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("withTotal", "false"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportSession_streamsNdjsonOldestFirst() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new com.example.ragchat.model.dto.CreateSessionRequest("Export"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(createResp).get("id").asText();
+        BatchAddMessagesRequest batch = new BatchAddMessagesRequest(List.of(
+                new AddMessageRequest(MessageSender.user, "Q", null),
+                new AddMessageRequest(MessageSender.assistant, "A",
+                        objectMapper.readTree("{\"sources\":[\"doc1\"]}"))));
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages/batch")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isCreated());
+
+        MvcResult started = mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages/export")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        org.assertj.core.api.Assertions.assertThat(lines).hasSize(2);
+        org.assertj.core.api.Assertions.assertThat(objectMapper.readTree(lines[0]).get("content").asText()).isEqualTo("Q");
+        org.assertj.core.api.Assertions.assertThat(objectMapper.readTree(lines[1]).get("context").get("sources").get(0).asText())
+                .isEqualTo("doc1");
+        org.assertj.core.api.Assertions.assertThat(objectMapper.readTree(lines[1]).get("sessionId").asText()).isEqualTo(sessionId);
+    }
+
+    @Test
+    void exportSession_sessionNotFound_returns404() throws Exception {
+        mockMvc.perform(get("/api/v1/sessions/00000000-0000-0000-0000-000000000000/messages/export")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void addBatch_emptyList_returns400() throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/00000000-0000-0000-0000-000000000000/messages/batch")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"messages\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void addBatch_sessionNotFound_returns404() throws Exception {
+        BatchAddMessagesRequest batch = new BatchAddMessagesRequest(List.of(
+                new AddMessageRequest(MessageSender.user, "Hi", null)));
+        mockMvc.perform(post("/api/v1/sessions/00000000-0000-0000-0000-000000000000/messages/batch")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listMessages_keysetPagingWalksForwardAndBackward() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new com.example.ragchat.model.dto.CreateSessionRequest("Keyset"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(createResp).get("id").asText();
+        for (String text : List.of("m1", "m2", "m3")) {
+            mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                            .header("X-API-Key", API_KEY)
+                            .header("X-User-Id", USER_ID)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, text, null))))
+                    .andExpect(status().isCreated());
+        }
+
+        String firstPage = mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("after", "")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].content").value("m1"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.prevCursor").value(nullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("after", next)
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].content").value("m3"))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()))
+                .andExpect(jsonPath("$.prevCursor").isString());
+
+        String latest = mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("before", "")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("m2"))
+                .andExpect(jsonPath("$.content[1].content").value("m3"))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String prev = objectMapper.readTree(latest).get("prevCursor").asText();
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("before", prev)
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].content").value("m1"))
+                .andExpect(jsonPath("$.prevCursor").value(nullValue()));
+    }
+
+    @Test
+    void listMessages_invalidCursor_returns400() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(createResp).get("id").asText();
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listMessages_keyset_sessionNotFound_returns404() throws Exception {
+        mockMvc.perform(get("/api/v1/sessions/00000000-0000-0000-0000-000000000000/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("before", ""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listLatestMessages_ifNoneMatch_returns304UntilAMessageIsAdded() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new com.example.ragchat.model.dto.CreateSessionRequest("Polled"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(createResp).get("id").asText();
+        String etag = mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("before", ""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .header("If-None-Match", etag)
+                        .param("before", ""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, "New", null))))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .header("If-None-Match", etag)
+                        .param("before", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("New"));
+    }
+
+    @Test
+    void addMessage_contextRoundTrips() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(createResp).get("id").asText();
+
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"assistant\",\"content\":\"Answer\",\"context\":{\"sources\":[\"doc1\"]}}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].context.sources[0]").value("doc1"));
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("before", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].context.sources[0]").value("doc1"));
+    }
 }
@@ -0,0 +1,213 @@
+package com.example.ragchat.controller;
+
+import com.example.ragchat.cache.SessionOwnershipCache;
+import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.BatchAddMessagesRequest;
+import com.example.ragchat.model.dto.CreateSessionRequest;
+import com.example.ragchat.model.entity.MessageSender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Asserts how many SQL statements (database round trips) each message endpoint executes.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MessageStatementCountIntegrationTest {
+
+    private static final String API_KEY = "test-api-key";
+    private static final String USER_ID = "count-user";
+    private static final UUID MISSING_ID = new UUID(0, 0);
+    private static final String MISSING = "/api/v1/sessions/" + MISSING_ID + "/messages";
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private SessionOwnershipCache ownershipCache;
+
+    private String messagesPath;
+
+    @BeforeEach
+    void createSession() throws Exception {
+        ownershipCache.evictLocal(MISSING_ID);
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateSessionRequest("Counted"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        messagesPath = "/api/v1/sessions/" + objectMapper.readTree(createResp).get("id").asText() + "/messages";
+    }
+
+    @Test
+    void addMessage_runsOneStatement() throws Exception {
+        STATEMENTS.set(0);
+        mockMvc.perform(post(messagesPath)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, "Hi", null))))
+                .andExpect(status().isCreated());
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+    }
+
+    @Test
+    void addMessage_sessionNotFound_runsOneStatement() throws Exception {
+        STATEMENTS.set(0);
+        mockMvc.perform(post(MISSING)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, "Hi", null))))
+                .andExpect(status().isNotFound());
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+    }
+
+    @Test
+    void addMessage_sessionNotFoundAgain_isRejectedWithoutSql() throws Exception {
+        String body = objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, "Hi", null));
+        mockMvc.perform(post(MISSING).header("X-API-Key", API_KEY).header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNotFound());
+        STATEMENTS.set(0);
+        mockMvc.perform(post(MISSING).header("X-API-Key", API_KEY).header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNotFound());
+        assertThat(STATEMENTS.get()).isZero();
+    }
+
+    @Test
+    void addBatch_runsOneBatch() throws Exception {
+        BatchAddMessagesRequest batch = new BatchAddMessagesRequest(List.of(
+                new AddMessageRequest(MessageSender.user, "Q", null),
+                new AddMessageRequest(MessageSender.assistant, "A", null)));
+        STATEMENTS.set(0);
+        mockMvc.perform(post(messagesPath + "/batch")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isCreated());
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+    }
+
+    @Test
+    void listMessages_runsOneStatement() throws Exception {
+        mockMvc.perform(post(messagesPath)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, "Hi", null))))
+                .andExpect(status().isCreated());
+
+        STATEMENTS.set(0);
+        mockMvc.perform(get(messagesPath)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1));
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+
+        STATEMENTS.set(0);
+        mockMvc.perform(get(messagesPath)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("before", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1));
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+    }
+
+    @Test
+    void listMessages_emptySession_runsOneStatement() throws Exception {
+        STATEMENTS.set(0);
+        mockMvc.perform(get(messagesPath)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+    }
+
+    @Test
+    void listMessages_sessionNotFound_runsOneStatementForKeyset() throws Exception {
+        STATEMENTS.set(0);
+        mockMvc.perform(get(MISSING)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .param("after", ""))
+                .andExpect(status().isNotFound());
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? countingProxy(ds, DataSource.class) : bean;
+                }
+            };
+        }
+
+        /** Wraps DataSource -> Connection -> Statement and counts every execute* call. */
+        @SuppressWarnings("unchecked")
+        private static <T> T countingProxy(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute") && target instanceof Statement) {
+                    STATEMENTS.incrementAndGet();
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    if (result instanceof Connection c) {
+                        return countingProxy(c, Connection.class);
+                    }
+                    if (result instanceof Statement s) {
+                        return countingProxy(s, (Class<Statement>) statementType(s));
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        private static Class<?> statementType(Statement s) {
+            if (s instanceof java.sql.CallableStatement) return java.sql.CallableStatement.class;
+            if (s instanceof java.sql.PreparedStatement) return java.sql.PreparedStatement.class;
+            return Statement.class;
+        }
+    }
+}
@@ -10,6 +10,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -63,6 +66,67 @@ class SessionControllerIntegrationTest {
                 .andExpect(jsonPath("$.totalPages").isNumber());
     }
 
+    @Test
+    void listSessions_withoutTotal_omitsCounts() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/sessions")
+                            .header("X-API-Key", API_KEY)
+                            .header("X-User-Id", "slice-user")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new CreateSessionRequest("S" + i))))
+                    .andExpect(status().isCreated());
+        }
+        mockMvc.perform(get("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "slice-user")
+                        .param("withTotal", "false")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.totalPages").doesNotExist())
+                .andExpect(jsonPath("$.last").value(false));
+        mockMvc.perform(get("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "slice-user")
+                        .param("withTotal", "false")
+                        .param("page", "1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.last").value(true));
+    }
+
+    @Test
+    void exportUser_streamsMessagesOfAllSessions() throws Exception {
+        String exportUser = "export-user";
+        for (String title : List.of("First", "Second")) {
+            String created = mockMvc.perform(post("/api/v1/sessions")
+                            .header("X-API-Key", API_KEY)
+                            .header("X-User-Id", exportUser)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new CreateSessionRequest(title))))
+                    .andReturn().getResponse().getContentAsString();
+            String sessionId = objectMapper.readTree(created).get("id").asText();
+            mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                            .header("X-API-Key", API_KEY)
+                            .header("X-User-Id", exportUser)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"sender\":\"user\",\"content\":\"" + title + "\"}"))
+                    .andExpect(status().isCreated());
+        }
+
+        MvcResult started = mockMvc.perform(get("/api/v1/sessions/export")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", exportUser))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"content\":\"First\"")))
+                .andExpect(content().string(containsString("\"content\":\"Second\"")))
+                .andExpect(content().string(not(containsString("test-user"))));
+    }
+
     @Test
     void getSession_returns200WhenExists() throws Exception {
         String createResp = mockMvc.perform(post("/api/v1/sessions")
@@ -144,6 +208,75 @@ class SessionControllerIntegrationTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void getSession_ifNoneMatch_returns304UntilUpdated() throws Exception {
+        String createResp = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateSessionRequest("Polled"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(createResp).get("id").asText();
+        String etag = mockMvc.perform(get("/api/v1/sessions/" + id)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(header().stringValues("Vary", hasItem(containsString("X-User-Id"))))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/sessions/" + id)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/api/v1/sessions/" + id)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateSessionRequest("Renamed", null))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/sessions/" + id)
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.title").value("Renamed"));
+    }
+
+    @Test
+    void listSessions_ifNoneMatch_returns304UntilASessionIsCreated() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "etag-user"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "etag-user")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "etag-user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateSessionRequest("New"))))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", "etag-user")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1));
+    }
+
     @Test
     void createSession_withoutXUserId_returns400() throws Exception {
         mockMvc.perform(post("/api/v1/sessions")
@@ -0,0 +1,258 @@
+package com.example.ragchat.controller;
+
+import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.BatchAddMessagesRequest;
+import com.example.ragchat.model.dto.CreateSessionRequest;
+import com.example.ragchat.model.entity.MessageSender;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * {@code fields=} on the list endpoints: only the requested fields are written, and only their
+ * columns are read. Measures what leaving out the message context saves in bytes read from the
+ * driver, heap allocated per request and response size, and logs the numbers.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SparseFieldsIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SparseFieldsIntegrationTest.class);
+    private static final String API_KEY = "test-api-key";
+    private static final AtomicLong BYTES_READ = new AtomicLong();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+
+    @BeforeEach
+    void newUser() {
+        userId = "fields-" + UUID.randomUUID();
+    }
+
+    @Test
+    void sessionList_writesOnlyTheRequestedFields() throws Exception {
+        createSession("First");
+        createSession("Second");
+
+        mockMvc.perform(as(get("/api/v1/sessions")).param("fields", "id,title,updatedAt"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].title").value("Second"))
+                .andExpect(jsonPath("$.content[0].id").exists())
+                .andExpect(jsonPath("$.content[0].updatedAt").exists())
+                .andExpect(jsonPath("$.content[0].sessionId").doesNotExist())
+                .andExpect(jsonPath("$.content[0].favorite").doesNotExist())
+                .andExpect(jsonPath("$.content[0].createdAt").doesNotExist());
+
+        mockMvc.perform(as(get("/api/v1/sessions")).param("fields", "title").param("withTotal", "false").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.content[0].length()").value(1));
+    }
+
+    @Test
+    void unknownOrEmptyFields_return400() throws Exception {
+        mockMvc.perform(as(get("/api/v1/sessions")).param("fields", "id,userId"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(org.hamcrest.Matchers.containsString("userId")));
+        mockMvc.perform(as(get(createSession("Chat") + "/messages")).param("fields", " , "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void messageLists_keepCursorsWithoutTheCursorFields() throws Exception {
+        String messages = createSession("Chat") + "/messages";
+        addMessages(messages, 3, 0);
+
+        mockMvc.perform(as(get(messages)).param("fields", "sender,content"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(jsonPath("$.content[0].content").value("Message 0"))
+                .andExpect(jsonPath("$.content[0].length()").value(2));
+
+        String first = mockMvc.perform(as(get(messages)).param("after", "").param("size", "2").param("fields", "content"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[1].content").value("Message 1"))
+                .andExpect(jsonPath("$.content[1].id").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(as(get(messages)).param("after", objectMapper.readTree(first).get("nextCursor").asText())
+                        .param("fields", "content"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("Message 2"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(as(get(messages)).param("before", "").param("size", "2").param("fields", "id,context"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[1].context.note").value("n2"))
+                .andExpect(jsonPath("$.prevCursor").exists());
+
+        mockMvc.perform(as(get("/api/v1/sessions/" + new UUID(0, 0) + "/messages")).param("fields", "content"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void leavingOutContext_readsAllocatesAndWritesLess() throws Exception {
+        String messages = createSession("Long RAG chat") + "/messages";
+        for (int batch = 0; batch < 5; batch++) {
+            addMessages(messages, 10, 8_000);
+        }
+        Measurement full = measure(messages, null);
+        Measurement sparse = measure(messages, "id,sender,content,createdAt");
+
+        log.info("50 messages, 8 KB context each: full {} bytes read, {} bytes allocated, {} response bytes; "
+                        + "fields {} bytes read, {} bytes allocated, {} response bytes",
+                full.bytesRead(), full.allocated(), full.responseBytes(),
+                sparse.bytesRead(), sparse.allocated(), sparse.responseBytes());
+        assertThat(sparse.bytesRead()).isLessThan(full.bytesRead() / 10);
+        assertThat(sparse.responseBytes()).isLessThan(full.responseBytes() / 10);
+        assertThat(sparse.allocated()).isLessThan(full.allocated() / 2);
+    }
+
+    private record Measurement(long bytesRead, long allocated, int responseBytes) {
+    }
+
+    /** Averages over repeated requests after a warm-up; allocations are this thread's (MockMvc runs on it). */
+    private Measurement measure(String messages, String fields) throws Exception {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        int rounds = 20;
+        int responseBytes = 0;
+        for (int i = 0; i < 10; i++) {
+            responseBytes = listPage(messages, fields);
+        }
+        BYTES_READ.set(0);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < rounds; i++) {
+            listPage(messages, fields);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        return new Measurement(BYTES_READ.get() / rounds, allocated / rounds, responseBytes);
+    }
+
+    private int listPage(String messages, String fields) throws Exception {
+        MockHttpServletRequestBuilder request = as(get(messages)).param("size", "50");
+        if (fields != null) {
+            request.param("fields", fields);
+        }
+        return mockMvc.perform(request).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray().length;
+    }
+
+    private void addMessages(String messages, int count, int contextChars) throws Exception {
+        List<AddMessageRequest> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ObjectNode context = objectMapper.createObjectNode().put("note", "n" + i);
+            if (contextChars > 0) {
+                context.putArray("chunks").add("retrieved passage ".repeat(contextChars / 18));
+            }
+            batch.add(new AddMessageRequest(i % 2 == 0 ? MessageSender.user : MessageSender.assistant, "Message " + i, context));
+        }
+        mockMvc.perform(as(post(messages + "/batch"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchAddMessagesRequest(batch))))
+                .andExpect(status().isCreated());
+    }
+
+    private String createSession(String title) throws Exception {
+        String body = mockMvc.perform(as(post("/api/v1/sessions"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateSessionRequest(title))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(body);
+        return "/api/v1/sessions/" + created.get("id").asText();
+    }
+
+    private MockHttpServletRequestBuilder as(MockHttpServletRequestBuilder request) {
+        return request.header("X-API-Key", API_KEY).header("X-User-Id", userId);
+    }
+
+    @TestConfiguration
+    static class BytesReadConfig {
+
+        @Bean
+        static BeanPostProcessor bytesReadCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? countingProxy(ds, DataSource.class) : bean;
+                }
+            };
+        }
+
+        /** Wraps DataSource -> Connection -> Statement -> ResultSet and adds up the size of every column value read. */
+        @SuppressWarnings("unchecked")
+        private static <T> T countingProxy(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (target instanceof ResultSet && method.getName().startsWith("get") && result != null) {
+                    BYTES_READ.addAndGet(switch (result) {
+                        case String s -> s.length();
+                        case byte[] b -> b.length;
+                        default -> 16;
+                    });
+                }
+                if (result instanceof Connection c) {
+                    return countingProxy(c, Connection.class);
+                }
+                if (result instanceof ResultSet rs) {
+                    return countingProxy(rs, ResultSet.class);
+                }
+                if (result instanceof Statement s) {
+                    return countingProxy(s, (Class<Statement>) statementType(s));
+                }
+                return result;
+            });
+        }
+
+        private static Class<?> statementType(Statement s) {
+            if (s instanceof java.sql.CallableStatement) return java.sql.CallableStatement.class;
+            if (s instanceof java.sql.PreparedStatement) return java.sql.PreparedStatement.class;
+            return Statement.class;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ragchat.controller;
+
+import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.CreateSessionRequest;
+import com.example.ragchat.model.entity.MessageSender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.ingest.write-behind.enabled=true")
+class WriteBehindIngestIntegrationTest {
+
+    private static final String API_KEY = "test-api-key";
+    private static final String USER_ID = "async-user";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void respondAsync_returns202AndMessageIsWrittenByFlush() throws Exception {
+        String sessionId = createSession();
+
+        String accepted = mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.assistant, "Queued", null))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.id").exists())
+                .andReturn().getResponse().getContentAsString();
+        String messageId = objectMapper.readTree(accepted).get("id").asText();
+
+        String listed = "";
+        for (int attempt = 0; attempt < 50 && !listed.contains(messageId); attempt++) {
+            Thread.sleep(20);
+            listed = mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/messages")
+                            .header("X-API-Key", API_KEY)
+                            .header("X-User-Id", USER_ID))
+                    .andReturn().getResponse().getContentAsString();
+        }
+        assertThat(listed).contains(messageId);
+    }
+
+    @Test
+    void respondAsync_sessionNotFound_returns404() throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/00000000-0000-0000-0000-000000000000/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, "x", null))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void withoutPreferHeader_writesSynchronously() throws Exception {
+        String sessionId = createSession();
+
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddMessageRequest(MessageSender.user, "Now", null))))
+                .andExpect(status().isCreated());
+    }
+
+    private String createSession() throws Exception {
+        String created = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-Key", API_KEY)
+                        .header("X-User-Id", USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateSessionRequest("Async"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(created).get("id").asText();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.ragchat.model.entity;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Inserts the same rows into two tables keyed by random (v4) and time-ordered (v7) UUIDs on
+ * PostgreSQL and logs the insert rate and the size of each primary-key index. Random keys split
+ * pages all over the B-tree and leave them half full; v7 keys fill the rightmost page. Tagged
+ * {@code benchmark}, so it only runs with {@code -Pbenchmark}, and skipped when Docker is not available.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class UuidV7InsertBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UuidV7InsertBenchmarkTest.class);
+    private static final int ROWS = 1_000_000;
+    private static final int BATCH = 1_000;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withUrlParam("reWriteBatchedInserts", "true");
+
+    @Test
+    void reportsInsertRateAndPrimaryKeySize() throws SQLException {
+        Result random = insert("ids_v4", UUID::randomUUID);
+        Result ordered = insert("ids_v7", UuidV7Generator::generate);
+
+        log.info("{} rows: v4 {} rows/s, pkey {} MB; v7 {} rows/s, pkey {} MB", ROWS,
+                random.rowsPerSecond(), random.indexBytes() >> 20, ordered.rowsPerSecond(), ordered.indexBytes() >> 20);
+    }
+
+    private record Result(long rowsPerSecond, long indexBytes) {
+    }
+
+    /** Same shape as a message row: the id, a session id and a short body. */
+    private static Result insert(String table, Supplier<UUID> ids) throws SQLException {
+        try (Connection c = connect()) {
+            try (Statement st = c.createStatement()) {
+                st.execute("CREATE TABLE " + table + " (id UUID PRIMARY KEY, session_id UUID NOT NULL, content TEXT NOT NULL)");
+            }
+            c.setAutoCommit(false);
+            UUID sessionId = UUID.randomUUID();
+            long start = System.nanoTime();
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO " + table + " VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= ROWS; i++) {
+                    ps.setObject(1, ids.get());
+                    ps.setObject(2, sessionId);
+                    ps.setString(3, "message " + i);
+                    ps.addBatch();
+                    if (i % BATCH == 0) {
+                        ps.executeBatch();
+                        c.commit();
+                    }
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT pg_relation_size('" + table + "_pkey')")) {
+                rs.next();
+                return new Result(Math.round(ROWS / (nanos / 1e9)), rs.getLong(1));
+            }
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.ragchat.ratelimit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Runs the GCRA script against a real Redis. Skipped when Docker is not available. */
+@Testcontainers(disabledWithoutDocker = true)
+class GcraRateLimiterTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final String client = "user:" + UUID.randomUUID();
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void allowsABurstUpToTheLimitThenOneTokenPerInterval() {
+        GcraRateLimiter limiter = new GcraRateLimiter(redisTemplate, 10, 60);
+        limiter.preloadScript();
+
+        for (int i = 9; i >= 0; i--) {
+            RateLimiter.Decision decision = limiter.tryAcquire(client, 1);
+            assertThat(decision.allowed()).isTrue();
+            assertThat(decision.remaining()).isEqualTo(i);
+        }
+        RateLimiter.Decision rejected = limiter.tryAcquire(client, 1);
+
+        assertThat(rejected.allowed()).isFalse();
+        assertThat(rejected.remaining()).isZero();
+        // Next token after one emission interval (60s / 10), not at the end of a window
+        assertThat(rejected.retryAfterMillis()).isBetween(5_000L, 6_000L);
+    }
+
+    @Test
+    void costsConsumeSeveralTokensAndRejectedRequestsConsumeNone() {
+        GcraRateLimiter limiter = new GcraRateLimiter(redisTemplate, 10, 60);
+
+        assertThat(limiter.tryAcquire(client, 4).remaining()).isEqualTo(6);
+        assertThat(limiter.tryAcquire(client, 7).allowed()).isFalse();
+        assertThat(limiter.tryAcquire(client, 6).remaining()).isZero();
+    }
+
+    @Test
+    void aClientsOwnLimitSetsBothBurstAndRate() {
+        GcraRateLimiter limiter = new GcraRateLimiter(redisTemplate, 10, 60);
+
+        assertThat(limiter.tryAcquire(client, 1, 40).remaining()).isEqualTo(39);
+        assertThat(limiter.tryAcquire(client, 39, 40).allowed()).isTrue();
+        RateLimiter.Decision rejected = limiter.tryAcquire(client, 1, 40);
+
+        assertThat(rejected.allowed()).isFalse();
+        assertThat(rejected.limit()).isEqualTo(40);
+        // One emission interval at the client's rate (60s / 40)
+        assertThat(rejected.retryAfterMillis()).isBetween(1_000L, 1_500L);
+    }
+
+    @Test
+    void refillsSteadilyInsteadOfAtWindowBoundaries() throws InterruptedException {
+        GcraRateLimiter limiter = new GcraRateLimiter(redisTemplate, 10, 1);
+        while (limiter.tryAcquire(client, 1).allowed()) {
+            // drain the burst
+        }
+
+        Thread.sleep(350);
+        int allowed = 0;
+        while (limiter.tryAcquire(client, 1).allowed()) {
+            allowed++;
+        }
+
+        assertThat(allowed).isBetween(3, 4);
+    }
+
+    @Test
+    void chargeGoesBeyondTheLimitWithDebtCappedAtOneWindow() {
+        GcraRateLimiter limiter = new GcraRateLimiter(redisTemplate, 10, 60);
+
+        limiter.charge(client, 1_000);
+        RateLimiter.Decision rejected = limiter.tryAcquire(client, 1);
+
+        assertThat(rejected.allowed()).isFalse();
+        assertThat(rejected.retryAfterMillis()).isBetween(60_000L, 66_000L);
+    }
+}
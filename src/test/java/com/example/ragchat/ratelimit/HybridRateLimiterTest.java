@@ -0,0 +1,114 @@
+package com.example.ragchat.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class HybridRateLimiterTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Runnable> background = new ArrayList<>();
+
+    @Test
+    void admitsFromTheLeaseWithoutRedisAndPrefetchesInTheBackground() {
+        when(lease()).thenReturn(10L);
+        HybridRateLimiter limiter = limiter(100, background::add);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isTrue();
+        }
+
+        verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+        assertThat(background).hasSize(1);
+
+        background.getFirst().run();
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isTrue();
+        }
+        verify(redis, times(2)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    @Test
+    void deniesLocallyOnceTheWindowIsExhausted() {
+        when(lease()).thenReturn(3L, 0L);
+        HybridRateLimiter limiter = limiter(3, Runnable::run);
+
+        assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isTrue();
+        assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isTrue();
+        assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isTrue();
+        assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isFalse();
+        assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isFalse();
+
+        verify(redis, times(2)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+        assertThat(meterRegistry.counter("ratelimit.leases", "result", "exhausted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void clientsHaveSeparateLeases() {
+        when(lease()).thenReturn(1L, 0L, 1L);
+        HybridRateLimiter limiter = limiter(1, background::add);
+
+        assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isTrue();
+        assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isFalse();
+        assertThat(limiter.tryAcquire("user:u2", 1).allowed()).isTrue();
+    }
+
+    @Test
+    void expensiveRequestLeasesItsWholeCostAndRejectionsWaitForTheNextWindow() {
+        when(lease()).thenReturn(25L, 0L);
+        HybridRateLimiter limiter = limiter(30, background::add);
+
+        RateLimiter.Decision allowed = limiter.tryAcquire("user:u1", 25);
+        RateLimiter.Decision rejected = limiter.tryAcquire("user:u1", 25);
+
+        assertThat(allowed.allowed()).isTrue();
+        assertThat(allowed.remaining()).isEqualTo(-1);
+        assertThat(rejected.allowed()).isFalse();
+        assertThat(rejected.retryAfterMillis()).isBetween(1L, 3_600_000L);
+        verify(redis, times(2)).execute(any(RedisScript.class), anyList(), eq("25"), eq("30"), any());
+    }
+
+    @Test
+    void chargeTakesFromTheWindowQuotaInTheBackground() {
+        HybridRateLimiter limiter = limiter(100, background::add);
+
+        limiter.charge("user:u1", 15);
+
+        verifyNoInteractions(redis);
+        background.getFirst().run();
+        verify(redis).execute(any(RedisScript.class), anyList(), eq("15"), eq("100"), any());
+    }
+
+    @Test
+    void redisFailureAdmitsOneLeaseLocally() {
+        when(lease()).thenThrow(new RedisConnectionFailureException("down"));
+        HybridRateLimiter limiter = limiter(100, background::add);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("user:u1", 1).allowed()).isTrue();
+        }
+
+        verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+        assertThat(meterRegistry.counter("ratelimit.leases", "result", "error").count()).isEqualTo(1);
+    }
+
+    private Object lease() {
+        return redis.execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    private HybridRateLimiter limiter(int maxRequests, Executor executor) {
+        return new HybridRateLimiter(redis, meterRegistry, maxRequests, 3600, 10, 1000, executor);
+    }
+}
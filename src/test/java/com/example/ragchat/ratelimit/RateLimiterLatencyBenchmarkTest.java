@@ -0,0 +1,113 @@
+package com.example.ragchat.ratelimit;
+
+import com.example.ragchat.cache.RedisCircuitBreaker;
+import com.example.ragchat.config.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Request latency through {@link RateLimitFilter} with the fixed-window and GCRA limiters (one Redis
+ * script call per request) and the hybrid limiter (local tokens), against a real Redis. Logs p50/p99 for
+ * comparison; timings are reported, not asserted. Tagged {@code benchmark}, so it only runs with
+ * {@code -Pbenchmark}, and skipped when Docker is not available.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class RateLimiterLatencyBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiterLatencyBenchmarkTest.class);
+
+    private static final int WARM_UP = 2_000;
+    private static final int REQUESTS = 20_000;
+    private static final int CLIENTS = 50;
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void reportsFilterLatencyPerLimiter() throws Exception {
+        RouteCosts costs = new RouteCosts(1, 2, 3, 5);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitFilter fixedWindow = filter(new FixedWindowRateLimiter(redisTemplate, Integer.MAX_VALUE, 3600), costs,
+                meterRegistry);
+        RateLimitFilter gcra = filter(new GcraRateLimiter(redisTemplate, Integer.MAX_VALUE, 3600), costs, meterRegistry);
+        RateLimitFilter hybrid = filter(new HybridRateLimiter(redisTemplate, meterRegistry,
+                Integer.MAX_VALUE, 3600, 100, 10_000), costs, meterRegistry);
+
+        long[] fixed = measure(fixedWindow);
+        long[] smooth = measure(gcra);
+        long[] local = measure(hybrid);
+
+        log.info("rate limit filter latency (us): fixed-window p50={} p99={}, gcra p50={} p99={}, hybrid p50={} p99={}",
+                percentile(fixed, 0.50), percentile(fixed, 0.99), percentile(smooth, 0.50), percentile(smooth, 0.99),
+                percentile(local, 0.50), percentile(local, 0.99));
+    }
+
+    private static RateLimitFilter filter(RateLimiter limiter, RouteCosts costs, SimpleMeterRegistry meterRegistry) {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(meterRegistry, 20, 10, 0.5,
+                Duration.ofSeconds(1), Duration.ofSeconds(5), 10_000);
+        return new RateLimitFilter(limiter, costs, breaker, Integer.MAX_VALUE, 3600, 10_000);
+    }
+
+    private static long[] measure(RateLimitFilter filter) throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            request(filter, i);
+        }
+        long[] nanos = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = System.nanoTime();
+            request(filter, i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static void request(RateLimitFilter filter, int i) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.addHeader("X-User-Id", "bench-" + i % CLIENTS);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    private static double percentile(long[] sortedNanos, double p) {
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.round(p * sortedNanos.length))] / 1000.0;
+    }
+}
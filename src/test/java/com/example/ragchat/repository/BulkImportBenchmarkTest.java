@@ -0,0 +1,110 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.entity.Message;
+import com.example.ragchat.model.entity.MessageSender;
+import com.example.ragchat.model.entity.UuidV7Generator;
+import com.example.ragchat.repository.BulkImportRepository.MessageRow;
+import com.example.ragchat.repository.BulkImportRepository.SessionRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rows per second of the bulk import (COPY into staging tables, one commit per chunk) against the
+ * per-message path of {@code POST .../messages} (one ownership-checked INSERT and one commit per
+ * message) on PostgreSQL, and logs both. Tagged {@code benchmark}, so it only runs with
+ * {@code -Pbenchmark}, and skipped when Docker is not available.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class BulkImportBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImportBenchmarkTest.class);
+    private static final String USER_ID = "import-bench";
+    private static final int SESSIONS = 100;
+    private static final int MESSAGES_PER_SESSION = 1_000;
+    /** The per-message path is slow; a tenth of the rows is enough for its rate. */
+    private static final int PER_MESSAGE_ROWS = SESSIONS * MESSAGES_PER_SESSION / 10;
+    private static final int CHUNK_SIZE = 1_000;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static TransactionTemplate tx;
+    private static BulkImportRepository bulkImport;
+    private static MessageRepositoryImpl messages;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        bulkImport = new BulkImportRepository(jdbcTemplate, "CAST(? AS jsonb)");
+        messages = new MessageRepositoryImpl(jdbcTemplate, new ObjectMapper(), "CAST(? AS jsonb)");
+    }
+
+    @Test
+    void reportsRowsPerSecondAgainstThePerMessagePath() {
+        Instant now = Instant.now();
+        List<SessionRow> sessions = new ArrayList<>(SESSIONS);
+        List<MessageRow> rows = new ArrayList<>(SESSIONS * MESSAGES_PER_SESSION);
+        for (int s = 0; s < SESSIONS; s++) {
+            UUID sessionId = UUID.randomUUID();
+            sessions.add(new SessionRow(sessionId, "Imported " + s, false, now, now));
+            for (int m = 0; m < MESSAGES_PER_SESSION; m++) {
+                rows.add(new MessageRow(UUID.randomUUID(), sessionId, m % 2 == 0 ? MessageSender.user : MessageSender.assistant,
+                        "Historical message " + m + " of a migrated conversation", "{\"source\":\"migration\"}",
+                        now.plusMillis(m)));
+            }
+        }
+
+        long start = System.nanoTime();
+        tx.executeWithoutResult(status -> bulkImport.load(USER_ID, sessions, List.of()));
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            List<MessageRow> chunk = rows.subList(from, Math.min(rows.size(), from + CHUNK_SIZE));
+            tx.executeWithoutResult(status -> bulkImport.load(USER_ID, List.of(), chunk));
+        }
+        long importNanos = System.nanoTime() - start;
+
+        UUID sessionId = sessions.get(0).id();
+        start = System.nanoTime();
+        for (int i = 0; i < PER_MESSAGE_ROWS; i++) {
+            Message message = new Message();
+            message.setId(UuidV7Generator.generate());
+            message.setSender(MessageSender.user);
+            message.setContent("Replayed message " + i);
+            message.setCreatedAt(Instant.now());
+            tx.executeWithoutResult(status -> messages.insertIfSessionOwned(sessionId, USER_ID, List.of(message)));
+        }
+        long perMessageNanos = System.nanoTime() - start;
+
+        log.info("bulk import: {} rows/s ({} messages in chunks of {}); per-message path: {} rows/s ({} messages)",
+                rate(SESSIONS + rows.size(), importNanos), rows.size(), CHUNK_SIZE,
+                rate(PER_MESSAGE_ROWS, perMessageNanos), PER_MESSAGE_ROWS);
+    }
+
+    private static long rate(int rows, long nanos) {
+        return Math.round(rows / (nanos / 1e9));
+    }
+}
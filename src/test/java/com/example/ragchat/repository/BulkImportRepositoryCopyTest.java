@@ -0,0 +1,84 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.entity.MessageSender;
+import com.example.ragchat.repository.BulkImportRepository.Counts;
+import com.example.ragchat.repository.BulkImportRepository.MessageRow;
+import com.example.ragchat.repository.BulkImportRepository.SessionRow;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exercises the PostgreSQL COPY path of the bulk import (the H2 batch path is covered by
+ * ImportControllerIntegrationTest). Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class BulkImportRepositoryCopyTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate tx;
+    private static BulkImportRepository repository;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repository = new BulkImportRepository(jdbcTemplate, "CAST(? AS jsonb)");
+    }
+
+    @Test
+    void copy_loadsRowsAndSkipsExistingIds() {
+        UUID sessionId = UUID.randomUUID();
+        Instant now = Instant.parse("2024-01-01T10:00:00Z");
+        List<SessionRow> sessions = List.of(new SessionRow(sessionId, "Quotes \"and\", commas", false, now, now));
+        List<MessageRow> messages = List.of(
+                new MessageRow(UUID.randomUUID(), sessionId, MessageSender.user, "multi\nline, \"quoted\"", null, now),
+                new MessageRow(UUID.randomUUID(), sessionId, MessageSender.assistant, "A", "{\"k\": [1, 2]}", now.plusSeconds(1)));
+
+        Counts first = tx.execute(s -> repository.load("copy-user", sessions, messages));
+        Counts replay = tx.execute(s -> repository.load("copy-user", sessions, messages));
+
+        assertThat(first).isEqualTo(new Counts(1, 2));
+        assertThat(replay).isEqualTo(new Counts(0, 0));
+        assertThat(jdbcTemplate.queryForObject("SELECT title FROM sessions WHERE id = ?", String.class, sessionId))
+                .isEqualTo("Quotes \"and\", commas");
+        assertThat(jdbcTemplate.queryForList("SELECT content FROM messages WHERE session_id = ? ORDER BY created_at",
+                String.class, sessionId)).containsExactly("multi\nline, \"quoted\"", "A");
+        assertThat(jdbcTemplate.queryForObject("SELECT context ->> 'k' FROM messages WHERE session_id = ? AND sender = 'assistant'",
+                String.class, sessionId)).isEqualTo("[1, 2]");
+    }
+
+    @Test
+    void copy_skipsMessagesOfSessionsOwnedByAnotherUser() {
+        UUID sessionId = UUID.randomUUID();
+        Instant now = Instant.now();
+        tx.execute(s -> repository.load("owner", List.of(new SessionRow(sessionId, "Mine", false, now, now)), List.of()));
+
+        Counts counts = tx.execute(s -> repository.load("intruder", List.of(),
+                List.of(new MessageRow(UUID.randomUUID(), sessionId, MessageSender.user, "x", null, now))));
+
+        assertThat(counts).isEqualTo(new Counts(0, 0));
+    }
+}
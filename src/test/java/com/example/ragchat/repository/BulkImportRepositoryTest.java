@@ -0,0 +1,74 @@
+package com.example.ragchat.repository;
+
+import com.example.ragchat.model.entity.MessageSender;
+import com.example.ragchat.repository.BulkImportRepository.Counts;
+import com.example.ragchat.repository.BulkImportRepository.MessageRow;
+import com.example.ragchat.repository.BulkImportRepository.SessionRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/** The JDBC batch path against a driver that reports no row counts for batches. */
+class BulkImportRepositoryTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final Savepoint savepoint = mock(Savepoint.class);
+    private BulkImportRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.isWrapperFor(any())).thenReturn(false);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        repository = new BulkImportRepository(new JdbcTemplate(dataSource), "CAST(? AS jsonb)");
+    }
+
+    @Test
+    void load_recountsRowByRowWhenTheBatchReportsNoInfo() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        when(statement.executeBatch()).thenReturn(new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO });
+        // Replayed chunk: the first message already exists and is skipped by NOT EXISTS
+        when(statement.executeUpdate()).thenReturn(0, 1);
+
+        Counts counts = repository.load("importer", List.of(), List.of(
+                new MessageRow(UUID.randomUUID(), sessionId, MessageSender.user, "Q", null, NOW),
+                new MessageRow(UUID.randomUUID(), sessionId, MessageSender.assistant, "A", null, NOW.plusSeconds(1))));
+
+        assertThat(counts).isEqualTo(new Counts(0, 1));
+        verify(connection).rollback(savepoint);
+        verify(statement, times(2)).executeUpdate();
+    }
+
+    @Test
+    void load_keepsTheBatchWhenItReportsRowCounts() throws Exception {
+        when(statement.executeBatch()).thenReturn(new int[] { 1, 0 });
+
+        Counts counts = repository.load("importer", List.of(
+                new SessionRow(UUID.randomUUID(), "New", false, NOW, NOW),
+                new SessionRow(UUID.randomUUID(), "Replayed", false, NOW, NOW)), List.of());
+
+        assertThat(counts).isEqualTo(new Counts(1, 0));
+        verify(connection).releaseSavepoint(savepoint);
+        verify(connection, never()).rollback(any(Savepoint.class));
+        verify(statement, never()).executeUpdate();
+    }
+}
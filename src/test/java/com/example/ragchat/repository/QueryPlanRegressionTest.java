@@ -0,0 +1,110 @@
+package com.example.ragchat.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the Flyway migrations on PostgreSQL and checks that the list queries are served by an
+ * index-ordered scan of the composite indexes, with no Sort node. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class QueryPlanRegressionTest {
+
+    private static final String SORT_NODE = "\"Node Type\": \"Sort\"";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static UUID sessionId;
+    private static String userId;
+
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute("""
+                    INSERT INTO sessions (user_id, title, is_favorite, updated_at)
+                    SELECT 'user-' || (g % 500), 'Chat ' || g, g % 5 = 0, now() - g * interval '1 minute'
+                    FROM generate_series(1, 20000) g
+                    """);
+            st.execute("""
+                    INSERT INTO messages (session_id, sender, content, created_at)
+                    SELECT s.id, 'user', 'message ' || g, now() - g * interval '1 second'
+                    FROM (SELECT id FROM sessions ORDER BY id LIMIT 200) s CROSS JOIN generate_series(1, 500) g
+                    """);
+            st.execute("ANALYZE");
+            try (ResultSet rs = st.executeQuery("SELECT s.id, s.user_id FROM sessions s JOIN messages m ON m.session_id = s.id LIMIT 1")) {
+                rs.next();
+                sessionId = rs.getObject(1, UUID.class);
+                userId = rs.getString(2);
+            }
+        }
+    }
+
+    @Test
+    void messageKeysetLatestPage_usesIndexOrderWithoutSort() throws SQLException {
+        String plan = explain(MessageRepositoryImpl.KEYSET_LAST_SQL, sessionId, sessionId, userId, 21, sessionId, userId);
+
+        assertThat(plan).contains("idx_messages_session_created_id").doesNotContain(SORT_NODE);
+    }
+
+    @Test
+    void messageKeysetAfterCursor_usesIndexOrderWithoutSort() throws SQLException {
+        OffsetDateTime cursor = OffsetDateTime.now().minusHours(1);
+        String plan = explain(MessageRepositoryImpl.KEYSET_AFTER_SQL, sessionId, cursor, new UUID(0, 0),
+                sessionId, userId, 21, sessionId, userId);
+
+        assertThat(plan).contains("idx_messages_session_created_id").doesNotContain(SORT_NODE);
+    }
+
+    @Test
+    void sessionList_usesUserUpdatedIndexWithoutSort() throws SQLException {
+        // Shape of SessionRepository.findByUserId with the default updatedAt DESC sort
+        String plan = explain("SELECT * FROM sessions WHERE user_id = ? ORDER BY updated_at DESC LIMIT 20", userId);
+
+        assertThat(plan).contains("idx_sessions_user_updated").doesNotContain(SORT_NODE);
+    }
+
+    @Test
+    void favoriteSessionList_usesFavoriteIndexWithoutSort() throws SQLException {
+        // Shape of SessionRepository.findByUserIdAndFavorite with the default updatedAt DESC sort
+        String plan = explain("SELECT * FROM sessions WHERE user_id = ? AND is_favorite = ? ORDER BY updated_at DESC LIMIT 20",
+                userId, true);
+
+        assertThat(plan).contains("idx_sessions_user_favorite_updated").doesNotContain(SORT_NODE);
+    }
+
+    private static String explain(String sql, Object... params) throws SQLException {
+        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement("EXPLAIN (FORMAT JSON) " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+}
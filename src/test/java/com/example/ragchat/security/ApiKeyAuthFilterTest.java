@@ -0,0 +1,44 @@
+package com.example.ragchat.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiKeyAuthFilterTest {
+
+    @Test
+    void ownerId_neverMapsTwoTenantUserPairsToTheSameId() {
+        List<String> tenants = Arrays.asList(null, "acme", "acme-x", "acme_x", "a", "acme:x", "acme:");
+        List<String> users = List.of("bob", "x:bob", ":bob", "x", "", "acme:x:bob", "-x:bob", "bob:");
+        Map<String, String> pairByOwner = new HashMap<>();
+        for (String tenant : tenants) {
+            for (String user : users) {
+                String ownerId;
+                try {
+                    ownerId = ApiKeyAuthFilter.ownerId(tenant, user);
+                } catch (IllegalArgumentException rejected) {
+                    continue;
+                }
+                String pair = tenant + " / " + user;
+                assertThat(pairByOwner.putIfAbsent(ownerId, pair)).as("owner id %s of %s", ownerId, pair).isNull();
+            }
+        }
+        assertThat(pairByOwner).containsEntry("acme:x:bob", "acme / x:bob").containsEntry("bob", "null / bob");
+    }
+
+    @Test
+    void ownerId_rejectsAmbiguousOrOverlongIds() {
+        assertThatThrownBy(() -> ApiKeyAuthFilter.ownerId(null, "acme:bob")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ApiKeyAuthFilter.ownerId("acme:x", "bob")).isInstanceOf(IllegalArgumentException.class);
+        String longest = "u".repeat(ApiKeyAuthFilter.MAX_OWNER_ID_LENGTH - "acme:".length());
+        assertThat(ApiKeyAuthFilter.ownerId("acme", longest)).hasSize(ApiKeyAuthFilter.MAX_OWNER_ID_LENGTH);
+        assertThatThrownBy(() -> ApiKeyAuthFilter.ownerId("acme", longest + "u")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ApiKeyAuthFilter.ownerId(null, "u".repeat(256))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.ragchat.security;
+
+import com.example.ragchat.model.entity.ApiKey;
+import com.example.ragchat.repository.ApiKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ApiKeyRegistryTest {
+
+    private static final Instant T0 = Instant.parse("2025-02-21T10:00:00Z");
+
+    private final ApiKeyRepository repository = mock(ApiKeyRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ApiKeyRegistry registry = new ApiKeyRegistry(repository, null, meterRegistry,
+            Duration.ofSeconds(5), Duration.ofMinutes(1));
+
+    @Test
+    void refresh_loadsAllKeysThenOnlyRecentChanges() {
+        ApiKey acme = key("acme", "rcs_a", T0, null);
+        ApiKey globex = key("globex", "rcs_g", T0.plusSeconds(10), null);
+        when(repository.findChangedAfter(eq(Instant.EPOCH), any(UUID.class), any(Pageable.class)))
+                .thenReturn(List.of(acme, globex));
+        ApiKey revokedGlobex = key("globex", "rcs_g", T0.plusSeconds(20), T0.plusSeconds(20));
+        revokedGlobex.setId(globex.getId());
+        when(repository.findChangedAfter(eq(T0.plusSeconds(10).minus(Duration.ofMinutes(1))), any(UUID.class), any(Pageable.class)))
+                .thenReturn(List.of(revokedGlobex));
+
+        registry.refresh();
+
+        assertThat(registry.find(ApiKeyRegistry.hash("rcs_a")).tenantId()).isEqualTo("acme");
+        assertThat(registry.find(ApiKeyRegistry.hash("rcs_g")).tenantId()).isEqualTo("globex");
+        assertThat(meterRegistry.get("apikeys.indexed").gauge().value()).isEqualTo(2);
+
+        registry.refresh();
+
+        assertThat(registry.find(ApiKeyRegistry.hash("rcs_g"))).isNull();
+        assertThat(registry.find(ApiKeyRegistry.hash("rcs_a"))).isNotNull();
+        assertThat(registry.find(ApiKeyRegistry.hash("rcs_unknown"))).isNull();
+        assertThat(meterRegistry.get("apikeys.indexed").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void keysSharingAHashPrefixAreKeptApart() {
+        byte[] first = ApiKeyRegistry.hash("rcs_a");
+        byte[] second = Arrays.copyOf(first, first.length);
+        second[31] ^= 1;
+        ApiKeyPrincipal a = new ApiKeyPrincipal(UUID.randomUUID(), "acme", null);
+        ApiKeyPrincipal b = new ApiKeyPrincipal(UUID.randomUUID(), "globex", 10);
+
+        registry.putLocal(first, a);
+        registry.putLocal(second, b);
+        registry.putLocal(first, a);
+
+        assertThat(registry.find(first)).isEqualTo(a);
+        assertThat(registry.find(second)).isEqualTo(b);
+        registry.removeLocal(first);
+        assertThat(registry.find(first)).isNull();
+        assertThat(registry.find(second)).isEqualTo(b);
+        assertThat(meterRegistry.get("apikeys.indexed").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void generatedKeysAreRandomAndOnlyTheirHashMatches() {
+        String key = ApiKeyRegistry.generateKey();
+
+        assertThat(key).startsWith("rcs_").hasSize(4 + 43).isNotEqualTo(ApiKeyRegistry.generateKey());
+        assertThat(ApiKeyRegistry.hash(key)).hasSize(32).isEqualTo(ApiKeyRegistry.hash(key));
+    }
+
+    private static ApiKey key(String tenantId, String key, Instant updatedAt, Instant revokedAt) {
+        ApiKey apiKey = new ApiKey();
+        apiKey.setId(UUID.randomUUID());
+        apiKey.setTenantId(tenantId);
+        apiKey.setKeyHash(ApiKeyRegistry.hash(key));
+        apiKey.setUpdatedAt(updatedAt);
+        apiKey.setRevokedAt(revokedAt);
+        return apiKey;
+    }
+}
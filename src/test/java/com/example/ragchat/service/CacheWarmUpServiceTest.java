@@ -0,0 +1,75 @@
+package com.example.ragchat.service;
+
+import com.example.ragchat.cache.ActiveUserTracker;
+import com.example.ragchat.cache.MessageTailCache;
+import com.example.ragchat.model.dto.SessionResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class CacheWarmUpServiceTest {
+
+    private final ActiveUserTracker activeUsers = mock(ActiveUserTracker.class);
+    private final SessionService sessionService = mock(SessionService.class);
+    private final MessageService messageService = mock(MessageService.class);
+    private final MessageTailCache messageTail = mock(MessageTailCache.class);
+    private final CacheWarmUpService warmUp = new CacheWarmUpService(activeUsers, sessionService, messageService, messageTail,
+            false, Duration.ofHours(24), 100, 2, 1);
+
+    @Test
+    void warmUp_prefetchesFirstPageAndNewestTailsWithinConcurrencyLimit() {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add("u" + i);
+        }
+        when(activeUsers.recentUsers(Duration.ofHours(24), 100)).thenReturn(users);
+        when(messageTail.size()).thenReturn(50);
+        UUID newest = UUID.randomUUID();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(sessionService.prefetch(anyString(), any(Pageable.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            return new PageImpl<>(List.of(session(newest), session(UUID.randomUUID())));
+        });
+
+        CacheWarmUpService.Result result = warmUp.warmUp().orElseThrow();
+
+        assertThat(result.users()).isEqualTo(20);
+        assertThat(result.failed()).isZero();
+        assertThat(maxInFlight.get()).isBetween(1, 2);
+        verify(messageService, times(20)).getBySessionBefore(anyString(), eq(newest), isNull(), eq(50));
+        verifyNoMoreInteractions(messageService);
+    }
+
+    @Test
+    void warmUp_countsFailedUsersAndContinues() {
+        when(activeUsers.recentUsers(any(), anyInt())).thenReturn(List.of("ok", "broken"));
+        when(sessionService.prefetch(eq("ok"), any())).thenReturn(new PageImpl<>(List.of()));
+        when(sessionService.prefetch(eq("broken"), any())).thenThrow(new IllegalStateException("db down"));
+
+        CacheWarmUpService.Result result = warmUp.warmUp().orElseThrow();
+
+        assertThat(result.users()).isEqualTo(2);
+        assertThat(result.failed()).isEqualTo(1);
+    }
+
+    private static SessionResponse session(UUID id) {
+        return new SessionResponse(id, "Chat", false, Instant.now(), Instant.now());
+    }
+}
@@ -1,13 +1,15 @@
 package com.example.ragchat.service;
 
+import com.example.ragchat.cache.MessageTailCache;
+import com.example.ragchat.cache.SessionOwnershipCache;
 import com.example.ragchat.exception.ResourceNotFoundException;
 import com.example.ragchat.model.dto.AddMessageRequest;
+import com.example.ragchat.model.dto.CursorPageResponse;
+import com.example.ragchat.model.dto.MessageCursor;
 import com.example.ragchat.model.dto.MessageResponse;
 import com.example.ragchat.model.entity.Message;
 import com.example.ragchat.model.entity.MessageSender;
-import com.example.ragchat.model.entity.Session;
 import com.example.ragchat.repository.MessageRepository;
-import com.example.ragchat.repository.SessionRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -16,6 +18,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import java.time.Instant;
 import java.util.List;
@@ -25,6 +29,7 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,7 +38,9 @@ class MessageServiceTest {
     @Mock
     private MessageRepository messageRepository;
     @Mock
-    private SessionRepository sessionRepository;
+    private SessionOwnershipCache ownershipCache;
+    @Mock
+    private WriteBehindMessageWriter writeBehindWriter;
     @InjectMocks
     private MessageService messageService;
 
@@ -42,7 +49,7 @@ class MessageServiceTest {
 
     @Test
     void add_throwsWhenSessionNotFound() {
-        when(sessionRepository.findByIdAndUserId(SESSION_ID, USER_ID)).thenReturn(Optional.empty());
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(0);
         AddMessageRequest request = new AddMessageRequest(MessageSender.user, "Hi", null);
 
         assertThatThrownBy(() -> messageService.add(USER_ID, SESSION_ID, request))
@@ -51,105 +58,316 @@ class MessageServiceTest {
     }
 
     @Test
-    void add_savesMessageAndReturnsResponse() {
-        Session session = new Session();
-        session.setId(SESSION_ID);
-        session.setUserId(USER_ID);
-        when(sessionRepository.findByIdAndUserId(SESSION_ID, USER_ID)).thenReturn(Optional.of(session));
-        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-            Message m = inv.getArgument(0);
-            m.setId(UUID.randomUUID());
-            m.setCreatedAt(Instant.now());
-            return m;
-        });
+    void add_insertsMessageAndReturnsResponse() {
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(1);
         AddMessageRequest request = new AddMessageRequest(MessageSender.assistant, "Hello", null);
 
         MessageResponse response = messageService.add(USER_ID, SESSION_ID, request);
 
         assertThat(response.sender()).isEqualTo(MessageSender.assistant);
         assertThat(response.content()).isEqualTo("Hello");
-        verify(messageRepository).save(argThat(m -> session.equals(m.getSession()) && "Hello".equals(m.getContent())));
+        assertThat(response.id()).isNotNull();
+        assertThat(response.createdAt()).isNotNull();
+        verify(messageRepository).insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID),
+                argThat(list -> list.size() == 1 && "Hello".equals(list.get(0).getContent())));
+    }
+
+    @Test
+    void add_recordsProvenOwnership() {
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(1);
+
+        messageService.add(USER_ID, SESSION_ID, new AddMessageRequest(MessageSender.user, "Hi", null));
+
+        verify(ownershipCache).recordOwner(SESSION_ID, USER_ID);
+    }
+
+    @Test
+    void add_notFoundIsRememberedSoRepeatsAreRejectedFromCache() {
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(0);
+
+        assertThatThrownBy(() -> messageService.add(USER_ID, SESSION_ID, new AddMessageRequest(MessageSender.user, "Hi", null)))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        verify(ownershipCache).recordNotOwner(SESSION_ID, USER_ID);
+        verify(ownershipCache, never()).recordOwner(any(), any());
+    }
+
+    @Test
+    void knownNotOwner_isRejectedBeforeAnySql() {
+        when(ownershipCache.isKnownNotOwner(SESSION_ID, USER_ID)).thenReturn(true);
+
+        assertThatThrownBy(() -> messageService.add(USER_ID, SESSION_ID, new AddMessageRequest(MessageSender.user, "Hi", null)))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> messageService.getBySession(USER_ID, SESSION_ID, PageRequest.of(0, 20)))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> messageService.getBySessionBefore(USER_ID, SESSION_ID, "", 20))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void addAsync_queuesMessageWithoutInserting() {
+        when(ownershipCache.isOwner(SESSION_ID, USER_ID)).thenReturn(true);
+
+        MessageResponse response = messageService.addAsync(USER_ID, SESSION_ID,
+                new AddMessageRequest(MessageSender.assistant, "Later", null));
+
+        assertThat(response.id()).isNotNull();
+        verify(writeBehindWriter).enqueue(eq(USER_ID), eq(SESSION_ID),
+                argThat(m -> m.getId().equals(response.id()) && "Later".equals(m.getContent())));
+        verify(messageRepository, never()).insertIfSessionOwned(any(), any(), anyList());
+    }
+
+    @Test
+    void addAsync_throwsWhenSessionNotFound() {
+        when(ownershipCache.isOwner(SESSION_ID, USER_ID)).thenReturn(false);
+
+        assertThatThrownBy(() -> messageService.addAsync(USER_ID, SESSION_ID,
+                new AddMessageRequest(MessageSender.user, "x", null)))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verifyNoInteractions(writeBehindWriter);
     }
 
     @Test
     void getBySession_throwsWhenSessionNotFound() {
-        when(sessionRepository.existsByIdAndUserId(SESSION_ID, USER_ID)).thenReturn(false);
+        when(messageRepository.findPageIfSessionOwned(eq(SESSION_ID), eq(USER_ID), any())).thenReturn(Optional.empty());
+        when(messageRepository.countIfSessionOwned(SESSION_ID, USER_ID)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> messageService.getBySession(USER_ID, SESSION_ID, PageRequest.of(0, 20)))
                 .isInstanceOf(ResourceNotFoundException.class);
     }
 
     @Test
-    void getBySession_returnsPaginatedMessages() {
-        when(sessionRepository.existsByIdAndUserId(SESSION_ID, USER_ID)).thenReturn(true);
-        Message msg = new Message();
-        msg.setId(UUID.randomUUID());
-        msg.setSender(MessageSender.user);
-        msg.setContent("Hi");
-        msg.setCreatedAt(Instant.now());
-        Session s = new Session();
-        s.setId(SESSION_ID);
-        msg.setSession(s);
-        when(messageRepository.findBySessionIdAndSessionUserId(eq(SESSION_ID), eq(USER_ID), any()))
-                .thenReturn(new PageImpl<>(List.of(msg), PageRequest.of(0, 20), 1));
+    void getBySession_returnsPaginatedMessagesFromSingleQuery() {
+        Message msg = message("Hi", Instant.now());
+        when(messageRepository.findPageIfSessionOwned(eq(SESSION_ID), eq(USER_ID), any()))
+                .thenReturn(Optional.of(new PageImpl<>(List.of(msg), PageRequest.of(0, 20), 1)));
 
         Page<MessageResponse> page = messageService.getBySession(USER_ID, SESSION_ID, PageRequest.of(0, 20));
 
         assertThat(page.getContent()).hasSize(1);
         assertThat(page.getContent().get(0).content()).isEqualTo("Hi");
         assertThat(page.getTotalElements()).isEqualTo(1);
+        verify(messageRepository, never()).countIfSessionOwned(any(), any());
+    }
+
+    @Test
+    void getBySession_pastLastPage_returnsEmptyPageWithTotal() {
+        PageRequest pageable = PageRequest.of(5, 20);
+        when(messageRepository.findPageIfSessionOwned(SESSION_ID, USER_ID, pageable)).thenReturn(Optional.empty());
+        when(messageRepository.countIfSessionOwned(SESSION_ID, USER_ID)).thenReturn(Optional.of(3L));
+
+        Page<MessageResponse> page = messageService.getBySession(USER_ID, SESSION_ID, pageable);
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void getBySessionSlice_returnsSliceWithoutCounting() {
+        PageRequest pageable = PageRequest.of(0, 1);
+        when(messageRepository.findSliceIfSessionOwned(SESSION_ID, USER_ID, pageable))
+                .thenReturn(Optional.of(new SliceImpl<>(List.of(message("Hi", Instant.now())), pageable, true)));
+
+        Slice<MessageResponse> slice = messageService.getBySessionSlice(USER_ID, SESSION_ID, pageable);
+
+        assertThat(slice.getContent()).extracting(MessageResponse::content).containsExactly("Hi");
+        assertThat(slice.hasNext()).isTrue();
+        verify(messageRepository, never()).countIfSessionOwned(any(), any());
+    }
+
+    @Test
+    void getBySessionSlice_throwsWhenSessionNotFound() {
+        when(messageRepository.findSliceIfSessionOwned(eq(SESSION_ID), eq(USER_ID), any())).thenReturn(Optional.empty());
+        when(messageRepository.countIfSessionOwned(SESSION_ID, USER_ID)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> messageService.getBySessionSlice(USER_ID, SESSION_ID, PageRequest.of(0, 20)))
+                .isInstanceOf(ResourceNotFoundException.class);
     }
 
     @Test
     void add_trimsContent() {
-        Session session = new Session();
-        session.setId(SESSION_ID);
-        session.setUserId(USER_ID);
-        when(sessionRepository.findByIdAndUserId(SESSION_ID, USER_ID)).thenReturn(Optional.of(session));
-        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-            Message m = inv.getArgument(0);
-            m.setId(UUID.randomUUID());
-            m.setCreatedAt(Instant.now());
-            return m;
-        });
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(1);
         AddMessageRequest request = new AddMessageRequest(MessageSender.user, "  trimmed  ", null);
 
         MessageResponse response = messageService.add(USER_ID, SESSION_ID, request);
 
         assertThat(response.content()).isEqualTo("trimmed");
-        verify(messageRepository).save(argThat(m -> "trimmed".equals(m.getContent())));
+        verify(messageRepository).insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID),
+                argThat(list -> "trimmed".equals(list.get(0).getContent())));
     }
 
     @Test
     void add_withContext_savesContext() {
-        Session session = new Session();
-        session.setId(SESSION_ID);
-        session.setUserId(USER_ID);
-        when(sessionRepository.findByIdAndUserId(SESSION_ID, USER_ID)).thenReturn(Optional.of(session));
-        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-            Message m = inv.getArgument(0);
-            m.setId(UUID.randomUUID());
-            m.setCreatedAt(Instant.now());
-            return m;
-        });
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(1);
         com.fasterxml.jackson.databind.JsonNode context = com.fasterxml.jackson.databind.node.JsonNodeFactory.instance.objectNode().put("source", "doc1");
         AddMessageRequest request = new AddMessageRequest(MessageSender.assistant, "Answer", context);
 
         MessageResponse response = messageService.add(USER_ID, SESSION_ID, request);
 
         assertThat(response.context()).isEqualTo(context);
-        verify(messageRepository).save(argThat(m -> context.equals(m.getContext())));
+        verify(messageRepository).insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID),
+                argThat(list -> context.equals(list.get(0).getContext())));
     }
 
     @Test
     void getBySession_returnsEmptyPageWhenNoMessages() {
-        when(sessionRepository.existsByIdAndUserId(SESSION_ID, USER_ID)).thenReturn(true);
-        when(messageRepository.findBySessionIdAndSessionUserId(eq(SESSION_ID), eq(USER_ID), any()))
-                .thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 20), 0));
+        when(messageRepository.findPageIfSessionOwned(eq(SESSION_ID), eq(USER_ID), any()))
+                .thenReturn(Optional.of(new PageImpl<>(List.of(), PageRequest.of(0, 20), 0)));
 
         Page<MessageResponse> page = messageService.getBySession(USER_ID, SESSION_ID, PageRequest.of(0, 20));
 
         assertThat(page.getContent()).isEmpty();
         assertThat(page.getTotalElements()).isEqualTo(0);
     }
+
+    @Test
+    void addAll_throwsWhenSessionNotFound() {
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(0);
+        List<AddMessageRequest> requests = List.of(new AddMessageRequest(MessageSender.user, "Hi", null));
+
+        assertThatThrownBy(() -> messageService.addAll(USER_ID, SESSION_ID, requests))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void addAll_insertsOneBatchInOrder() {
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(2);
+        List<AddMessageRequest> requests = List.of(
+                new AddMessageRequest(MessageSender.user, " Question ", null),
+                new AddMessageRequest(MessageSender.assistant, "Answer", null));
+
+        List<MessageResponse> responses = messageService.addAll(USER_ID, SESSION_ID, requests);
+
+        assertThat(responses).extracting(MessageResponse::content).containsExactly("Question", "Answer");
+        assertThat(responses).extracting(MessageResponse::sender).containsExactly(MessageSender.user, MessageSender.assistant);
+        // Shared timestamp; v7 IDs must preserve request order when compared as unsigned bytes
+        assertThat(Long.compareUnsigned(responses.get(0).id().getMostSignificantBits(),
+                responses.get(1).id().getMostSignificantBits())).isNegative();
+        verify(messageRepository, times(1)).insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList());
+    }
+
+    @Test
+    void getBySessionBefore_returnsLatestOldestFirstWithPrevCursor() {
+        Instant now = Instant.now();
+        List<Message> newestFirst = List.of(message("m3", now), message("m2", now.minusSeconds(1)), message("m1", now.minusSeconds(2)));
+        when(messageRepository.findKeysetIfSessionOwned(SESSION_ID, USER_ID, null, null, false, 3))
+                .thenReturn(Optional.of(newestFirst));
+
+        CursorPageResponse<MessageResponse> page = messageService.getBySessionBefore(USER_ID, SESSION_ID, "", 2);
+
+        assertThat(page.content()).extracting(MessageResponse::content).containsExactly("m2", "m3");
+        assertThat(page.nextCursor()).isNull();
+        assertThat(MessageCursor.decode(page.prevCursor()).id()).isEqualTo(page.content().get(0).id());
+    }
+
+    @Test
+    void getBySessionBefore_servesLatestFromTailWithoutDatabase() {
+        MessageTailCache tail = mock(MessageTailCache.class);
+        MessageService service = new MessageService(messageRepository, ownershipCache, null, tail);
+        Instant now = Instant.now();
+        List<MessageResponse> oldestFirst = List.of(
+                MessageService.toResponse(message("m1", now.minusSeconds(2))),
+                MessageService.toResponse(message("m2", now.minusSeconds(1))),
+                MessageService.toResponse(message("m3", now)));
+        when(tail.size()).thenReturn(50);
+        when(tail.read(USER_ID, SESSION_ID)).thenReturn(new MessageTailCache.Lookup(oldestFirst, "4"));
+
+        CursorPageResponse<MessageResponse> page = service.getBySessionBefore(USER_ID, SESSION_ID, "", 2);
+
+        assertThat(page.content()).extracting(MessageResponse::content).containsExactly("m2", "m3");
+        assertThat(page.nextCursor()).isNull();
+        assertThat(MessageCursor.decode(page.prevCursor()).id()).isEqualTo(page.content().get(0).id());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getBySessionBefore_onTailMissLoadsTailSizeOnceAndPopulates() {
+        MessageTailCache tail = mock(MessageTailCache.class);
+        MessageService service = new MessageService(messageRepository, ownershipCache, null, tail);
+        Instant now = Instant.now();
+        List<Message> newestFirst = List.of(message("m2", now), message("m1", now.minusSeconds(1)));
+        when(tail.size()).thenReturn(50);
+        when(tail.loadSize()).thenReturn(51);
+        when(tail.read(USER_ID, SESSION_ID)).thenReturn(new MessageTailCache.Lookup(null, "7"));
+        when(messageRepository.findKeysetIfSessionOwned(SESSION_ID, USER_ID, null, null, false, 51))
+                .thenReturn(Optional.of(newestFirst));
+
+        CursorPageResponse<MessageResponse> page = service.getBySessionBefore(USER_ID, SESSION_ID, "", 20);
+
+        assertThat(page.content()).extracting(MessageResponse::content).containsExactly("m1", "m2");
+        assertThat(page.prevCursor()).isNull();
+        verify(tail).populate(eq(USER_ID), eq(SESSION_ID), eq("7"),
+                argThat(list -> list.stream().map(MessageResponse::content).toList().equals(List.of("m2", "m1"))));
+    }
+
+    @Test
+    void getBySessionBefore_bypassesTailForPagesLargerThanIt() {
+        MessageTailCache tail = mock(MessageTailCache.class);
+        MessageService service = new MessageService(messageRepository, ownershipCache, null, tail);
+        when(tail.size()).thenReturn(50);
+        when(messageRepository.findKeysetIfSessionOwned(SESSION_ID, USER_ID, null, null, false, 101))
+                .thenReturn(Optional.of(List.of()));
+
+        service.getBySessionBefore(USER_ID, SESSION_ID, "", 100);
+
+        verify(tail, never()).read(any(), any());
+    }
+
+    @Test
+    void add_appendsToTailAfterCommit() {
+        MessageTailCache tail = mock(MessageTailCache.class);
+        MessageService service = new MessageService(messageRepository, ownershipCache, null, tail);
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_ID), eq(USER_ID), anyList())).thenReturn(1);
+
+        MessageResponse response = service.add(USER_ID, SESSION_ID, new AddMessageRequest(MessageSender.user, "Hi", null));
+
+        verify(tail).appendAfterCommit(USER_ID, SESSION_ID, List.of(response));
+    }
+
+    @Test
+    void getBySessionAfter_decodesCursorAndSeeksForward() {
+        Instant at = Instant.parse("2025-02-21T10:00:00Z");
+        UUID anchor = UUID.randomUUID();
+        Message next = message("m2", at.plusSeconds(1));
+        when(messageRepository.findKeysetIfSessionOwned(SESSION_ID, USER_ID, at, anchor, true, 3))
+                .thenReturn(Optional.of(List.of(next)));
+
+        CursorPageResponse<MessageResponse> page = messageService.getBySessionAfter(USER_ID, SESSION_ID,
+                new MessageCursor(at, anchor).encode(), 2);
+
+        assertThat(page.content()).extracting(MessageResponse::content).containsExactly("m2");
+        assertThat(page.nextCursor()).isNull();
+        assertThat(page.prevCursor()).isNotNull();
+    }
+
+    @Test
+    void getBySessionAfter_throwsWhenSessionNotFound() {
+        when(messageRepository.findKeysetIfSessionOwned(SESSION_ID, USER_ID, null, null, true, 21))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> messageService.getBySessionAfter(USER_ID, SESSION_ID, "", 20))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void getBySessionAfter_ownedEmptySession_returnsEmptyPage() {
+        when(messageRepository.findKeysetIfSessionOwned(SESSION_ID, USER_ID, null, null, true, 21))
+                .thenReturn(Optional.of(List.of()));
+
+        CursorPageResponse<MessageResponse> page = messageService.getBySessionAfter(USER_ID, SESSION_ID, "", 20);
+
+        assertThat(page.content()).isEmpty();
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    private static Message message(String content, Instant createdAt) {
+        Message m = new Message();
+        m.setId(UUID.randomUUID());
+        m.setSender(MessageSender.user);
+        m.setContent(content);
+        m.setCreatedAt(createdAt);
+        return m;
+    }
 }
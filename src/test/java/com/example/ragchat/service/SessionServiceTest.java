@@ -1,5 +1,7 @@
 package com.example.ragchat.service;
 
+import com.example.ragchat.cache.ActiveUserTracker;
+import com.example.ragchat.cache.SessionOwnershipCache;
 import com.example.ragchat.config.SessionListCacheEvictor;
 import com.example.ragchat.exception.ResourceNotFoundException;
 import com.example.ragchat.model.dto.CreateSessionRequest;
@@ -17,6 +19,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import java.time.Instant;
 import java.util.List;
@@ -38,6 +42,10 @@ class SessionServiceTest {
     private CacheManager cacheManager;
     @Mock
     private SessionListCacheEvictor cacheEvictor;
+    @Mock
+    private SessionOwnershipCache ownershipCache;
+    @Mock
+    private ActiveUserTracker activeUsers;
     @InjectMocks
     private SessionService sessionService;
 
@@ -66,7 +74,7 @@ class SessionServiceTest {
         assertThat(response.title()).isEqualTo("My Chat");
         assertThat(response.favorite()).isFalse();
         verify(sessionRepository).save(argThat(s -> USER_ID.equals(s.getUserId()) && "My Chat".equals(s.getTitle())));
-        verify(cacheEvictor).evictForUser(USER_ID);
+        verify(cacheEvictor).evictForUserAfterCommit(USER_ID);
     }
 
     @Test
@@ -92,6 +100,18 @@ class SessionServiceTest {
         assertThatThrownBy(() -> sessionService.getById(USER_ID, id))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("Session");
+        verify(ownershipCache).recordNotOwner(id, USER_ID);
+    }
+
+    @Test
+    void getById_knownMissingIsRejectedWithoutQuery() {
+        UUID id = UUID.randomUUID();
+        when(ownershipCache.isKnownNotOwner(id, USER_ID)).thenReturn(true);
+
+        assertThatThrownBy(() -> sessionService.getById(USER_ID, id))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+        verifyNoInteractions(sessionRepository);
     }
 
     @Test
@@ -120,7 +140,8 @@ class SessionServiceTest {
         sessionService.delete(USER_ID, id);
 
         verify(sessionRepository).deleteById(id);
-        verify(cacheEvictor).evictForUser(USER_ID);
+        verify(cacheEvictor).evictForUserAfterCommit(USER_ID);
+        verify(ownershipCache).invalidateAfterCommit(id);
     }
 
     @Test
@@ -142,6 +163,18 @@ class SessionServiceTest {
         assertThat(page.getContent().get(0).title()).isEqualTo("Chat");
         assertThat(page.getTotalElements()).isEqualTo(1);
         verify(sessionRepository).findByUserId(USER_ID, pageable);
+        verify(activeUsers).recordActivity(USER_ID);
+    }
+
+    @Test
+    void prefetch_loadsFirstPageWithoutRecordingActivity() {
+        Pageable pageable = PageRequest.of(0, 20);
+        when(sessionRepository.findByUserId(USER_ID, pageable)).thenReturn(new PageImpl<>(List.of(), pageable, 0));
+
+        sessionService.prefetch(USER_ID, pageable);
+
+        verify(sessionRepository).findByUserId(USER_ID, pageable);
+        verifyNoInteractions(activeUsers);
     }
 
     @Test
@@ -155,6 +188,23 @@ class SessionServiceTest {
         verify(sessionRepository).findByUserIdAndFavorite(USER_ID, true, pageable);
     }
 
+    @Test
+    void listByUserSlice_usesSliceQueryWithoutCount() {
+        Pageable pageable = PageRequest.of(0, 1);
+        Session session = new Session();
+        session.setId(UUID.randomUUID());
+        session.setUserId(USER_ID);
+        session.setTitle("Chat");
+        when(sessionRepository.findSliceByUserId(USER_ID, pageable))
+                .thenReturn(new SliceImpl<>(List.of(session), pageable, true));
+
+        Slice<SessionResponse> slice = sessionService.listByUserSlice(USER_ID, null, pageable);
+
+        assertThat(slice.getContent()).hasSize(1);
+        assertThat(slice.hasNext()).isTrue();
+        verify(sessionRepository, never()).findByUserId(any(), any());
+    }
+
     @Test
     void getById_returnsSessionWhenFound() {
         UUID id = UUID.randomUUID();
@@ -193,7 +243,7 @@ class SessionServiceTest {
         assertThat(response.title()).isEqualTo("New Title");
         assertThat(response.favorite()).isTrue();
         verify(sessionRepository).save(argThat(s -> "New Title".equals(s.getTitle()) && s.isFavorite()));
-        verify(cacheEvictor).evictForUser(USER_ID);
+        verify(cacheEvictor).evictForUserAfterCommit(USER_ID);
     }
 
     @Test
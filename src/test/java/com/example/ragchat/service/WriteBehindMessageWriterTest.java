@@ -0,0 +1,174 @@
+package com.example.ragchat.service;
+
+import com.example.ragchat.exception.IngestQueueFullException;
+import com.example.ragchat.model.entity.Message;
+import com.example.ragchat.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindMessageWriterTest {
+
+    private static final UUID SESSION_A = UUID.randomUUID();
+    private static final UUID SESSION_B = UUID.randomUUID();
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WriteBehindMessageWriter writer(int capacity) {
+        return new WriteBehindMessageWriter(messageRepository, transactionManager, meterRegistry, null,
+                capacity, 100, Duration.ofMillis(5), Duration.ofSeconds(5), 3, Duration.ofMillis(1));
+    }
+
+    @Test
+    void stop_drainsQueueGroupedBySessionInOneTransaction() {
+        when(messageRepository.insertIfSessionOwned(any(), any(), anyList()))
+                .thenAnswer(inv -> inv.<List<?>>getArgument(2).size());
+        WriteBehindMessageWriter writer = writer(100);
+        writer.start();
+
+        writer.enqueue("u1", SESSION_A, message("a1"));
+        writer.enqueue("u1", SESSION_B, message("b1"));
+        writer.enqueue("u1", SESSION_A, message("a2"));
+        writer.stop();
+
+        verify(messageRepository, atLeastOnce()).insertIfSessionOwned(eq(SESSION_A), eq("u1"), anyList());
+        verify(messageRepository, atLeastOnce()).insertIfSessionOwned(eq(SESSION_B), eq("u1"), anyList());
+        assertThat(meterRegistry.get("messages.writebehind.queue.depth").gauge().value()).isZero();
+        assertThat(meterRegistry.get("messages.writebehind.flush").timer().count()).isPositive();
+        assertThat(writer.isRunning()).isFalse();
+    }
+
+    @Test
+    void enqueue_rejectsWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(messageRepository.insertIfSessionOwned(any(), any(), anyList())).thenAnswer(inv -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        WriteBehindMessageWriter writer = writer(1);
+        writer.start();
+
+        writer.enqueue("u1", SESSION_A, message("taken by the writer"));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.enqueue("u1", SESSION_A, message("queued"));
+
+        assertThatThrownBy(() -> writer.enqueue("u1", SESSION_A, message("rejected")))
+                .isInstanceOf(IngestQueueFullException.class);
+        assertThat(meterRegistry.get("messages.writebehind.rejected").counter().count()).isEqualTo(1);
+        release.countDown();
+        writer.stop();
+    }
+
+    @Test
+    void enqueue_rejectedWhenNotRunning() {
+        WriteBehindMessageWriter writer = writer(10);
+
+        assertThatThrownBy(() -> writer.enqueue("u1", SESSION_A, message("x")))
+                .isInstanceOf(IngestQueueFullException.class);
+    }
+
+    @Test
+    void flush_retriesATransientFailure() {
+        when(messageRepository.insertIfSessionOwned(any(), any(), anyList()))
+                .thenThrow(new org.springframework.dao.TransientDataAccessResourceException("connection reset"))
+                .thenAnswer(inv -> inv.<List<?>>getArgument(2).size());
+        WriteBehindMessageWriter writer = writer(100);
+        writer.start();
+
+        writer.enqueue("u1", SESSION_A, message("a1"));
+        writer.stop();
+
+        verify(messageRepository, times(2)).insertIfSessionOwned(eq(SESSION_A), eq("u1"), anyList());
+        assertThat(meterRegistry.get("messages.writebehind.dropped").counter().count()).isZero();
+    }
+
+    @Test
+    void flush_aFailingSessionDoesNotDropTheOthers() {
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_A), any(), anyList()))
+                .thenThrow(new IllegalStateException("bad row"));
+        when(messageRepository.insertIfSessionOwned(eq(SESSION_B), any(), anyList())).thenReturn(1);
+        WriteBehindMessageWriter writer = writer(100);
+        writer.start();
+
+        writer.enqueue("u1", SESSION_B, message("b1"));
+        writer.enqueue("u1", SESSION_A, message("a1"));
+        writer.enqueue("u1", SESSION_A, message("a2"));
+        writer.stop();
+
+        // Session A is retried and finally dropped on its own; session B is written
+        verify(messageRepository, atLeast(3)).insertIfSessionOwned(eq(SESSION_A), eq("u1"), anyList());
+        verify(messageRepository, atLeastOnce()).insertIfSessionOwned(eq(SESSION_B), eq("u1"), anyList());
+        assertThat(meterRegistry.get("messages.writebehind.dropped").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void flush_deletedSessionIsCountedOnceAfterCommit() {
+        when(messageRepository.insertIfSessionOwned(any(), any(), anyList())).thenReturn(0);
+        WriteBehindMessageWriter writer = writer(100);
+        writer.start();
+
+        writer.enqueue("u1", SESSION_A, message("a1"));
+        writer.stop();
+
+        assertThat(meterRegistry.get("messages.writebehind.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void stop_writesEveryAcceptedMessageWhileRequestsRace() throws Exception {
+        AtomicInteger written = new AtomicInteger();
+        when(messageRepository.insertIfSessionOwned(any(), any(), anyList())).thenAnswer(inv -> {
+            written.addAndGet(inv.<List<?>>getArgument(2).size());
+            return inv.<List<?>>getArgument(2).size();
+        });
+        WriteBehindMessageWriter writer = writer(100_000);
+        writer.start();
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            producers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (true) {
+                        writer.enqueue("u1", SESSION_A, message("m"));
+                        accepted.incrementAndGet();
+                    }
+                } catch (IngestQueueFullException refused) {
+                    // stopped
+                }
+            }));
+        }
+        Thread.sleep(20);
+        writer.stop();
+        for (Thread producer : producers) {
+            producer.join(5_000);
+        }
+
+        assertThat(accepted.get()).isPositive();
+        assertThat(written.get()).isEqualTo(accepted.get());
+    }
+
+    private static Message message(String content) {
+        Message m = new Message();
+        m.setId(UUID.randomUUID());
+        m.setContent(content);
+        m.setCreatedAt(Instant.now());
+        return m;
+    }
+}